@@ -2,17 +2,26 @@ package application;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
 
 import Encryption.EncryptionHelper;
 import Encryption.EncryptionUtils;
 
 import java.io.*;
+import java.security.GeneralSecurityException;
+import java.text.Normalizer;
 
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * <p> ArticleDatabase Class </p>
@@ -28,12 +37,42 @@ import java.util.Set;
  * @version: 2.00 2024-11-19 - Enhanced with advanced search, backup by group, and group-specific access management.
  */
 
-class Article {
+class Article implements ArticleStore {
 
 	// JDBC driver and URL information
 	static final String JDBC_DRIVER = "org.h2.Driver"; 
 	static final String DB_URL = "jdbc:h2:~/firstDatabase";  
 
+	// Mixed-mode settings: the first process opens the file and serves it over TCP, later processes
+	// connect to that server automatically. Disable with -Darticle.db.autoServer=false
+	static final boolean AUTO_SERVER = Boolean.parseBoolean(System.getProperty("article.db.autoServer", "true"));
+	static final int LOCK_TIMEOUT_MILLIS = 10000;     // How long a statement waits for a locked row or table
+	static final int CONNECT_TIMEOUT_SECONDS = 10;    // How long opening a connection may take
+	static final int VALID_CHECK_SECONDS = 2;         // How long a connection health check may take
+
+	/**
+	 * Engines that can answer the title, abstract and author searches
+	 */
+	enum SearchBackend {
+		INDEX,          // In-process inverted index (ArticleSearchIndex)
+		H2_FULLTEXT,    // H2's native full-text functions FT_*
+		LUCENE,         // H2's FullTextLucene, needs the Lucene jars on the classpath
+		LIKE            // Scan the table with LIKE '%phrase%'
+	}
+
+	// Search engine used by new connections, e.g. -Darticle.search.backend=lucene
+	static final SearchBackend SEARCH_BACKEND =
+			SearchBackend.valueOf(System.getProperty("article.search.backend", "index").toUpperCase());
+
+	// Number of values listed per facet
+	static final int FACET_LIMIT = 10;
+
+	// Number of restored rows sent to the database per batch
+	static final int RESTORE_BATCH_SIZE = 1000;
+
+	// Version of the article_keywords rows; raise it when their normalization changes so they are rebuilt
+	static final String KEYWORDS_VERSION = "1";
+
 	// Default credentials for database access
 	static final String USER = "sa"; 
 	static final String PASS = ""; 
@@ -54,6 +93,45 @@ class Article {
 	private Connection connection = null;
 	private Statement statement = null;
 
+	// URL of the open connection, used to reconnect
+	private String connectedUrl = null;
+
+	// Cache of "view more" results shared with other connections to the same database
+	private ArticleDetailCache detailCache;
+
+	// Cache of search results shared with other connections to the same database
+	private QueryResultCache queryCache;
+
+	// Decrypted bodies seen by this connection's session, zeroed when evicted or closed
+	private DecryptedBodyCache bodyCache;
+
+	// Inverted index of the text columns shared with other connections to the same database
+	private ArticleSearchIndex searchIndex;
+
+	// Autocomplete tries shared with other connections to the same database
+	private ArticleSuggester suggester;
+
+	// Level and group bitmaps shared with other connections to the same database
+	private ArticleBitmapIndex bitmapIndex;
+
+	// Saved searches of users, indexed to find the ones a new article matches
+	private StandingQueries standingQueries;
+
+	// Change counter value the shared structures above describe, to notice changes made by another process
+	private ArticleGeneration articleGeneration;
+
+	// Counter value raised by the open transaction, or 0 if it has not changed anything yet
+	private long pendingGeneration = 0;
+
+	// Engine answering text searches on this connection
+	private SearchBackend searchBackend = SEARCH_BACKEND;
+
+	// Cache invalidations to repeat, and index updates to apply, once the open transaction commits
+	private final List<Runnable> afterCommit = new ArrayList<>();
+
+	// First ID handed out by this database, raised above 1 only for shards
+	private int idRangeStart = 1;
+
 	// Encryption helper for securing article content
 	private EncryptionHelper encryptionHelper;
 
@@ -80,20 +158,79 @@ class Article {
 		encryptionHelper = new EncryptionHelper();
 	}
 
-	
+
+	// Accessors for the article fields
+	String getTitle() { return title; }
+	String getAuthors() { return authors; }
+	String getAbstractText() { return abstractText; }
+	String getKeywords() { return keywords; }
+	String getBody() { return body; }
+	String getReferences() { return references; }
+	String getLevel() { return level; }
+	String getIdentifier() { return identifier; }
+	String getSystemInfo() { return systemInfo; }
+
 	 // Establishes a connection to the H2 database and creates the articles table if it does not exist
 	public void connectToDatabase() throws SQLException {
+		connectToDatabase(serverModeUrl(DB_URL));
+	}
+
+	/**
+	 * Adds the H2 mixed-mode options to a database file URL. With AUTO_SERVER the first instance starts a
+	 * TCP server on the file and later instances connect to it instead of failing with "database already
+	 * in use", so every instance on the machine shares one page cache. AUTO_RECONNECT re-opens a dropped
+	 * TCP connection, for example when the instance that hosted the server exits.
+	 */
+	static String serverModeUrl(String fileUrl) {
+		if (!AUTO_SERVER) {
+			return fileUrl;
+		}
+		return fileUrl + ";AUTO_SERVER=TRUE;AUTO_RECONNECT=TRUE;LOCK_TIMEOUT=" + LOCK_TIMEOUT_MILLIS;
+	}
+
+	/**
+	 * Establishes a connection to the H2 database at the given URL, so benchmarks and tests
+	 * can run against a temporary database instead of the shared file
+	 */
+	void connectToDatabase(String dbUrl) throws SQLException {
 		try {
 			// Load JDBC driver and connect to the database
 			Class.forName(JDBC_DRIVER); 
-			connection = DriverManager.getConnection(DB_URL, USER, PASS);
+			DriverManager.setLoginTimeout(CONNECT_TIMEOUT_SECONDS);
+			connection = DriverManager.getConnection(dbUrl, USER, PASS);
 			statement = connection.createStatement(); 
+			connectedUrl = dbUrl;
+			detailCache = ArticleDetailCache.forDatabase(dbUrl);
+			queryCache = QueryResultCache.forDatabase(dbUrl);
+			bodyCache = new DecryptedBodyCache(DecryptedBodyCache.DEFAULT_MAX_BYTES);
+			searchIndex = ArticleSearchIndex.forDatabase(dbUrl);
+			suggester = ArticleSuggester.forDatabase(dbUrl);
+			bitmapIndex = ArticleBitmapIndex.forDatabase(dbUrl);
+			standingQueries = StandingQueries.forDatabase(dbUrl);
+			articleGeneration = ArticleGeneration.forDatabase(dbUrl);
 			createTables();
+			createFullTextIndex();
 		} catch (ClassNotFoundException e) {
 			System.err.println("JDBC Driver not found: " + e.getMessage());
 		}
 	}
 
+	/**
+	 * Checks that the connection is still usable and opens a new one if it is not, e.g. after the
+	 * process hosting the H2 server went away and automatic reconnection gave up
+	 */
+	public void ensureConnected() throws SQLException {
+		if (connectedUrl == null) {
+			return;
+		}
+		if (connection != null && !connection.isClosed() && connection.isValid(VALID_CHECK_SECONDS)) {
+			return;
+		}
+		System.err.println("Database connection lost, reconnecting to " + connectedUrl);
+		closeConnection();
+		connectToDatabase(connectedUrl);
+	}
+
 	// Creates the 'articles' table in the database if it does not already exist
 	private void createTables() throws SQLException {
 	    // SQL statement to create articles table
@@ -109,37 +246,511 @@ class Article {
 	            "identifier VARCHAR(255), " +       // New column for identifier
 	            "systemInfo VARCHAR(255))";          // New column for system information
 	    statement.execute(articlesTable);
+
+	    // Lower-cased, accent-folded copies of title and authors, written with every article, so
+	    // case-insensitive searches compare plain indexed columns instead of LOWER(column)
+	    statement.execute("ALTER TABLE articles ADD COLUMN IF NOT EXISTS title_norm VARCHAR(255)");
+	    statement.execute("ALTER TABLE articles ADD COLUMN IF NOT EXISTS authors_norm VARCHAR(255)");
+	    statement.execute("CREATE INDEX IF NOT EXISTS idx_articles_title_norm ON articles(title_norm)");
+	    statement.execute("CREATE INDEX IF NOT EXISTS idx_articles_authors_norm ON articles(authors_norm)");
+	    fillNormalizedColumns();
+
+	    // Version each derived table was last filled with, so its backfill runs once, not on every connect
+	    String versionsTable = "CREATE TABLE IF NOT EXISTS schema_versions (" +
+	            "name VARCHAR(64) PRIMARY KEY, " +
+	            "version VARCHAR(64) NOT NULL)";
+	    statement.execute(versionsTable);
+
+	    // One row per article and normalized keyword, so tagged articles are found through an index
+	    String keywordsTable = "CREATE TABLE IF NOT EXISTS article_keywords (" +
+	            "article_id INT NOT NULL, " +
+	            "keyword VARCHAR(255) NOT NULL, " +
+	            "PRIMARY KEY (article_id, keyword), " +
+	            "FOREIGN KEY (article_id) REFERENCES articles(id) ON DELETE CASCADE)";
+	    statement.execute(keywordsTable);
+
+	    // Indexes for the lookups by identifier, group and level
+	    statement.execute("CREATE INDEX IF NOT EXISTS idx_articles_identifier ON articles(identifier)");
+	    statement.execute("CREATE INDEX IF NOT EXISTS idx_articles_systeminfo ON articles(systemInfo)");
+	    statement.execute("CREATE INDEX IF NOT EXISTS idx_articles_level ON articles(level)");
+	    statement.execute("CREATE INDEX IF NOT EXISTS idx_article_keywords_keyword ON article_keywords(keyword)");
+	    backfill("article_keywords", KEYWORDS_VERSION, this::fillKeywordTable);
+
+	    // Blind index of the encrypted bodies: one row per article and keyed token of a body word
+	    String bodyTokensTable = "CREATE TABLE IF NOT EXISTS article_body_tokens (" +
+	            "article_id INT NOT NULL, " +
+	            "token CHAR(32) NOT NULL, " +
+	            "PRIMARY KEY (article_id, token), " +
+	            "FOREIGN KEY (article_id) REFERENCES articles(id) ON DELETE CASCADE)";
+	    statement.execute(bodyTokensTable);
+	    statement.execute("CREATE INDEX IF NOT EXISTS idx_article_body_tokens_token ON article_body_tokens(token)");
+	    try {
+	        // Tokens only match under the key that made them, so a new key rebuilds the table
+	        backfill("article_body_tokens", BodyBlindIndex.keyFingerprint(), this::fillBodyTokenTable);
+	    } catch (GeneralSecurityException | IOException e) {
+	        System.err.println("Could not load the blind index key: " + e.getMessage());
+	    }
+
+	    // Saved searches of users, and the queue of new articles that matched them per user
+	    String savedSearchesTable = "CREATE TABLE IF NOT EXISTS saved_searches (" +
+	            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+	            "username VARCHAR(255) NOT NULL, " +
+	            "query VARCHAR(1024) NOT NULL)";
+	    statement.execute(savedSearchesTable);
+	    statement.execute("CREATE INDEX IF NOT EXISTS idx_saved_searches_username ON saved_searches(username)");
+	    String notificationsTable = "CREATE TABLE IF NOT EXISTS notifications (" +
+	            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+	            "username VARCHAR(255) NOT NULL, " +
+	            "search_id INT NOT NULL, " +
+	            "article_id INT NOT NULL, " +
+	            "FOREIGN KEY (search_id) REFERENCES saved_searches(id) ON DELETE CASCADE, " +
+	            "FOREIGN KEY (article_id) REFERENCES articles(id) ON DELETE CASCADE)";
+	    statement.execute(notificationsTable);
+	    statement.execute("CREATE INDEX IF NOT EXISTS idx_notifications_username ON notifications(username)");
+
+	    // Counter raised by every change, so other processes on this file know to rebuild their indexes
+	    ArticleGeneration.createTable(statement);
+	}
+
+	// Empties a derived table and fills it again, in one transaction with recording the version it was
+	// filled for, unless schema_versions already holds that version. A failed fill leaves the old version,
+	// so it runs again on the next connect.
+	private void backfill(String table, String version, UnitOfWork fill) throws SQLException {
+		try (PreparedStatement pstmt = connection.prepareStatement("SELECT version FROM schema_versions WHERE name = ?")) {
+			pstmt.setString(1, table);
+			try (ResultSet rs = pstmt.executeQuery()) {
+				if (rs.next() && version.equals(rs.getString(1))) {
+					return;
+				}
+			}
+		}
+		try {
+			inTransaction(() -> {
+				statement.executeUpdate("DELETE FROM " + table);
+				fill.run();
+				try (PreparedStatement pstmt = connection.prepareStatement(
+						"MERGE INTO schema_versions (name, version) KEY (name) VALUES (?, ?)")) {
+					pstmt.setString(1, table);
+					pstmt.setString(2, version);
+					pstmt.executeUpdate();
+				}
+			});
+		} catch (SQLException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SQLException("Could not fill " + table, e);
+		}
+	}
+
+	// Writes the body tokens of every stored article, decrypting each body only in memory. Used for
+	// databases created before the blind index existed or with another key, and after a restore.
+	private void fillBodyTokenTable() throws SQLException {
+		String insert = "INSERT INTO article_body_tokens (article_id, token) VALUES (?, ?)";
+		try (Statement stmt = connection.createStatement();
+			 ResultSet rs = stmt.executeQuery("SELECT id, body, authors FROM articles");
+			 PreparedStatement pstmt = connection.prepareStatement(insert)) {
+			int pending = 0;
+			while (rs.next()) {
+				try {
+					byte[] plain = decryptField(rs.getString(2), rs.getString(3));
+					pending += addBodyTokenRows(pstmt, rs.getInt(1), new String(plain));
+					Arrays.fill(plain, (byte) 0);
+				} catch (Exception e) {
+					System.err.println("Could not index the body of article " + rs.getInt(1) + ": " + e.getMessage());
+				}
+				if (pending >= RESTORE_BATCH_SIZE) {
+					pstmt.executeBatch();
+					pending = 0;
+				}
+			}
+			pstmt.executeBatch();
+		}
+	}
+
+	// Adds the article_body_tokens rows of one body to the batch and returns how many were added
+	private static int addBodyTokenRows(PreparedStatement pstmt, int articleId, String body) throws Exception {
+		Set<String> tokens = BodyBlindIndex.tokens(body);
+		for (String token : tokens) {
+			pstmt.setInt(1, articleId);
+			pstmt.setString(2, token);
+			pstmt.addBatch();
+		}
+		return tokens.size();
+	}
+
+	// Replaces the body tokens of one article with those of its new plaintext body
+	private void writeBodyTokens(int articleId, String body, boolean replace) throws Exception {
+		if (replace) {
+			try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM article_body_tokens WHERE article_id = ?")) {
+				pstmt.setInt(1, articleId);
+				pstmt.executeUpdate();
+			}
+		}
+		try (PreparedStatement pstmt = connection.prepareStatement("INSERT INTO article_body_tokens (article_id, token) VALUES (?, ?)")) {
+			addBodyTokenRows(pstmt, articleId, body);
+			pstmt.executeBatch();
+		}
+	}
+
+	// Fills article_keywords from the keywords column for databases created before it existed
+	private void fillKeywordTable() throws SQLException {
+		String insert = "INSERT INTO article_keywords (article_id, keyword) VALUES (?, ?)";
+		try (Statement stmt = connection.createStatement();
+			 ResultSet rs = stmt.executeQuery("SELECT id, keywords FROM articles");
+			 PreparedStatement pstmt = connection.prepareStatement(insert)) {
+			int pending = 0;
+			while (rs.next()) {
+				pending += addKeywordRows(pstmt, rs.getInt(1), rs.getString(2));
+				if (pending >= RESTORE_BATCH_SIZE) {
+					pstmt.executeBatch();
+					pending = 0;
+				}
+			}
+			pstmt.executeBatch();
+		}
+	}
+
+	// Writes title_norm and authors_norm for articles stored before the columns existed
+	private void fillNormalizedColumns() throws SQLException {
+		String select = "SELECT id, title, authors FROM articles WHERE (title_norm IS NULL AND title IS NOT NULL) "
+				+ "OR (authors_norm IS NULL AND authors IS NOT NULL)";
+		try (Statement stmt = connection.createStatement();
+			 ResultSet rs = stmt.executeQuery(select);
+			 PreparedStatement pstmt = connection.prepareStatement("UPDATE articles SET title_norm = ?, authors_norm = ? WHERE id = ?")) {
+			int pending = 0;
+			while (rs.next()) {
+				pstmt.setString(1, fold(rs.getString(2)));
+				pstmt.setString(2, fold(rs.getString(3)));
+				pstmt.setInt(3, rs.getInt(1));
+				pstmt.addBatch();
+				if (++pending == RESTORE_BATCH_SIZE) {
+					pstmt.executeBatch();
+					pending = 0;
+				}
+			}
+			pstmt.executeBatch();
+		}
+	}
+
+	/**
+	 * Text as the case- and accent-insensitive searches compare it: accents removed and lower-cased,
+	 * so "ECLIPSE", "eclipse" and accented spellings of it compare equal. Null stays null.
+	 */
+	static String fold(String text) {
+		if (text == null) {
+			return null;
+		}
+		String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+		return decomposed.replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+	}
+
+	// Escapes the LIKE wildcards of a literal, for patterns written with ESCAPE '\'
+	static String escapeLike(String literal) {
+		return literal.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+
+	/**
+	 * Splits a keywords column into its normalized keywords: the comma-separated entries, trimmed
+	 * and lower-cased, without duplicates
+	 */
+	static Set<String> keywordsOf(String keywords) {
+		Set<String> normalized = new LinkedHashSet<>();
+		if (keywords != null) {
+			for (String keyword : keywords.split(",")) {
+				if (!keyword.trim().isEmpty()) {
+					normalized.add(keyword.trim().toLowerCase());
+				}
+			}
+		}
+		return normalized;
+	}
+
+	// Adds the article_keywords rows of one article to the batch and returns how many were added
+	private static int addKeywordRows(PreparedStatement pstmt, int articleId, String keywords) throws SQLException {
+		Set<String> normalized = keywordsOf(keywords);
+		for (String keyword : normalized) {
+			pstmt.setInt(1, articleId);
+			pstmt.setString(2, keyword);
+			pstmt.addBatch();
+		}
+		return normalized.size();
+	}
+
+	// Rewrites the article_keywords rows of a changed article; rows of deleted articles cascade
+	private void writeKeywords(ArticleRow before, ArticleRow after) throws SQLException {
+		if (after == null || (before != null && keywordsOf(before.keywords).equals(keywordsOf(after.keywords)))) {
+			return;
+		}
+		if (before != null) {
+			try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM article_keywords WHERE article_id = ?")) {
+				pstmt.setInt(1, before.id);
+				pstmt.executeUpdate();
+			}
+		}
+		try (PreparedStatement pstmt = connection.prepareStatement("INSERT INTO article_keywords (article_id, keyword) VALUES (?, ?)")) {
+			addKeywordRows(pstmt, after.id, after.keywords);
+			pstmt.executeBatch();
+		}
+	}
+
+	/**
+	 * Selects the engine for text searches; call before connecting, so the H2 full-text index is
+	 * created when one of its backends is chosen
+	 */
+	void setSearchBackend(SearchBackend backend) {
+		searchBackend = backend;
+	}
+
+	// Creates H2's own full-text index on the text columns when one of its backends is selected.
+	// H2 keeps that index current with triggers on the table, so mutations need no extra work.
+	private void createFullTextIndex() throws SQLException {
+		String columns = "'PUBLIC', 'ARTICLES', 'TITLE,ABSTRACT,AUTHORS,KEYWORDS'";
+		if (searchBackend == SearchBackend.H2_FULLTEXT) {
+			statement.execute("CREATE ALIAS IF NOT EXISTS FT_INIT FOR \"org.h2.fulltext.FullText.init\"");
+			statement.execute("CALL FT_INIT()");
+			if (!hasFullTextIndex("FT")) {
+				statement.execute("CALL FT_CREATE_INDEX(" + columns + ")");
+			}
+		} else if (searchBackend == SearchBackend.LUCENE) {
+			statement.execute("CREATE ALIAS IF NOT EXISTS FTL_INIT FOR \"org.h2.fulltext.FullTextLucene.init\"");
+			statement.execute("CALL FTL_INIT()");
+			if (!hasFullTextIndex("FTL")) {
+				statement.execute("CALL FTL_CREATE_INDEX(" + columns + ")");
+			}
+		}
+	}
+
+	// Whether the full-text schema already indexes the articles table
+	private boolean hasFullTextIndex(String schema) throws SQLException {
+		String query = "SELECT COUNT(*) FROM " + schema + ".INDEXES WHERE \"TABLE\" = 'ARTICLES'";
+		try (ResultSet rs = statement.executeQuery(query)) {
+			return rs.next() && rs.getInt(1) > 0;
+		}
+	}
+
+	/**
+	 * Makes newly registered articles take IDs starting at firstId, unless IDs at or above it are
+	 * already in use. ShardedArticleStore uses this to give every shard a disjoint ID range.
+	 */
+	void reserveIdRange(int firstId) throws SQLException {
+		idRangeStart = firstId;
+		try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM articles")) {
+			if (rs.next() && rs.getInt(1) < firstId) {
+				statement.execute("ALTER TABLE articles ALTER COLUMN id RESTART WITH " + firstId);
+			}
+		}
 	}
 
 
 	/**
-	 * Registers a new article in the database, encrypting the body before storing it
+	 * Registers a new article in the database, encrypting the body before storing it. The article,
+	 * its keyword and body token rows and any notifications it triggers are committed together.
 	 */
 	public void register(Article articleToAdd) throws Exception {
+		inTransaction(() -> {
+			try (PreparedStatement pstmt = connection.prepareStatement(INSERT_ARTICLE, Statement.RETURN_GENERATED_KEYS)) {
+				insertArticle(pstmt, articleToAdd);
+			}
+		});
+	}
+
+	// SQL statement to insert a new article
+	private static final String INSERT_ARTICLE = "INSERT INTO articles (title, authors, abstract, keywords, body, references, level, identifier, systemInfo, title_norm, authors_norm) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	/**
+	 * Inserts one article with a statement prepared from INSERT_ARTICLE and returns its new ID
+	 */
+	private int insertArticle(PreparedStatement pstmt, Article articleToAdd) throws Exception {
 		if (articleToAdd.systemInfo == null) {
 	        articleToAdd.systemInfo = "general";  // Set default to "general" if null
 	    }
 		// Encrypt the article body using the author's name as part of the initialization vector
-		String encryptedBody = Base64.getEncoder().encodeToString(
-				encryptionHelper.encrypt(articleToAdd.body.getBytes(), EncryptionUtils.getInitializationVector(articleToAdd.authors.toCharArray()))
-		);
-
-		// SQL statement to insert a new article
-		String insertUser = "INSERT INTO articles (title, authors, abstract, keywords, body, references, level, identifier, systemInfo) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-		try (PreparedStatement pstmt = connection.prepareStatement(insertUser)) {
-			pstmt.setString(1, articleToAdd.title);
-			pstmt.setString(2, articleToAdd.authors);
-			pstmt.setString(3, articleToAdd.abstractText);
-			pstmt.setString(4, articleToAdd.keywords);
-			pstmt.setString(5, encryptedBody);
-			pstmt.setString(6, articleToAdd.references);
-	        pstmt.setString(7, articleToAdd.level);           // New field for level
-	        pstmt.setString(8, articleToAdd.identifier);      // New field for identifier
-	        pstmt.setString(9, articleToAdd.systemInfo);      // New field for system information
-			pstmt.executeUpdate();
+		String encryptedBody = encryptField(articleToAdd.body, articleToAdd.authors);
+
+		pstmt.setString(1, articleToAdd.title);
+		pstmt.setString(2, articleToAdd.authors);
+		pstmt.setString(3, articleToAdd.abstractText);
+		pstmt.setString(4, articleToAdd.keywords);
+		pstmt.setString(5, encryptedBody);
+		pstmt.setString(6, articleToAdd.references);
+        pstmt.setString(7, articleToAdd.level);           // New field for level
+        pstmt.setString(8, articleToAdd.identifier);      // New field for identifier
+        pstmt.setString(9, articleToAdd.systemInfo);      // New field for system information
+        pstmt.setString(10, fold(articleToAdd.title));
+        pstmt.setString(11, fold(articleToAdd.authors));
+		pstmt.executeUpdate();
+
+		int id = -1;
+		try (ResultSet keys = pstmt.getGeneratedKeys()) {
+			if (keys.next()) {
+				id = keys.getInt(1);
+			}
+		}
+		writeBodyTokens(id, articleToAdd.body, false);
+		articleChanged(null, ArticleRow.fromArticle(id, articleToAdd));
+		return id;
+	}
+
+	/**
+	 * Reads the searchable columns of one stored article, or returns null if it does not exist
+	 */
+	private ArticleRow loadRow(int articleId) throws SQLException {
+		String query = "SELECT id, title, authors, abstract, keywords, level, identifier, systemInfo FROM articles WHERE id = ?";
+		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+			pstmt.setInt(1, articleId);
+			try (ResultSet rs = pstmt.executeQuery()) {
+				return rs.next() ? ArticleRow.fromResultSet(rs) : null;
+			}
+		}
+	}
+
+	/**
+	 * A group of statements that must succeed or fail together, see inTransaction
+	 */
+	interface UnitOfWork {
+		void run() throws Exception;
+	}
+
+	/**
+	 * Runs the given work as one transaction: every statement it issues on this connection is
+	 * committed together, or rolled back together if it throws. Calls made while a transaction is
+	 * already open join it, so multi-statement methods can be composed into larger commits.
+	 */
+	public void inTransaction(UnitOfWork work) throws Exception {
+		if (!connection.getAutoCommit()) {
+			work.run();  // Already inside a transaction, the outermost call commits
+			return;
+		}
+		connection.setAutoCommit(false);
+		try {
+			work.run();
+			connection.commit();
+			// Drop cached results and update the shared indexes only now that the changes are
+			// visible, so a rollback never leaves them describing rows that were not committed
+			for (Runnable update : afterCommit) {
+				update.run();
+			}
+			if (pendingGeneration > 0) {
+				articleGeneration.committed(pendingGeneration);
+			}
+		} catch (Exception e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			afterCommit.clear();
+			pendingGeneration = 0;
+			connection.setAutoCommit(true);
+		}
+	}
+
+	// Raises the change counter once per transaction, so other processes see that this one changed data
+	private void raiseGeneration() throws SQLException {
+		if (pendingGeneration == 0) {
+			pendingGeneration = ArticleGeneration.raise(connection);
+		}
+	}
+
+	/**
+	 * Drops the shared caches and indexes if another process changed the database since they were last
+	 * brought up to date, e.g. a second front-end writing through H2 server mode. They are rebuilt from
+	 * the table on next use. Inside a transaction the counter already holds its own raise, so no check runs.
+	 */
+	private void syncWithDatabase() throws SQLException {
+		if (!connection.getAutoCommit() || !articleGeneration.changedElsewhere(connection)) {
+			return;
+		}
+		detailCache.invalidateAll();
+		queryCache.invalidateAll();
+		bodyCache.clear();
+		searchIndex.invalidate();
+		suggester.invalidate();
+		bitmapIndex.invalidate();
+		standingQueries.invalidate();
+	}
+
+	/**
+	 * Writes the article_keywords and notifications rows of a changed article and queues the cache
+	 * invalidations and index updates for when the transaction commits. Called inside inTransaction by
+	 * every method that inserts, changes or removes an article, with its row before the change (null
+	 * for an insert) and after it (null for a delete), so the rows commit with the article and a
+	 * rollback leaves the caches and indexes untouched.
+	 */
+	private void articleChanged(ArticleRow before, ArticleRow after) throws SQLException {
+		requireTransaction();
+		raiseGeneration();
+		writeKeywords(before, after);
+		notifySavedSearches(before, after);
+		afterCommit.add(() -> {
+			if (before != null) {
+				detailCache.invalidate(before.id);
+				bodyCache.invalidate(before.id);
+			}
+			queryCache.invalidate(before, after);
+			searchIndex.update(before, after);
+			suggester.update(before, after);
+			bitmapIndex.update(before, after);
+		});
+	}
+
+	// Article changes must run inside inTransaction, whose commit applies the queued updates
+	private void requireTransaction() throws SQLException {
+		if (connection.getAutoCommit()) {
+			throw new IllegalStateException("Article changes must run inside inTransaction");
+		}
+	}
+
+	// Queues a notification for every saved search the article matches now but did not match before
+	private void notifySavedSearches(ArticleRow before, ArticleRow after) throws SQLException {
+		if (after == null) {
+			return;
+		}
+		List<StandingQueries.Match> matches = standingQueries().percolate(before, after);
+		if (matches.isEmpty()) {
+			return;
+		}
+		String insert = "INSERT INTO notifications (username, search_id, article_id) VALUES (?, ?, ?)";
+		try (PreparedStatement pstmt = connection.prepareStatement(insert)) {
+			for (StandingQueries.Match match : matches) {
+				pstmt.setString(1, match.username);
+				pstmt.setInt(2, match.searchId);
+				pstmt.setInt(3, after.id);
+				pstmt.addBatch();
+			}
+			pstmt.executeBatch();
 		}
 	}
 
+	/**
+	 * Drops everything cached about any article, after the table was cleared or replaced
+	 */
+	private void allArticlesChanged() throws SQLException {
+		requireTransaction();
+		raiseGeneration();
+		afterCommit.add(() -> {
+			detailCache.invalidateAll();
+			queryCache.invalidateAll();
+			bodyCache.clear();
+			searchIndex.invalidate();  // Rebuilt from the table on the next search
+			suggester.invalidate();
+			bitmapIndex.invalidate();
+		});
+	}
+
+	/**
+	 * Registers a list of articles using one batched insert and a single commit,
+	 * which is the bulk path used for loading large generated corpora
+	 */
+	public void registerBatch(List<Article> articlesToAdd) throws Exception {
+		inTransaction(() -> {
+			// One reused statement inside one transaction; rows are inserted individually so each new ID is known
+			try (PreparedStatement pstmt = connection.prepareStatement(INSERT_ARTICLE, Statement.RETURN_GENERATED_KEYS)) {
+				for (Article articleToAdd : articlesToAdd) {
+					insertArticle(pstmt, articleToAdd);
+				}
+			}
+		});
+	}
+
 	/**
 	 * Checks if an article with the given title already exists in the database
 	 */
@@ -194,7 +805,7 @@ class Article {
 		return false;
 	}
 	// displays all articles
-    String displayAllArticles(User user) throws Exception {
+    public String displayAllArticles(User user) throws Exception {
     	Set<String> thisUserGroups = user.getGroups();
     	List<String> thisUserGroupsList = new ArrayList<>(thisUserGroups);
     	String articles;
@@ -213,35 +824,39 @@ class Article {
     	
     	return articles;
     }
+
+    /**
+     * The listing of displayAllArticles as rows, not cached, for ShardedArticleStore to merge
+     */
+    ArticleListing listArticlesVisibleTo(User user) throws Exception {
+        if (user.getIsSpecial()) {
+            return listAllArticles();
+        }
+        return listArticlesByGroups(new ArrayList<>(user.getGroups()), user.hasRole("Instructor"));
+    }
 	
     public String getAllArticlesAsString() throws Exception {
-        StringBuilder result = new StringBuilder("All Articles:\n");
+        return queryCache().get("all", row -> true, () -> listAllArticles().toString());
+    }
+
+    ArticleListing listAllArticles() throws Exception {
+        ArticleListing listing = new ArticleListing("All Articles:\n", "No articles found in the database.", false);
 
         // SQL query to retrieve all articles
         String query = "SELECT * FROM articles";
-        
-        int articleCount = 0;  // Article count variable
 
         // Execute the query and format the results
         try (Statement statement = connection.createStatement();
              ResultSet resultSet = statement.executeQuery(query)) {
             
-            boolean found = false;
             while (resultSet.next()) {
-                found = true;
-
-                result.append("ID: ").append(resultSet.getInt("id")).append("\n")
-                .append("Title: ").append(resultSet.getString("title")).append("\n")
-                .append("Authors: ").append(resultSet.getString("authors")).append("\n")
-                .append("Abstract: ").append(resultSet.getString("abstract")).append("\n")
-                .append("\n");
-                articleCount++;
-            }
-            if (!found) {
-                return "No articles found in the database.";
+                listing.add(ArticleRow.fromResultSet(resultSet),
+                        "Title: " + resultSet.getString("title") + "\n"
+                        + "Authors: " + resultSet.getString("authors") + "\n"
+                        + "Abstract: " + resultSet.getString("abstract") + "\n"
+                        + "\n");
             }
-            result.insert(0, "Total Articles Retrieved: " + articleCount + "\n\n");
-            return result.toString();
+            return listing;
         }
     }
     
@@ -256,35 +871,45 @@ class Article {
         if (groups == null || groups.isEmpty()) {
             return "No groups provided.";
         }
+        if (canViewBody) {
+            // Decrypted bodies stay out of the shared cache; only DecryptedBodyCache holds plaintext
+            return loadArticlesByGroups(groups, true).toString();
+        }
+        Set<String> groupSet = new TreeSet<>(groups);
+        return queryCache().get("groups:" + String.join("\u0000", groupSet),
+                row -> groupSet.contains(row.systemInfo),
+                () -> loadArticlesByGroups(groups, false).toString());
+    }
 
-        // SQL query to search articles by groups in the 'group' column
-        StringBuilder query = new StringBuilder("SELECT * FROM articles WHERE ");
-        for (int i = 0; i < groups.size(); i++) {
-            query.append("systemInfo = ?");  
-            if (i < groups.size() - 1) {
-                query.append(" OR ");
-            }
+    /**
+     * The listing of getArticlesByGroupsAsString as rows, not cached, for ShardedArticleStore to merge
+     */
+    ArticleListing listArticlesByGroups(List<String> groups, boolean canViewBody) throws Exception {
+        if (groups == null || groups.isEmpty()) {
+            return ArticleListing.message("No groups provided.");
         }
-        
-        
-        boolean found = false;
-        StringBuilder result = new StringBuilder("Articles matching groups:\n");
-        int articleCount = 0;  // Article count variable
+        return loadArticlesByGroups(groups, canViewBody);
+    }
+
+    private ArticleListing loadArticlesByGroups(List<String> groups, boolean canViewBody) throws Exception {
+
+        // SQL query to search articles by groups in the 'group' column; the whole list is one array
+        // parameter, so every call uses the same statement and the systemInfo index
+        String query = "SELECT * FROM articles WHERE systemInfo = ANY(?) ORDER BY id";
+
+        ArticleListing listing = new ArticleListing("Articles matching groups:\n", "No articles found for the specified groups.", false);
         
         // Prepare the SQL statement
-        try (PreparedStatement statement = connection.prepareStatement(query.toString())) {
-            for (int i = 0; i < groups.size(); i++) {
-                statement.setString(i + 1, groups.get(i));  
-            }
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setObject(1, groups.toArray(new String[0]));
             
             if (canViewBody) {
                 // Execute the query and format the results for a decrypted body
                 try (ResultSet resultSet = statement.executeQuery()) {
                     while (resultSet.next()) {
-                        found = true;
-                        String decryptedBody = decryptField(resultSet.getString("body"), resultSet.getString("authors"));
+                        String decryptedBody = decryptBody(resultSet.getInt("id"), resultSet.getString("body"), resultSet.getString("authors"));
 
-                        result.append("ID: ").append(resultSet.getInt("id")).append("\n")
+                        listing.add(ArticleRow.fromResultSet(resultSet), new StringBuilder()
                             .append("Title: ").append(resultSet.getString("title")).append("\n")
                             .append("Authors: ").append(resultSet.getString("authors")).append("\n")
                             .append("Abstract: ").append(resultSet.getString("abstract")).append("\n")
@@ -294,8 +919,7 @@ class Article {
                             .append("Level: ").append(resultSet.getString("level")).append("\n")          // Add Level
                             .append("Identifier: ").append(resultSet.getString("identifier")).append("\n") // Add Identifier
                             .append("System Info: ").append(resultSet.getString("systemInfo")).append("\n") // Add System Info
-                            .append("\n");
-                        	articleCount++;  // Increment the count
+                            .append("\n").toString());
 
                     }
     
@@ -304,9 +928,7 @@ class Article {
                 // Execute the query and format the results for an encrypted body
                 try (ResultSet resultSet = statement.executeQuery()) {
                     while (resultSet.next()) {
-                        found = true;
-
-                        result.append("ID: ").append(resultSet.getInt("id")).append("\n")
+                        listing.add(ArticleRow.fromResultSet(resultSet), new StringBuilder()
                             .append("Title: ").append(resultSet.getString("title")).append("\n")
                             .append("Authors: ").append(resultSet.getString("authors")).append("\n")
                             .append("Abstract: ").append(resultSet.getString("abstract")).append("\n")
@@ -316,22 +938,17 @@ class Article {
                             .append("Level: ").append(resultSet.getString("level")).append("\n")          // Add Level
                             .append("Identifier: ").append(resultSet.getString("identifier")).append("\n") // Add Identifier
                             .append("System Info: ").append(resultSet.getString("systemInfo")).append("\n") // Add System Info
-                            .append("\n");
-                        	articleCount++;  // Increment the count
+                            .append("\n").toString());
                     }
                 }   
            }
-            
-           if (!found)
-        	   return "No articles found for the specified groups.";
-           
         }
-        result.insert(0, "Total Articles Retrieved: " + articleCount + "\n\n");
-        return result.toString();
+        return listing;
     }
 
     /**
-     * Searches for articles containing the specified identifiers and returns them as a formatted string.
+     * Searches for articles with the specified identifiers and returns them as a formatted string.
+     * An identifier ending in * matches every identifier starting with the text before it.
      * 
      * @param identifiers The list of identifiers to search for in the articles.
      * @return A formatted string listing the articles that match the identifiers, or a message if no articles were found.
@@ -342,56 +959,99 @@ class Article {
         if (identifiers == null || identifiers.isEmpty()) {
             return "No identifiers provided.";
         }
+        Set<String> patterns = new TreeSet<>(identifiers);
+        return queryCache().get("identifiers:" + String.join("\u0000", patterns),
+                row -> patterns.stream().anyMatch(pattern -> identifierMatches(row.identifier, pattern)),
+                () -> loadArticlesByIdentifiers(patterns).toString());
+    }
 
-        // SQL query to search articles by identifiers in the 'identifier' column
-        StringBuilder query = new StringBuilder("SELECT * FROM articles WHERE ");
-        for (int i = 0; i < identifiers.size(); i++) {
-            query.append("identifier LIKE ?");
-            if (i < identifiers.size() - 1) {
-                query.append(" OR ");
-            }
+    /**
+     * The listing of getArticlesByIdentifiersAsString as rows, not cached, for ShardedArticleStore to merge
+     */
+    ArticleListing listArticlesByIdentifiers(List<String> identifiers) throws Exception {
+        if (identifiers == null || identifiers.isEmpty()) {
+            return ArticleListing.message("No identifiers provided.");
         }
-        
-        int articleCount = 0;
-        // Prepare the SQL statement
-        try (PreparedStatement statement = connection.prepareStatement(query.toString())) {
-            for (int i = 0; i < identifiers.size(); i++) {
-                statement.setString(i + 1, identifiers.get(i));
+        return loadArticlesByIdentifiers(new TreeSet<>(identifiers));
+    }
+
+    /**
+     * Whether an identifier matches a search pattern: equal to it, or starting with it if it ends in *
+     */
+    static boolean identifierMatches(String identifier, String pattern) {
+        if (identifier == null) {
+            return false;
+        }
+        if (pattern.endsWith("*")) {
+            return identifier.startsWith(pattern.substring(0, pattern.length() - 1));
+        }
+        return identifier.equals(pattern);
+    }
+
+    private ArticleListing loadArticlesByIdentifiers(Set<String> patterns) throws Exception {
+        // Exact identifiers are looked up together as one array parameter; each prefix is an
+        // index range scan. Both statements keep the same text whatever the number of identifiers.
+        List<String> exact = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern.endsWith("*")) {
+                prefixes.add(pattern.substring(0, pattern.length() - 1));
+            } else {
+                exact.add(pattern);
             }
+        }
 
-            // Execute the query and format the results
+        int[] ids = new int[0];
+        if (!exact.isEmpty()) {
+            ids = selectIds("SELECT id FROM articles WHERE identifier = ANY(?) ORDER BY id", exact.toArray(new String[0]));
+        }
+        for (String prefix : prefixes) {
+            ids = ArticleSearchIndex.union(ids,
+                    selectIds("SELECT id FROM articles WHERE identifier LIKE ? ESCAPE '\\' ORDER BY id", escapeLike(prefix) + "%"));
+        }
+        ArticleListing listing = new ArticleListing("Articles matching identifiers:\n", "No articles found for the specified identifiers.", false);
+        addArticlesById(listing, ids, null);
+        return listing;
+    }
+
+    // Runs a query with one parameter that returns article IDs in order
+    private int[] selectIds(String query, Object parameter) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setObject(1, parameter);
             try (ResultSet resultSet = statement.executeQuery()) {
-                StringBuilder result = new StringBuilder("Articles matching identifiers:\n");
-                boolean found = false;
                 while (resultSet.next()) {
-                    found = true;
-
-                    result.append("ID: ").append(resultSet.getInt("id")).append("\n")
-                    .append("Title: ").append(resultSet.getString("title")).append("\n")
-                    .append("Authors: ").append(resultSet.getString("authors")).append("\n")
-                    .append("Abstract: ").append(resultSet.getString("abstract")).append("\n")
-                    .append("\n");
-                    articleCount++;
+                    ids.add(resultSet.getInt(1));
                 }
-                if (!found) {
-                    return "No articles found for the specified identifiers.";
-                }
-                result.insert(0, "Total Articles Retrieved: " + articleCount + "\n\n");
-                return result.toString();
             }
         }
-    }    
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
      
  public String getArticlesByContentLevelAsString(String selectedLevel, User user) throws Exception {
         if (selectedLevel.equals("All")) {
             return displayAllArticles(user);
         }
-        
-        int articleCount = 0;  // Article count variable
+        return queryCache().get("level:" + selectedLevel,
+                row -> selectedLevel.equals(row.level),
+                () -> loadArticlesByContentLevel(selectedLevel).toString());
+    }
+
+    /**
+     * The listing of getArticlesByContentLevelAsString as rows, not cached, for ShardedArticleStore to merge
+     */
+    ArticleListing listArticlesByContentLevel(String selectedLevel, User user) throws Exception {
+        if (selectedLevel.equals("All")) {
+            return listArticlesVisibleTo(user);
+        }
+        return loadArticlesByContentLevel(selectedLevel);
+    }
+
+    private ArticleListing loadArticlesByContentLevel(String selectedLevel) throws Exception {
         
         // SQL query to search articles by the selected level in the 'level' column
         String query = "SELECT * FROM articles WHERE level = ?";
-        StringBuilder result = new StringBuilder();
+        ArticleListing listing = new ArticleListing("", null, false);
         
         // Prepare the SQL statement
         try (PreparedStatement statement = connection.prepareStatement(query)) {
@@ -399,121 +1059,819 @@ class Article {
             // Execute the query and format the results
             try (ResultSet resultSet = statement.executeQuery()) {
                 while (resultSet.next()) {
-
-                    result.append("ID: ").append(resultSet.getInt("id")).append("\n")
-                    .append("Title: ").append(resultSet.getString("title")).append("\n")
-                    .append("Authors: ").append(resultSet.getString("authors")).append("\n")
-                    .append("Abstract: ").append(resultSet.getString("abstract")).append("\n");
-                    articleCount++;  // Increment the count
+                    listing.add(ArticleRow.fromResultSet(resultSet),
+                            "Title: " + resultSet.getString("title") + "\n"
+                            + "Authors: " + resultSet.getString("authors") + "\n"
+                            + "Abstract: " + resultSet.getString("abstract") + "\n");
                 }
-                result.insert(0, "Total Articles Retrieved: " + articleCount + "\n\n");
-                return result.toString();
+                return listing;
             }
         }
     }
    
     
     public String getArticlesByAuthorAsString(String author) throws Exception {
-    	String query = "SELECT * FROM articles WHERE authors LIKE ?";
-        StringBuilder result = new StringBuilder();
-        
-        int articleCount = 0;  // Article count variable
-        
-        // Prepare the SQL statement
-        try (PreparedStatement statement = connection.prepareStatement(query.toString())) {
-        	statement.setString(1, "%" + author + "%");
-            // Execute the query and format the results
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) {
+        return queryCache().get("author:" + author,
+                row -> QueryResultCache.contains(row.authors, String.valueOf(author))
+                        || ArticleSearchIndex.matchesFuzzy(row.authors, author),
+                () -> listArticlesByAuthor(author).toString());
+    }
 
-                    result.append("ID: ").append(resultSet.getInt("id")).append("\n")
-                    .append("Title: ").append(resultSet.getString("title")).append("\n")
-                    .append("Authors: ").append(resultSet.getString("authors")).append("\n")
-                    .append("Abstract: ").append(resultSet.getString("abstract")).append("\n")
-                    .append("\n");
-                    articleCount++;  // Increment the count
-                }
-                result.insert(0, "Total Articles Retrieved: " + articleCount + "\n\n");
-                return result.toString();
-            }
-        }
+    /**
+     * The listing of getArticlesByAuthorAsString as rows, not cached, for ShardedArticleStore to merge
+     */
+    ArticleListing listArticlesByAuthor(String author) throws Exception {
+        // Names containing the text, as with LIKE '%author%' on authors_norm, plus whole names, even
+        // misspelled, from the search backend; "name*" is an index range scan of authors_norm
+        ArticleListing listing = new ArticleListing("", null, false);
+        int[] ids = isPrefixSearch(author)
+                ? likeIds("authors_norm", foldedPattern(author), null)
+                : textSearchIds(author, ArticleSearchIndex.Field.AUTHORS, "authors_norm", foldedPattern(author));
+        addArticlesById(listing, ids, author);
+        return listing;
     }
 
     public String getArticlesByTitleAsString(String phrases) throws Exception {
 		if (phrases == null || phrases.trim().isEmpty()) {
 		    return "No search phrase provided.";
 		}
+		String phrase = phrases.trim();
+		return queryCache().get("title:" + phrase,
+				row -> QueryResultCache.contains(row.title, phrase) || ArticleSearchIndex.matchesFuzzy(row.title, phrase),
+				() -> loadArticlesByTitle(phrases).toString());
+    }
 
-	    int articleCount = 0;  // Article count variable
-		
-		// SQL query to search for articles by matching phrases in the 'abstract' column
-		String query = "SELECT * FROM articles WHERE title LIKE ?";
-		
-		// Prepare the SQL statement
-		try (PreparedStatement statement = connection.prepareStatement(query)) {
-		    statement.setString(1, "%" + phrases.trim() + "%");
+    /**
+     * The listing of getArticlesByTitleAsString as rows, not cached, for ShardedArticleStore to merge
+     */
+    ArticleListing listArticlesByTitle(String phrases) throws Exception {
+		if (phrases == null || phrases.trim().isEmpty()) {
+		    return ArticleListing.message("No search phrase provided.");
+		}
+		return loadArticlesByTitle(phrases);
+    }
 
-            // Execute the query and format the results
-            try (ResultSet resultSet = statement.executeQuery()) {
-    	        StringBuilder result = new StringBuilder("Articles matching titles:\n");
-    	        boolean found = false;
-    	        while (resultSet.next()) {
-    	            found = true;
-
-    	            result.append("ID: ").append(resultSet.getInt("id")).append("\n")
-    	            .append("Title: ").append(resultSet.getString("title")).append("\n")
-    	            .append("Authors: ").append(resultSet.getString("authors")).append("\n")
-    	            .append("Abstract: ").append(resultSet.getString("abstract")).append("\n")
-    	            .append("\n");
-    	            articleCount++;  // Increment the count
-    	        }
-    	        if (!found) {
-    	            return "No articles found for the specified search terms.";
-    	        }
-    	        result.insert(0, "Total Articles Retrieved: " + articleCount + "\n\n");
-    	        return result.toString();
-    	    }
-    	}
+    private ArticleListing loadArticlesByTitle(String phrases) throws Exception {
+		// Titles containing the phrase, as with LIKE '%phrase%' on title_norm, plus whole words, even
+		// misspelled, from the search backend; "phrase*" is an index range scan of title_norm
+		ArticleListing listing = new ArticleListing("Articles matching titles:\n", "No articles found for the specified search terms.", false);
+		int[] ids = isPrefixSearch(phrases)
+				? likeIds("title_norm", foldedPattern(phrases), null)
+				: textSearchIds(phrases, ArticleSearchIndex.Field.TITLE, "title_norm", foldedPattern(phrases));
+		addArticlesById(listing, ids, phrases);
+		return listing;
     }
      
+    // Whether a title or author search asks for values starting with the phrase
+    private static boolean isPrefixSearch(String phrase) {
+        return phrase != null && phrase.trim().endsWith("*");
+    }
+
+    /**
+     * LIKE pattern on title_norm or authors_norm for a title or author search: the folded phrase at the
+     * start of the column for "phrase*", which the column's index answers, and anywhere in it otherwise
+     */
+    static String foldedPattern(String phrase) {
+        String trimmed = String.valueOf(phrase).trim();
+        if (trimmed.endsWith("*")) {
+            return escapeLike(fold(trimmed.substring(0, trimmed.length() - 1))) + "%";
+        }
+        return "%" + escapeLike(fold(trimmed)) + "%";
+    }
+
     public String getArticlesByAbstractAsString(String phrases) throws Exception {
 		if (phrases == null || phrases.trim().isEmpty()) {
 		    return "No search phrase provided.";
 		}
-		
-		// SQL query to search for articles by matching phrases in the 'abstract' column
-		String query = "SELECT * FROM articles WHERE abstract LIKE ?";
-		
-	    int articleCount = 0;  // Article count variable
-		
-		// Prepare the SQL statement
-		try (PreparedStatement statement = connection.prepareStatement(query)) {
-		    statement.setString(1, "%" + phrases.trim() + "%");
-		
-		    try (ResultSet resultSet = statement.executeQuery()) {
-		        StringBuilder result = new StringBuilder("Articles matching abstract phrase:\n");
-		        boolean found = false;
-		        while (resultSet.next()) {
-		            found = true;
-		
-		            result.append("ID: ").append(resultSet.getInt("id")).append("\n")
-		                .append("Title: ").append(resultSet.getString("title")).append("\n")
-		                .append("Authors: ").append(resultSet.getString("authors")).append("\n")
-		                .append("Abstract: ").append(resultSet.getString("abstract")).append("\n")
-		                .append("\n");
-		            	articleCount++;  // Increment the count
-		        }
-		        if (!found) {
-		            return "No articles found with abstracts containing the specified phrase.";
-		        }
-		        result.insert(0, "Total Articles Retrieved: " + articleCount + "\n\n");
-		        return result.toString();
-		    }
+		String phrase = phrases.trim();
+		return queryCache().get("abstract:" + phrase,
+				row -> QueryResultCache.contains(row.abstractText, phrase) || ArticleSearchIndex.matchesFuzzy(row.abstractText, phrase),
+				() -> loadArticlesByAbstract(phrases).toString());
+    }
+
+    /**
+     * The listing of getArticlesByAbstractAsString as rows, not cached, for ShardedArticleStore to merge
+     */
+    ArticleListing listArticlesByAbstract(String phrases) throws Exception {
+		if (phrases == null || phrases.trim().isEmpty()) {
+		    return ArticleListing.message("No search phrase provided.");
 		}
+		return loadArticlesByAbstract(phrases);
+    }
+
+    private ArticleListing loadArticlesByAbstract(String phrases) throws Exception {
+		// Abstracts containing the phrase, as with LIKE '%phrase%', plus whole words, even misspelled,
+		// from the search backend
+		ArticleListing listing = new ArticleListing("Articles matching abstract phrase:\n", "No articles found with abstracts containing the specified phrase.", false);
+		int[] ids = textSearchIds(phrases, ArticleSearchIndex.Field.ABSTRACT, "abstract", "%" + escapeLike(phrases.trim()) + "%");
+		addArticlesById(listing, ids, phrases);
+		return listing;
+    }
+
+
+    /**
+     * Searches the encrypted bodies for articles containing every one of the words, through the blind
+     * index of body tokens, so no body is decrypted. Whole words only, in any order.
+     */
+    public String getArticlesByBodyAsString(String words) throws Exception {
+        if (words == null || words.trim().isEmpty()) {
+            return "No search phrase provided.";
+        }
+        Set<String> tokens = BodyBlindIndex.tokens(words);
+        if (tokens.isEmpty()) {
+            return "No articles found with bodies containing the specified words.";
+        }
+        // Bodies are not part of ArticleRow, so any change may affect the result
+        return queryCache().get("body:" + String.join(" ", tokens), row -> true, () -> loadArticlesByBody(tokens).toString());
+    }
+
+    /**
+     * The listing of getArticlesByBodyAsString as rows, not cached, for ShardedArticleStore to merge
+     */
+    ArticleListing listArticlesByBody(String words) throws Exception {
+        if (words == null || words.trim().isEmpty()) {
+            return ArticleListing.message("No search phrase provided.");
+        }
+        return loadArticlesByBody(BodyBlindIndex.tokens(words));
+    }
+
+    private ArticleListing loadArticlesByBody(Set<String> tokens) throws Exception {
+        ArticleListing listing = new ArticleListing("Articles matching body words:\n", "No articles found with bodies containing the specified words.", false);
+        if (tokens.isEmpty()) {
+            return listing;
+        }
+        String query = "SELECT article_id FROM article_body_tokens WHERE token = ANY(?) " +
+                "GROUP BY article_id HAVING COUNT(*) = ? ORDER BY article_id";
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setObject(1, tokens.toArray(new String[0]));
+            statement.setInt(2, tokens.size());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getInt(1));
+                }
+            }
+        }
+        addArticlesById(listing, ids.stream().mapToInt(Integer::intValue).toArray(), null);
+        return listing;
+    }
+
+    /**
+     * Returns at most limit articles containing any of the words, most relevant first with their BM25
+     * scores, weighting title, keywords and abstract matches by ArticleSearchIndex.DEFAULT_BOOSTS.
+     * Ranking always uses the in-process index, whatever the search backend.
+     */
+    public String getArticlesByRelevanceAsString(String words, int limit) throws Exception {
+        if (words == null || words.trim().isEmpty()) {
+            return "No search phrase provided.";
+        }
+        // Any change moves the collection statistics every score depends on
+        return queryCache().get("relevance:" + limit + ":" + words.trim(), row -> true,
+                () -> loadArticlesByRelevance(words, limit).toString());
+    }
+
+    /**
+     * The listing of getArticlesByRelevanceAsString as rows with their scores, not cached, for
+     * ShardedArticleStore to merge
+     */
+    ArticleListing listArticlesByRelevance(String words, int limit) throws Exception {
+        if (words == null || words.trim().isEmpty()) {
+            return ArticleListing.message("No search phrase provided.");
+        }
+        return loadArticlesByRelevance(words, limit);
+    }
+
+    private ArticleListing loadArticlesByRelevance(String words, int limit) throws Exception {
+        ArticleListing listing = new ArticleListing("Articles ranked by relevance:\n", "No articles found for the specified search terms.", true);
+        List<ArticleSearchIndex.Hit> hits = searchIndex().rank(words, limit, ArticleSearchIndex.DEFAULT_BOOSTS);
+        if (hits.isEmpty()) {
+            return listing;
+        }
+        Integer[] ids = new Integer[hits.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = hits.get(i).id;
+        }
+
+        // Fetch the rows, then list them in rank order
+        Map<Integer, ArticleRow> rows = new HashMap<>();
+        Map<Integer, String> texts = new HashMap<>();
+        String query = "SELECT " + ROW_COLUMNS + " FROM articles WHERE id = ANY(?)";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setObject(1, ids);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    int id = resultSet.getInt("id");
+                    rows.put(id, ArticleRow.fromResultSet(resultSet));
+                    texts.put(id, "Title: " + ArticleSearchIndex.escapeMarkup(resultSet.getString("title")) + "\n"
+                            + "Authors: " + ArticleSearchIndex.escapeMarkup(resultSet.getString("authors")) + "\n"
+                            + "Abstract: " + abstractSnippet(id, resultSet.getString("abstract"), words) + "\n"
+                            + "\n");
+                }
+            }
+        }
+        for (ArticleSearchIndex.Hit hit : hits) {
+            ArticleRow row = rows.get(hit.id);
+            if (row != null) {
+                listing.add(row, hit.score, texts.get(hit.id));
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * Searches with the query language of ArticleQuery, e.g.
+     * title:"eclipse setup" AND (author:smith OR author:jones) NOT level:expert
+     */
+    public String getArticlesByQueryAsString(String query) throws Exception {
+        if (query == null || query.trim().isEmpty()) {
+            return "No search phrase provided.";
+        }
+        ArticleQuery.Node plan;
+        try {
+            plan = ArticleQuery.parse(query);
+        } catch (IllegalArgumentException e) {
+            return "Invalid search query: " + e.getMessage();
+        }
+        return queryCache().get("query:" + query.trim(), row -> plan.matches(row, textMatcher()),
+                () -> loadArticlesByPlan("Articles matching query:\n", plan).toString());
+    }
+
+    /**
+     * The listing of getArticlesByQueryAsString as rows, not cached, for ShardedArticleStore to merge
+     */
+    ArticleListing listArticlesByQuery(String query) throws Exception {
+        if (query == null || query.trim().isEmpty()) {
+            return ArticleListing.message("No search phrase provided.");
+        }
+        try {
+            return loadArticlesByPlan("Articles matching query:\n", ArticleQuery.parse(query));
+        } catch (IllegalArgumentException e) {
+            return ArticleListing.message("Invalid search query: " + e.getMessage());
+        }
+    }
+
+    // Lists the articles matching a query plan, with the words of its text terms highlighted
+    private ArticleListing loadArticlesByPlan(String heading, ArticleQuery.Node plan) throws Exception {
+        ArticleListing listing = new ArticleListing(heading, "No articles found for the specified search terms.", false);
+        addArticlesById(listing, plan.evaluate(new QueryCatalog(), null), ArticleQuery.highlightTerms(plan));
+        return listing;
+    }
+
+    /**
+     * Searches with several filters at once, e.g. beginner articles about Eclipse in group cse360,
+     * answered by intersecting the ID sets of the filters instead of one scan per filter
+     */
+    public String search(SearchCriteria criteria) throws Exception {
+        if (criteria == null || (criteria.isEmpty() && criteria.getVisibleGroups() == null)) {
+            return getAllArticlesAsString();
+        }
+        ArticleQuery.Node plan = criteria.toPlan();
+        return queryCache().get("criteria:" + criteria, row -> plan.matches(row, textMatcher()),
+                () -> loadArticlesByPlan("Articles matching all criteria:\n", plan).toString());
+    }
+
+    /**
+     * The listing of search as rows, not cached, for ShardedArticleStore to merge
+     */
+    ArticleListing listArticles(SearchCriteria criteria) throws Exception {
+        if (criteria == null || (criteria.isEmpty() && criteria.getVisibleGroups() == null)) {
+            return listAllArticles();
+        }
+        return loadArticlesByPlan("Articles matching all criteria:\n", criteria.toPlan());
+    }
+
+    /**
+     * Saves a search in the query language for the user, who is then notified of every article
+     * registered or updated to match it
+     */
+    public String saveSearch(String username, String query) throws Exception {
+        String error = savedSearchError(query);
+        if (error != null) {
+            return error;
+        }
+        int id = addSavedSearch(username, query.trim(), 0);
+        return "Saved search " + id + ": " + query.trim();
+    }
+
+    /**
+     * Why a query cannot be saved, or null if it can
+     */
+    static String savedSearchError(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return "No search phrase provided.";
+        }
+        try {
+            ArticleQuery.parse(query);
+        } catch (IllegalArgumentException e) {
+            return "Invalid search query: " + e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Stores a valid saved search under the given ID, or under a new one when id is 0, and returns
+     * the ID. ShardedArticleStore gives each search the same ID on every shard.
+     */
+    int addSavedSearch(String username, String query, int id) throws Exception {
+        standingQueries();  // Loads the saved searches before this one is added to them
+        String insert = id > 0 ? "INSERT INTO saved_searches (id, username, query) VALUES (?, ?, ?)"
+                : "INSERT INTO saved_searches (username, query) VALUES (?, ?)";
+        int[] savedId = {id};
+        inTransaction(() -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
+                int parameter = 1;
+                if (id > 0) {
+                    pstmt.setInt(parameter++, id);
+                }
+                pstmt.setString(parameter++, username);
+                pstmt.setString(parameter, query);
+                pstmt.executeUpdate();
+                if (id <= 0) {
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        keys.next();
+                        savedId[0] = keys.getInt(1);
+                    }
+                }
+                raiseGeneration();
+                afterCommit.add(() -> standingQueries.add(savedId[0], username, query));
+            }
+        });
+        return savedId[0];
+    }
+
+    /**
+     * Deletes one of the user's saved searches together with its pending notifications
+     */
+    public void deleteSavedSearch(String username, int searchId) throws Exception {
+        inTransaction(() -> {
+            try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM saved_searches WHERE id = ? AND username = ?")) {
+                pstmt.setInt(1, searchId);
+                pstmt.setString(2, username);
+                if (pstmt.executeUpdate() > 0) {
+                    raiseGeneration();
+                    afterCommit.add(() -> standingQueries.remove(searchId));
+                }
+            }
+        });
+    }
+
+    public String getSavedSearchesAsString(String username) throws Exception {
+        StringBuilder result = new StringBuilder("Saved searches:\n");
+        boolean found = false;
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT id, query FROM saved_searches WHERE username = ? ORDER BY id")) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    found = true;
+                    result.append("ID: ").append(rs.getInt("id")).append("\n")
+                        .append("Query: ").append(rs.getString("query")).append("\n")
+                        .append("\n");
+                }
+            }
+        }
+        return found ? result.toString() : "No saved searches.";
+    }
+
+    /**
+     * Returns the user's queue of articles that matched their saved searches, oldest first, and
+     * empties it
+     */
+    public String takeNotificationsAsString(String username) throws Exception {
+        StringBuilder result = new StringBuilder("New articles matching your saved searches:\n");
+        return takeNotifications(username, result) == 0 ? "No new articles for your saved searches." : result.toString();
+    }
+
+    /**
+     * Appends the user's queued notifications to result, oldest first, empties the queue and returns
+     * how many there were
+     */
+    int takeNotifications(String username, StringBuilder result) throws Exception {
+        String query = "SELECT n.id, s.query, a.id AS article_id, a.title FROM notifications n " +
+                "JOIN saved_searches s ON s.id = n.search_id JOIN articles a ON a.id = n.article_id " +
+                "WHERE n.username = ? ORDER BY n.id";
+        int[] last = {-1};
+        int[] count = {0};
+        inTransaction(() -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+                pstmt.setString(1, username);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        last[0] = rs.getInt("id");
+                        result.append("Search: ").append(rs.getString("query")).append("\n")
+                            .append("ID: ").append(rs.getInt("article_id")).append("\n")
+                            .append("Title: ").append(rs.getString("title")).append("\n")
+                            .append("\n");
+                        count[0]++;
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM notifications WHERE username = ? AND id <= ?")) {
+                pstmt.setString(1, username);
+                pstmt.setInt(2, last[0]);
+                pstmt.executeUpdate();
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * How the text terms of a cached plan are tested against a changed row: as substrings for the LIKE
+     * backend, which finds the phrase anywhere in a field, and as whole words for the others
+     */
+    private ArticleQuery.TextMatcher textMatcher() {
+        return searchBackend == SearchBackend.LIKE ? QueryResultCache::contains : ArticleQuery.WHOLE_WORDS;
+    }
+
+    /**
+     * Answers the terms of a query plan from the search backend, the level and group bitmaps and the
+     * keyword table
+     */
+    private class QueryCatalog implements ArticleQuery.Catalog {
+
+        // Largest ID set handed to the database as a filter instead of intersecting in Java
+        private static final int PROBE_LIMIT = 1000;
+
+        public int[] textIds(String phrase, ArticleSearchIndex.Field field) throws SQLException {
+            if (searchBackend == SearchBackend.LIKE) {
+                if (field == ArticleSearchIndex.Field.TITLE || field == ArticleSearchIndex.Field.AUTHORS) {
+                    String column = field.name().toLowerCase() + "_norm";
+                    return ids("SELECT id FROM articles WHERE " + column + " LIKE ? ESCAPE '\\' ORDER BY id", foldedPattern(phrase), null);
+                }
+                String column = field.name().toLowerCase();
+                return ids("SELECT id FROM articles WHERE " + column + " LIKE ? ESCAPE '\\' ORDER BY id", "%" + escapeLike(phrase) + "%", null);
+            }
+            return searchIds(phrase, field);
+        }
+
+        public int estimateText(String phrase, ArticleSearchIndex.Field field) {
+            // Only the in-process index knows its list lengths; otherwise assume text is selective
+            return searchBackend == SearchBackend.INDEX ? searchIndex.estimate(phrase, field) : 0;
+        }
+
+        public int[] columnIds(String column, String value, int[] within) throws SQLException {
+            if (ArticleBitmapIndex.covers(column)) {
+                return bitmapIndex().ids(column, value, within);
+            }
+            String select = "keyword".equals(column)
+                    ? "SELECT article_id FROM article_keywords WHERE keyword = ?"
+                    : "SELECT id FROM articles WHERE " + column + " = ?";
+            String idColumn = "keyword".equals(column) ? "article_id" : "id";
+            if (within != null && within.length <= PROBE_LIMIT) {
+                return ids(select + " AND " + idColumn + " = ANY(?) ORDER BY " + idColumn, value, within);
+            }
+            int[] ids = ids(select + " ORDER BY " + idColumn, value, null);
+            return within == null ? ids : ArticleSearchIndex.intersect(within, ids);
+        }
+
+        public int[] anyColumnIds(String column, List<String> values, int[] within) throws SQLException {
+            if (ArticleBitmapIndex.covers(column)) {
+                return bitmapIndex().anyIds(column, values, within);
+            }
+            int[] ids = new int[0];
+            for (String value : values) {
+                ids = ArticleSearchIndex.union(ids, columnIds(column, value, within));
+            }
+            return ids;
+        }
+
+        public int countColumn(String column, String value) throws SQLException {
+            if (ArticleBitmapIndex.covers(column)) {
+                return bitmapIndex().count(column, value);
+            }
+            String count = "keyword".equals(column)
+                    ? "SELECT COUNT(*) FROM article_keywords WHERE keyword = ?"
+                    : "SELECT COUNT(*) FROM articles WHERE " + column + " = ?";
+            try (PreparedStatement statement = connection.prepareStatement(count)) {
+                statement.setString(1, value);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getInt(1) : 0;
+                }
+            }
+        }
+
+        public int[] allIds() throws SQLException {
+            return bitmapIndex().allIds();
+        }
+    }
+
+    /**
+     * Returns up to limit completions of the prefix, most used first. Kind is "title" for words of
+     * titles, "author" for author names or "keyword" for keywords.
+     */
+    public List<String> getSuggestions(String kind, String prefix, int limit) throws SQLException {
+        ArticleSuggester.Kind trie;
+        switch (kind) {
+        case "title": trie = ArticleSuggester.Kind.TITLE_WORD; break;
+        case "author": trie = ArticleSuggester.Kind.AUTHOR; break;
+        case "keyword": trie = ArticleSuggester.Kind.KEYWORD; break;
+        default: throw new IllegalArgumentException("Unknown suggestion kind: " + kind);
+        }
+        return suggester().complete(trie, prefix, limit);
+    }
+
+    /**
+     * Builds the in-memory search structures now instead of on the first search
+     */
+    public void warmUp() throws SQLException {
+        searchIndex();
+        suggester();
+        bitmapIndex();
+    }
+
+    /**
+     * Counts the articles matching the query per keyword, level and group. The matches are read in
+     * one pass joined with their keywords, so the counts for every refinement come from one query.
+     */
+    Map<String, Map<String, Integer>> getFacets(String query) throws Exception {
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        facets.put("keyword", new HashMap<>());
+        facets.put("level", new HashMap<>());
+        facets.put("group", new HashMap<>());
+        int[] ids = ArticleQuery.parse(query).evaluate(new QueryCatalog(), null);
+        if (ids.length == 0) {
+            return facets;
+        }
+        Integer[] boxed = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = ids[i];
+        }
+        String sql = "SELECT a.id, a.level, a.systemInfo, k.keyword FROM articles a " +
+                "LEFT JOIN article_keywords k ON k.article_id = a.id WHERE a.id = ANY(?) ORDER BY a.id";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setObject(1, boxed);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int lastId = -1;
+                while (resultSet.next()) {
+                    int id = resultSet.getInt(1);
+                    if (id != lastId) {  // One row per keyword, but each article counts once per level and group
+                        facets.get("level").merge(String.valueOf(resultSet.getString(2)), 1, Integer::sum);
+                        facets.get("group").merge(String.valueOf(resultSet.getString(3)), 1, Integer::sum);
+                        lastId = id;
+                    }
+                    if (resultSet.getString(4) != null) {
+                        facets.get("keyword").merge(resultSet.getString(4), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return facets;
+    }
+
+    /**
+     * Lists the facet counts of a query, largest first, as refinements the user can add to it
+     */
+    public String getFacetsAsString(String query) throws Exception {
+        if (query == null || query.trim().isEmpty()) {
+            return "No search phrase provided.";
+        }
+        try {
+            return formatFacets(getFacets(query));
+        } catch (IllegalArgumentException e) {
+            return "Invalid search query: " + e.getMessage();
+        }
+    }
+
+    static String formatFacets(Map<String, Map<String, Integer>> facets) {
+        StringBuilder result = new StringBuilder("Refine the search:\n");
+        for (Map.Entry<String, Map<String, Integer>> facet : facets.entrySet()) {
+            List<Map.Entry<String, Integer>> counts = new ArrayList<>(facet.getValue().entrySet());
+            counts.sort((a, b) -> b.getValue() - a.getValue());
+            for (Map.Entry<String, Integer> count : counts.subList(0, Math.min(FACET_LIMIT, counts.size()))) {
+                String value = count.getKey().contains(" ") ? "\"" + count.getKey() + "\"" : count.getKey();
+                result.append("  ").append(facet.getKey()).append(":").append(value)
+                .append(" (").append(count.getValue()).append(")\n");
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the search index of this database, building it from the table on first use
+     */
+    ArticleSearchIndex searchIndex() throws SQLException {
+        syncWithDatabase();
+        searchIndex.ensureBuilt(connection);
+        return searchIndex;
+    }
+
+    // Autocomplete tries of this database, built from the table on first use
+    private ArticleSuggester suggester() throws SQLException {
+        syncWithDatabase();
+        suggester.ensureBuilt(connection);
+        return suggester;
+    }
+
+    // Level and group bitmaps of this database, built from the table on first use
+    private ArticleBitmapIndex bitmapIndex() throws SQLException {
+        syncWithDatabase();
+        bitmapIndex.ensureBuilt(connection);
+        return bitmapIndex;
+    }
+
+    // Saved searches of this database, loaded from the table on first use
+    private StandingQueries standingQueries() throws SQLException {
+        syncWithDatabase();
+        standingQueries.ensureBuilt(connection);
+        return standingQueries;
+    }
+
+    // Search result cache of this database, emptied first if another process changed the articles
+    private QueryResultCache queryCache() throws SQLException {
+        syncWithDatabase();
+        return queryCache;
+    }
+
+    // "View more" cache of this database, emptied first if another process changed the articles
+    private ArticleDetailCache detailCache() throws SQLException {
+        syncWithDatabase();
+        return detailCache;
+    }
+
+    /**
+     * Returns the sorted IDs of articles whose field contains the phrase as whole words, asking the
+     * selected search backend. Empty when nothing matches, and always for the LIKE backend, whose
+     * searches only scan with LIKE.
+     */
+    private int[] searchIds(String phrase, ArticleSearchIndex.Field field) throws SQLException {
+        List<String> words = ArticleSearchIndex.tokenize(phrase);
+        if (words.isEmpty()) {
+            return new int[0];
+        }
+        switch (searchBackend) {
+        case INDEX:
+            return searchIndex().search(phrase, field);
+        case H2_FULLTEXT:
+            // FT_SEARCH_DATA finds rows with all the words in any indexed column
+            return filterMatches(fullTextKeys("SELECT KEYS FROM FT_SEARCH_DATA(?, 0, 0)", String.join(" ", words)), phrase, field);
+        case LUCENE:
+            return filterMatches(fullTextKeys("SELECT KEYS FROM FTL_SEARCH_DATA(?, 0, 0)",
+                    field.name() + ":\"" + String.join(" ", words) + "\""), phrase, field);
+        default:
+            return new int[0];
+        }
+    }
+
+    /**
+     * Sorted IDs of the articles a title, author or abstract search lists: those whose column matches the
+     * LIKE pattern, the substring search these methods have always made, together with those in which
+     * the search backend finds the phrase as whole words. Only when neither finds anything are the words
+     * looked up with a few typos in the term dictionary of the in-process index, e.g. "Eclpise" finds
+     * "Eclipse", so a misspelling never hides what was typed correctly.
+     */
+    private int[] textSearchIds(String phrase, ArticleSearchIndex.Field field, String column, String pattern) throws SQLException {
+        if (searchBackend == SearchBackend.LIKE) {
+            return likeIds(column, pattern, null);
+        }
+        // The term dictionary narrows the rows the LIKE has to check, unless the phrase has no word to look up
+        int[] candidates = searchIndex().substringCandidates(phrase, field);
+        int[] ids = candidates == null || candidates.length > 0 ? likeIds(column, pattern, candidates) : candidates;
+        ids = ArticleSearchIndex.union(searchIds(phrase, field), ids);
+        return ids.length > 0 ? ids : searchIndex().searchFuzzy(phrase, field);
+    }
+
+    // Sorted IDs of the articles whose column matches the LIKE pattern, among the candidates unless null
+    private int[] likeIds(String column, String pattern, int[] candidates) throws SQLException {
+        String query = "SELECT id FROM articles WHERE " + column + " LIKE ? ESCAPE '\\'"
+                + (candidates == null ? "" : " AND id = ANY(?)") + " ORDER BY id";
+        return ids(query, pattern, candidates);
+    }
+
+    // Runs an ID query with an optional string parameter and an optional ID array parameter
+    private int[] ids(String query, String value, int[] within) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            int parameter = 1;
+            if (value != null) {
+                statement.setString(parameter++, value);
+            }
+            if (within != null) {
+                Integer[] boxed = new Integer[within.length];
+                for (int i = 0; i < within.length; i++) {
+                    boxed[i] = within[i];
+                }
+                statement.setObject(parameter, boxed);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getInt(1));
+                }
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Runs an H2 full-text search and returns the article IDs it found
+    private int[] fullTextKeys(String query, String text) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, text);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Object[] keys = (Object[]) resultSet.getArray("KEYS").getArray();
+                    ids.add(Integer.parseInt(String.valueOf(keys[0])));
+                }
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    // Keeps the candidates whose field holds the phrase as consecutive words, the same test the
+    // in-process index applies, so every backend returns the same articles
+    private int[] filterMatches(int[] candidates, String phrase, ArticleSearchIndex.Field field) throws SQLException {
+        if (candidates.length == 0) {
+            return candidates;
+        }
+        Integer[] boxed = new Integer[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            boxed[i] = candidates[i];
+        }
+        String column = field.name().toLowerCase();
+        String query = "SELECT id, " + column + " FROM articles WHERE id = ANY(?) ORDER BY id";
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setObject(1, boxed);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    if (ArticleSearchIndex.matches(resultSet.getString(2), phrase)) {
+                        ids.add(resultSet.getInt(1));
+                    }
+                }
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Columns of the articles table that make up an ArticleRow
+    private static final String ROW_COLUMNS = "id, title, authors, abstract, keywords, level, identifier, systemInfo";
+
+    /**
+     * Adds the given articles to the listing in ID order with their title, authors and abstract, as
+     * the search methods list them. When terms are given and the search index is built each abstract
+     * is cut to a snippet around their words, which are highlighted. Article text is escaped with
+     * ArticleSearchIndex.escapeMarkup, so the listing is highlighted text even without terms.
+     */
+    private void addArticlesById(ArticleListing listing, int[] ids, String terms) throws SQLException {
+        if (ids.length == 0) {
+            return;
+        }
+        Integer[] boxed = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = ids[i];
+        }
+        String query = "SELECT " + ROW_COLUMNS + " FROM articles WHERE id = ANY(?) ORDER BY id";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setObject(1, boxed);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    listing.add(ArticleRow.fromResultSet(resultSet),
+                            "Title: " + ArticleSearchIndex.escapeMarkup(resultSet.getString("title")) + "\n"
+                            + "Authors: " + ArticleSearchIndex.escapeMarkup(resultSet.getString("authors")) + "\n"
+                            + "Abstract: " + abstractSnippet(resultSet.getInt("id"), resultSet.getString("abstract"), terms) + "\n"
+                            + "\n");
+                }
+            }
+        }
+    }
+
+    // The abstract, or its snippet around the terms when they are given and the index can supply it,
+    // escaped as highlighted text either way
+    private String abstractSnippet(int id, String abstractText, String terms) {
+        String snippet = terms == null || !searchIndex.isBuilt() ? null : searchIndex.snippet(id, abstractText, terms);
+        return snippet == null ? ArticleSearchIndex.escapeMarkup(abstractText) : snippet;
     }
 
-    
     public String getMoreInfoForArticleAsString(int id, boolean canViewBody) throws Exception {
+        if (canViewBody) {
+            // Decrypted bodies stay out of the shared cache; only DecryptedBodyCache holds plaintext
+            return loadMoreInfoForArticleAsString(id, true);
+        }
+        String cached = detailCache().get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = detailCache.generation();  // An invalidation during the load discards it
+        String details = loadMoreInfoForArticleAsString(id, false);
+        if (details.startsWith("View More Article:")) {
+            detailCache.put(id, details, loadGeneration);  // Only real articles are cached, not "not found"
+        }
+        return details;
+    }
+
+    /**
+     * Returns statistics of the "view more" cache, such as its hit ratio and evictions
+     */
+    ArticleDetailCache getDetailCache() {
+        return detailCache;
+    }
+
+    /**
+     * Returns statistics of the search result cache
+     */
+    QueryResultCache getQueryCache() {
+        return queryCache;
+    }
+
+    private String loadMoreInfoForArticleAsString(int id, boolean canViewBody) throws Exception {
         StringBuilder query = new StringBuilder("SELECT * FROM articles WHERE id = ? ");
         boolean found = false;
         StringBuilder result = new StringBuilder("View More Article:\n");
@@ -526,7 +1884,7 @@ class Article {
                 try (ResultSet resultSet = statement.executeQuery()) {
                     while (resultSet.next()) {
                         found = true;
-                        String decryptedBody = decryptField(resultSet.getString("body"), String.valueOf(resultSet.getInt("id")));
+                        String decryptedBody = decryptBody(resultSet.getInt("id"), resultSet.getString("body"), String.valueOf(resultSet.getInt("id")));
 
 
                         result.append("ID: ").append(resultSet.getInt("id")).append("\n")
@@ -575,22 +1933,23 @@ class Article {
 	 * Deletes an article from the database based on its ID
 	 */
 	public void deleteArticle(int articleId) throws Exception {
-	    // SQL query to check if the article exists
-	    String query = "SELECT COUNT(*) FROM articles WHERE id = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setInt(1, articleId);
-	        ResultSet rs = pstmt.executeQuery();
-	        if (rs.next() && rs.getInt(1) > 0) {
-	            // SQL statement to delete the article by ID
-	            String deleteSQL = "DELETE FROM articles WHERE id = ?";
-	            try (PreparedStatement deletePstmt = connection.prepareStatement(deleteSQL)) {
-	                deletePstmt.setInt(1, articleId);
-	                deletePstmt.executeUpdate();
-	                System.out.println("Article with ID '" + articleId + "' has been deleted.");
+	    try {
+	        inTransaction(() -> {
+	            // Check if the article exists, keeping its row for cache invalidation
+	            ArticleRow before = loadRow(articleId);
+	            if (before != null) {
+	                // SQL statement to delete the article by ID
+	                String deleteSQL = "DELETE FROM articles WHERE id = ?";
+	                try (PreparedStatement deletePstmt = connection.prepareStatement(deleteSQL)) {
+	                    deletePstmt.setInt(1, articleId);
+	                    deletePstmt.executeUpdate();
+	                    articleChanged(before, null);
+	                    System.out.println("Article with ID '" + articleId + "' has been deleted.");
+	                }
+	            } else {
+	                System.out.println("No article found with the ID '" + articleId + "'.");
 	            }
-	        } else {
-	            System.out.println("No article found with the ID '" + articleId + "'.");
-	        }
+	        });
 	    } catch (SQLException e) {
 	        e.printStackTrace();
 	    }
@@ -601,26 +1960,38 @@ class Article {
 	 * @param identifier The identifier of the articles to delete.
 	 */
 	public void deleteArticlesByIdentifier(String identifier) throws Exception {
-	    // SQL query to check if any articles exist with the given identifier
-	    String query = "SELECT COUNT(*) FROM articles WHERE identifier = ?";
-
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, identifier);
-	        ResultSet rs = pstmt.executeQuery();
-
-	        // Check if there are articles with the specified identifier
-	        if (rs.next() && rs.getInt(1) > 0) {  
-	            // SQL statement to delete articles by identifier
-	            String deleteSQL = "DELETE FROM articles WHERE identifier = ?";
-	            try (PreparedStatement deletePstmt = connection.prepareStatement(deleteSQL)) {
-	                deletePstmt.setString(1, identifier);
-	                int rowsAffected = deletePstmt.executeUpdate();
-
-	                System.out.println(rowsAffected + " article(s) with identifier '" + identifier + "' have been deleted.");
+	    // SQL query to find the articles with the given identifier
+	    String query = "SELECT id, title, authors, abstract, keywords, level, identifier, systemInfo FROM articles WHERE identifier = ?";
+
+	    try {
+	        inTransaction(() -> {
+	            List<ArticleRow> rows = new ArrayList<>();
+	            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+	                pstmt.setString(1, identifier);
+	                try (ResultSet rs = pstmt.executeQuery()) {
+	                    while (rs.next()) {
+	                        rows.add(ArticleRow.fromResultSet(rs));
+	                    }
+	                }
 	            }
-	        } else {
-	            System.out.println("No articles found with the identifier '" + identifier + "'.");
-	        }
+
+	            // Check if there are articles with the specified identifier
+	            if (!rows.isEmpty()) {  
+	                // SQL statement to delete articles by identifier
+	                String deleteSQL = "DELETE FROM articles WHERE identifier = ?";
+	                try (PreparedStatement deletePstmt = connection.prepareStatement(deleteSQL)) {
+	                    deletePstmt.setString(1, identifier);
+	                    int rowsAffected = deletePstmt.executeUpdate();
+	                    for (ArticleRow row : rows) {
+	                        articleChanged(row, null);
+	                    }
+
+	                    System.out.println(rowsAffected + " article(s) with identifier '" + identifier + "' have been deleted.");
+	                }
+	            } else {
+	                System.out.println("No articles found with the identifier '" + identifier + "'.");
+	            }
+	        });
 	    } catch (SQLException e) {
 	        // Handle any SQL exceptions
 	        System.err.println("SQL error occurred: " + e.getMessage());
@@ -636,58 +2007,133 @@ class Article {
 	        articleToUpdate.systemInfo = "general";  // Set default to "general" if null
 	    }
 	    // Encrypt the article body using the author's name as part of the initialization vector
-	    String encryptedBody = Base64.getEncoder().encodeToString(
-	            encryptionHelper.encrypt(articleToUpdate.body.getBytes(), EncryptionUtils.getInitializationVector(articleToUpdate.authors.toCharArray()))
-	    );
-
-	    // SQL statement to update an existing article
-	    
-	    String updateArticle = "UPDATE articles SET title = ?, authors = ?, abstract = ?, keywords = ?, body = ?, references = ?, level = ?, identifier = ?, systemInfo = ? WHERE id = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(updateArticle)) {
-	        pstmt.setString(1, articleToUpdate.title);
-	        pstmt.setString(2, articleToUpdate.authors);
-	        pstmt.setString(3, articleToUpdate.abstractText);
-	        pstmt.setString(4, articleToUpdate.keywords);
-	        pstmt.setString(5, encryptedBody);
-	        pstmt.setString(6, articleToUpdate.references);
-	        pstmt.setString(7, articleToUpdate.level);           // Update field for level
-	        pstmt.setString(8, articleToUpdate.identifier);      // Update field for identifier
-	        pstmt.setString(9, articleToUpdate.systemInfo);      // Update field for system information
-	        pstmt.setInt(10, articleId); // Ensure you set this parameter
-	        pstmt.executeUpdate();
-	    }
+	    String encryptedBody = encryptField(articleToUpdate.body, articleToUpdate.authors);
+
+	    // The row, its body tokens, keywords and notifications are committed together
+	    inTransaction(() -> {
+	        // Row before the update, so caches can drop results that contained the old values
+	        ArticleRow before = loadRow(articleId);
+
+	        // SQL statement to update an existing article
+	        String updateArticle = "UPDATE articles SET title = ?, authors = ?, abstract = ?, keywords = ?, body = ?, references = ?, level = ?, identifier = ?, systemInfo = ?, title_norm = ?, authors_norm = ? WHERE id = ?";
+	        try (PreparedStatement pstmt = connection.prepareStatement(updateArticle)) {
+	            pstmt.setString(1, articleToUpdate.title);
+	            pstmt.setString(2, articleToUpdate.authors);
+	            pstmt.setString(3, articleToUpdate.abstractText);
+	            pstmt.setString(4, articleToUpdate.keywords);
+	            pstmt.setString(5, encryptedBody);
+	            pstmt.setString(6, articleToUpdate.references);
+	            pstmt.setString(7, articleToUpdate.level);           // Update field for level
+	            pstmt.setString(8, articleToUpdate.identifier);      // Update field for identifier
+	            pstmt.setString(9, articleToUpdate.systemInfo);      // Update field for system information
+	            pstmt.setString(10, fold(articleToUpdate.title));
+	            pstmt.setString(11, fold(articleToUpdate.authors));
+	            pstmt.setInt(12, articleId); // Ensure you set this parameter
+	            pstmt.executeUpdate();
+	        }
+	        if (before != null) {
+	            writeBodyTokens(articleId, articleToUpdate.body, true);
+	            articleChanged(before, ArticleRow.fromArticle(articleId, articleToUpdate));
+	        }
+	    });
 	}
 
 
 
+	/**
+	 * Updates several articles in one transaction, keyed by article ID
+	 */
+	public void updateArticles(Map<Integer, Article> articlesToUpdate) throws Exception {
+		inTransaction(() -> {
+			for (Map.Entry<Integer, Article> entry : articlesToUpdate.entrySet()) {
+				updateArticle(entry.getKey(), entry.getValue());
+			}
+		});
+	}
+
+	/**
+	 * Deletes several articles by ID in one batched statement and a single commit
+	 */
+	public void deleteArticles(List<Integer> articleIds) throws Exception {
+		String deleteSQL = "DELETE FROM articles WHERE id = ?";
+		inTransaction(() -> {
+			List<ArticleRow> rows = new ArrayList<>();
+			try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL)) {
+				for (int articleId : articleIds) {
+					ArticleRow before = loadRow(articleId);
+					if (before != null) {
+						rows.add(before);
+					}
+					pstmt.setInt(1, articleId);
+					pstmt.addBatch();
+				}
+				pstmt.executeBatch();
+			}
+			for (ArticleRow row : rows) {
+				articleChanged(row, null);
+			}
+		});
+	}
+
 	/**
 	 * Clears all articles from the database
 	 */
 	public void clearDatabase() throws Exception {
 		// SQL statement to delete all articles
 		String clearSQL = "DELETE FROM articles";
-		try (Statement stmt = connection.createStatement()) {
-			int rowsAffected = stmt.executeUpdate(clearSQL);
-			System.out.println("Cleared " + rowsAffected + " articles from the database.");
+		try {
+			inTransaction(() -> {
+				try (Statement stmt = connection.createStatement()) {
+					int rowsAffected = stmt.executeUpdate(clearSQL);
+					allArticlesChanged();
+					System.out.println("Cleared " + rowsAffected + " articles from the database.");
+				}
+			});
 		} catch (SQLException e) {
 			System.err.println("Error clearing the database: " + e.getMessage());
 		}
 	}
 	
+    /**
+     * Encrypting code, the counterpart of decryptField. Also used to produce the stored
+     * body format when writing backup files outside the database
+     */
+    String encryptField(String plainField, String ivSource) throws Exception {
+		return Base64.getEncoder().encodeToString(encryptionHelper.encrypt(
+	            plainField.getBytes(),
+	            EncryptionUtils.getInitializationVector(ivSource.toCharArray())
+				));
+    }
+
     /** 
      * Decrypting code
      */
-    private String decryptField(String encryptedField, String ivSource) throws Exception {
-		return new String(encryptionHelper.decrypt(
+    private byte[] decryptField(String encryptedField, String ivSource) throws Exception {
+		return encryptionHelper.decrypt(
 	            Base64.getDecoder().decode(encryptedField),
 	            EncryptionUtils.getInitializationVector(ivSource.toCharArray())
-				));
+				);
+    }
+
+    /**
+     * Decrypts an article body, reusing this session's cached plaintext when the stored
+     * ciphertext has not changed since it was last decrypted
+     */
+    private String decryptBody(int articleId, String encryptedField, String ivSource) throws Exception {
+		byte[] plain = bodyCache.get(articleId, encryptedField, ivSource);
+		if (plain == null) {
+			plain = decryptField(encryptedField, ivSource);
+			bodyCache.put(articleId, encryptedField, ivSource, plain);
+		}
+		String body = new String(plain);
+		Arrays.fill(plain, (byte) 0);
+		return body;
     }
     
     /**
      * Returns the body of the article with the given ID
      */
-    String getBody(int articleId) throws Exception {
+    public String getBody(int articleId) throws Exception {
         // SQL query to retrieve the body of the article by ID
         String query = "SELECT body FROM articles WHERE id = ?";
         String result = "";
@@ -751,41 +2197,61 @@ class Article {
         }
     }
 
-    // Restore articles from a file
+    // Restore articles from a file. The clear and every insert run in one transaction, so a failure
+    // part way through leaves the previous articles in place instead of an empty or half-restored table
     public void restoreArticles(String fileName) throws Exception {
-        // Clear the database first
-        clearDatabase();
-
-        String sql = "INSERT INTO articles (id, title, authors, abstract, keywords, body, references, level, identifier, systemInfo) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName));
-             PreparedStatement pstmt = connection.prepareStatement(sql)) {
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                String systemInfo = data[9];
-                if (systemInfo == null || systemInfo.trim().isEmpty()) {
-                    systemInfo = "general";  // Set default to "general"
-                }
-                
-                for (String d: data) {
-                	System.out.println(d);
-//                	System.out.println(data[8]);
+        String sql = "INSERT INTO articles (id, title, authors, abstract, keywords, body, references, level, identifier, systemInfo, title_norm, authors_norm) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String keywordSql = "INSERT INTO article_keywords (article_id, keyword) VALUES (?, ?)";
+        inTransaction(() -> {
+            try (BufferedReader reader = new BufferedReader(new FileReader(fileName));
+                 Statement stmt = connection.createStatement();
+                 PreparedStatement pstmt = connection.prepareStatement(sql);
+                 PreparedStatement keywordStmt = connection.prepareStatement(keywordSql)) {
+
+                // Clear the database first
+                stmt.executeUpdate("DELETE FROM articles");
+                allArticlesChanged();
+
+                int maxId = 0;
+                int pending = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] data = line.split(",");
+                    String systemInfo = data[9];
+                    if (systemInfo == null || systemInfo.trim().isEmpty()) {
+                        systemInfo = "general";  // Set default to "general"
+                    }
+
+                    int id = Integer.parseInt(data[0]);
+                    maxId = Math.max(maxId, id);
+                    pstmt.setInt(1, id);
+                    pstmt.setString(2, data[1]);
+                    pstmt.setString(3, data[2]);
+                    pstmt.setString(4, data[3]);
+                    pstmt.setString(5, data[4]);
+                    pstmt.setString(6, data[5]);
+                    pstmt.setString(7, data[6]);
+                    pstmt.setString(8, data[7]);
+                    pstmt.setString(9, data[8]);
+                    pstmt.setString(10, systemInfo);
+                    pstmt.setString(11, fold(data[1]));
+                    pstmt.setString(12, fold(data[2]));
+                    pstmt.addBatch();
+                    addKeywordRows(keywordStmt, id, data[4]);
+                    if (++pending == RESTORE_BATCH_SIZE) {
+                        pstmt.executeBatch();
+                        keywordStmt.executeBatch();
+                        pending = 0;
+                    }
                 }
-                
-                pstmt.setInt(1, Integer.parseInt(data[0]));
-                pstmt.setString(2, data[1]);
-                pstmt.setString(3, data[2]);
-                pstmt.setString(4, data[3]);
-                pstmt.setString(5, data[4]);
-                pstmt.setString(6, data[5]);
-                pstmt.setString(7, data[6]);
-                pstmt.setString(8, data[7]);
-                pstmt.setString(9, data[8]);
-                pstmt.setString(10, systemInfo);
-                pstmt.executeUpdate();
+                pstmt.executeBatch();
+                keywordStmt.executeBatch();
+                fillBodyTokenTable();  // The backup holds encrypted bodies, so they are tokenized from the table
+
+                // Continue numbering new articles after the highest restored ID
+                stmt.execute("ALTER TABLE articles ALTER COLUMN id RESTART WITH " + Math.max(maxId + 1, idRangeStart));
             }
-        }
+        });
     }
     
     public void backupArticlesByGroup(String fileName, String groupName) throws Exception {
@@ -817,10 +2283,37 @@ class Article {
         }
     }
 
+	/**
+	 * ID of this connection's H2 session, which another connection can pass to cancelSession
+	 */
+	public int getSessionId() throws SQLException {
+		try (Statement stmt = connection.createStatement();
+			 ResultSet rs = stmt.executeQuery("SELECT SESSION_ID()")) {
+			return rs.next() ? rs.getInt(1) : -1;
+		}
+	}
+
+	/**
+	 * Cancels the statement another session is running, e.g. a search the user has typed past.
+	 * The search fails with a cancellation error instead of finishing its scan. Returns whether
+	 * the session was found.
+	 */
+	public boolean cancelSession(int sessionId) throws SQLException {
+		try (PreparedStatement pstmt = connection.prepareStatement("CALL CANCEL_SESSION(?)")) {
+			pstmt.setInt(1, sessionId);
+			try (ResultSet rs = pstmt.executeQuery()) {
+				return rs.next() && rs.getBoolean(1);
+			}
+		}
+	}
+
 	/**
 	 * Closes the database connection and statement resources
 	 */
 	public void closeConnection() {
+		if (bodyCache != null) {
+			bodyCache.clear();  // Zero this session's decrypted bodies
+		}
 		try { 
 			if (statement != null) statement.close(); 
 		} catch (SQLException se2) { 
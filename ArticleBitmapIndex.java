@@ -0,0 +1,212 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p> ArticleBitmapIndex Class </p>
+ *
+ * <p> Description: In-memory bitmap index over the two low-cardinality article columns, level and
+ * systemInfo (the group). Each distinct value has an IdBitmap of the IDs of the articles holding it, so a
+ * level or group filter is one bitmap, a set of visible groups is the OR of their bitmaps, and a level
+ * within the visible groups is an AND of the two. Text search results, which are sorted ID arrays, are
+ * filtered by probing the bitmap for each of their IDs instead of running an equality query. Counts for
+ * query planning are the bitmap cardinalities. </p>
+ *
+ * <p> One index is shared by every Article connected to the same database in this process. It is built
+ * from the table on first use and then kept current by Article, which passes the before and after row of
+ * every committed change. When the ArticleGeneration counter shows that another process wrote to the
+ * database through H2 server mode, Article drops the index and it is rebuilt on next use. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ArticleBitmapIndex {
+
+	private static final Map<String, ArticleBitmapIndex> INDEXES = new HashMap<>();
+
+	private final Map<String, IdBitmap> levels = new HashMap<>();
+	private final Map<String, IdBitmap> groups = new HashMap<>();
+	private IdBitmap all = new IdBitmap();
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private boolean built = false;
+
+	/**
+	 * Returns the index shared by every Article connected to the given database URL
+	 */
+	static synchronized ArticleBitmapIndex forDatabase(String dbUrl) {
+		return INDEXES.computeIfAbsent(dbUrl, url -> new ArticleBitmapIndex());
+	}
+
+	/**
+	 * Whether the index answers equality filters on the column
+	 */
+	static boolean covers(String column) {
+		return "level".equals(column) || "systemInfo".equals(column);
+	}
+
+	/**
+	 * Builds the bitmaps from the articles table unless they are already built
+	 */
+	void ensureBuilt(Connection connection) throws SQLException {
+		lock.readLock().lock();
+		try {
+			if (built) {
+				return;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		lock.writeLock().lock();
+		try {
+			if (built) {
+				return;
+			}
+			clear();
+			try (Statement stmt = connection.createStatement();
+				 ResultSet rs = stmt.executeQuery("SELECT id, level, systemInfo FROM articles")) {
+				while (rs.next()) {
+					add(rs.getInt(1), rs.getString(2), rs.getString(3));
+				}
+			}
+			built = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Applies one committed change; before is null for an insert and after is null for a delete
+	 */
+	void update(ArticleRow before, ArticleRow after) {
+		lock.writeLock().lock();
+		try {
+			if (!built) {
+				return;  // The build will read the committed table
+			}
+			if (before != null) {
+				remove(before.id, before.level, before.systemInfo);
+			}
+			if (after != null && after.id >= 0) {
+				add(after.id, after.level, after.systemInfo);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Forgets everything; the bitmaps are rebuilt from the table on next use
+	 */
+	void invalidate() {
+		lock.writeLock().lock();
+		try {
+			clear();
+			built = false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Sorted IDs of articles whose column equals the value, only among within unless it is null
+	 */
+	int[] ids(String column, String value, int[] within) {
+		lock.readLock().lock();
+		try {
+			IdBitmap bitmap = columns(column).get(value);
+			if (bitmap == null) {
+				return new int[0];
+			}
+			return within == null ? bitmap.toArray() : bitmap.intersect(within);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sorted IDs of articles whose column equals any of the values, the OR of their bitmaps, only
+	 * among within unless it is null
+	 */
+	int[] anyIds(String column, Collection<String> values, int[] within) {
+		lock.readLock().lock();
+		try {
+			IdBitmap union = new IdBitmap();
+			for (String value : values) {
+				IdBitmap bitmap = columns(column).get(value);
+				if (bitmap != null) {
+					union = union.or(bitmap);
+				}
+			}
+			return within == null ? union.toArray() : union.intersect(within);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	int count(String column, String value) {
+		lock.readLock().lock();
+		try {
+			IdBitmap bitmap = columns(column).get(value);
+			return bitmap == null ? 0 : bitmap.cardinality();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sorted IDs of every article
+	 */
+	int[] allIds() {
+		lock.readLock().lock();
+		try {
+			return all.toArray();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Map<String, IdBitmap> columns(String column) {
+		return "level".equals(column) ? levels : groups;
+	}
+
+	private void clear() {
+		levels.clear();
+		groups.clear();
+		all = new IdBitmap();
+	}
+
+	private void add(int id, String level, String systemInfo) {
+		all.add(id);
+		if (level != null) {
+			levels.computeIfAbsent(level, k -> new IdBitmap()).add(id);
+		}
+		if (systemInfo != null) {
+			groups.computeIfAbsent(systemInfo, k -> new IdBitmap()).add(id);
+		}
+	}
+
+	private void remove(int id, String level, String systemInfo) {
+		all.remove(id);
+		remove(levels, level, id);
+		remove(groups, systemInfo, id);
+	}
+
+	private static void remove(Map<String, IdBitmap> bitmaps, String value, int id) {
+		IdBitmap bitmap = value == null ? null : bitmaps.get(value);
+		if (bitmap == null) {
+			return;
+		}
+		bitmap.remove(id);
+		if (bitmap.isEmpty()) {
+			bitmaps.remove(value);
+		}
+	}
+}
@@ -0,0 +1,304 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p> ArticleClient Class </p>
+ *
+ * <p> Description: Thin client for the article service. It offers the same methods as the Article class,
+ * but every call is sent to an ArticleServer over a loopback socket instead of opening the H2 file, so
+ * any number of front-ends can share one database. When no server is running, the first client starts
+ * one inside its own process and later clients connect to it. </p>
+ *
+ * <p> A client opens its connection with the server token and the user signed in to this front-end, and
+ * the server decides what that user may see and change. If the connection breaks, for instance because
+ * the front-end that ran the server was closed, the client connects again, starting a new server when
+ * none is listening, and sends a read once more. A change is not sent again, since the server may have
+ * applied it before the connection broke, so it fails and the user can check and retry. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ArticleClient {
+
+	// Server started by this process when none was running, shared by every client in the process
+	private static ArticleServer localServer;
+
+	private final int port;
+	private final User user;    // Signed in to this front-end; the server works out its rights
+	private Socket socket;
+	private DataInputStream in;
+	private DataOutputStream out;
+
+	public ArticleClient(User user) {
+		this(ArticleProtocol.DEFAULT_PORT, user);
+	}
+
+	public ArticleClient(int port, User user) {
+		this.port = port;
+		this.user = user;
+	}
+
+	/**
+	 * Connects to the article server and signs in with the token and user, starting a server in this
+	 * process if none is listening
+	 */
+	public void connectToDatabase() throws SQLException {
+		try {
+			try {
+				open();
+			} catch (ConnectException e) {
+				startLocalServer(port);
+				open();
+			}
+			send(ArticleProtocol.AUTH, new Object[] { ArticleServer.token(), user });
+		} catch (IOException e) {
+			closeConnection();
+			throw new SQLException("Could not reach the article server: " + e.getMessage(), e);
+		} catch (SQLException e) {
+			closeConnection();  // The server refused the token
+			throw e;
+		}
+	}
+
+	private static synchronized void startLocalServer(int port) throws IOException {
+		if (localServer == null) {
+			ArticleServer server = new ArticleServer(port, Article.DB_URL);
+			try {
+				server.start();
+			} catch (BindException e) {
+				return;  // A front-end in another process started one first
+			}
+			localServer = server;
+		}
+	}
+
+	private void open() throws IOException {
+		socket = new Socket(ArticleProtocol.HOST, port);
+		socket.setTcpNoDelay(true);
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+
+	// Sends one request and waits for its result, connecting again if the connection broke
+	private synchronized Object call(byte op, Object... args) throws SQLException {
+		try {
+			return send(op, args);
+		} catch (IOException e) {
+			closeConnection();
+			connectToDatabase();
+			if (!ArticleProtocol.isRetryable(op)) {
+				throw new SQLException("The article server connection broke; the change may not have been applied: "
+						+ e.getMessage(), e);
+			}
+			try {
+				return send(op, args);
+			} catch (IOException retryFailure) {
+				throw new SQLException("Article server request failed: " + retryFailure.getMessage(), retryFailure);
+			}
+		}
+	}
+
+	// Writes one request and reads its response; IOException means the connection broke
+	private Object send(byte op, Object[] args) throws IOException, SQLException {
+		if (socket == null) {
+			throw new IOException("Not connected");
+		}
+		out.writeByte(op);
+		out.writeShort(args.length);
+		for (Object arg : args) {
+			ArticleProtocol.writeValue(out, arg);
+		}
+		out.flush();
+		if (in.readByte() == ArticleProtocol.ERROR) {
+			throw new SQLException(ArticleProtocol.readString(in));
+		}
+		try {
+			return ArticleProtocol.readValue(in);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SQLException("Article server request failed: " + e.getMessage(), e);
+		}
+	}
+
+	public void register(Article articleToAdd) throws SQLException {
+		call(ArticleProtocol.REGISTER, articleToAdd);
+	}
+
+	public boolean doesArticleExist(String title) {
+		try {
+			return (Boolean) call(ArticleProtocol.ARTICLE_EXISTS_BY_TITLE, title);
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	public boolean doesArticleExist(int id) {
+		try {
+			return (Boolean) call(ArticleProtocol.ARTICLE_EXISTS_BY_ID, id);
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	public boolean doesIdentifierExist(String identifier) {
+		try {
+			return (Boolean) call(ArticleProtocol.IDENTIFIER_EXISTS, identifier);
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	public String displayAllArticles() throws SQLException {
+		return (String) call(ArticleProtocol.DISPLAY_ALL);
+	}
+
+	public String getArticlesByGroupsAsString(List<String> groups) throws SQLException {
+		return (String) call(ArticleProtocol.BY_GROUPS, groups);
+	}
+
+	public String getArticlesByIdentifiersAsString(List<String> identifiers) throws SQLException {
+		return (String) call(ArticleProtocol.BY_IDENTIFIERS, identifiers);
+	}
+
+	public String getArticlesByContentLevelAsString(String selectedLevel) throws SQLException {
+		return (String) call(ArticleProtocol.BY_LEVEL, selectedLevel);
+	}
+
+	public String getArticlesByAuthorAsString(String author) throws SQLException {
+		return (String) call(ArticleProtocol.BY_AUTHOR, author);
+	}
+
+	public String getArticlesByTitleAsString(String phrases) throws SQLException {
+		return (String) call(ArticleProtocol.BY_TITLE, phrases);
+	}
+
+	public String getArticlesByAbstractAsString(String phrases) throws SQLException {
+		return (String) call(ArticleProtocol.BY_ABSTRACT, phrases);
+	}
+
+	public String getArticlesByQueryAsString(String query) throws SQLException {
+		return (String) call(ArticleProtocol.BY_QUERY, query);
+	}
+
+	public String getArticlesByBodyAsString(String words) throws SQLException {
+		return (String) call(ArticleProtocol.BY_BODY, words);
+	}
+
+	public String getArticlesByRelevanceAsString(String words, int limit) throws SQLException {
+		return (String) call(ArticleProtocol.BY_RELEVANCE, words, limit);
+	}
+
+	public String getFacetsAsString(String query) throws SQLException {
+		return (String) call(ArticleProtocol.FACETS, query);
+	}
+
+	public String search(SearchCriteria criteria) throws SQLException {
+		return (String) call(ArticleProtocol.SEARCH, criteria);
+	}
+
+	public String saveSearch(String query) throws SQLException {
+		return (String) call(ArticleProtocol.SAVE_SEARCH, query);
+	}
+
+	public void deleteSavedSearch(int searchId) throws SQLException {
+		call(ArticleProtocol.DELETE_SAVED_SEARCH, searchId);
+	}
+
+	public String getSavedSearchesAsString() throws SQLException {
+		return (String) call(ArticleProtocol.SAVED_SEARCHES);
+	}
+
+	public String takeNotificationsAsString() throws SQLException {
+		return (String) call(ArticleProtocol.NOTIFICATIONS);
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<String> getSuggestions(String kind, String prefix, int limit) throws SQLException {
+		return (List<String>) call(ArticleProtocol.SUGGEST, kind, prefix, limit);
+	}
+
+	public String getMoreInfoForArticleAsString(int id) throws SQLException {
+		return (String) call(ArticleProtocol.MORE_INFO, id);
+	}
+
+	public void deleteArticle(int articleId) throws SQLException {
+		call(ArticleProtocol.DELETE, articleId);
+	}
+
+	public void deleteArticlesByIdentifier(String identifier) throws SQLException {
+		call(ArticleProtocol.DELETE_BY_IDENTIFIER, identifier);
+	}
+
+	public void updateArticle(int articleId, Article articleToUpdate) throws SQLException {
+		call(ArticleProtocol.UPDATE, articleId, articleToUpdate);
+	}
+
+	public void clearDatabase() throws SQLException {
+		call(ArticleProtocol.CLEAR);
+	}
+
+	String getBody(int articleId) throws SQLException {
+		return (String) call(ArticleProtocol.GET_BODY, articleId);
+	}
+
+	@SuppressWarnings("unchecked")
+	public Set<String> getAllSystemInfo() throws SQLException {
+		return (Set<String>) call(ArticleProtocol.ALL_SYSTEM_INFO);
+	}
+
+	// Backup file names are resolved by the server inside its backups folder, ArticleServer.BACKUP_DIR
+	public void backupArticles(String fileName) throws SQLException {
+		call(ArticleProtocol.BACKUP, fileName);
+	}
+
+	public void restoreArticles(String fileName) throws SQLException {
+		call(ArticleProtocol.RESTORE, fileName);
+	}
+
+	public void backupArticlesByGroup(String fileName, String groupName) throws SQLException {
+		call(ArticleProtocol.BACKUP_BY_GROUP, fileName, groupName);
+	}
+
+	/**
+	 * ID of the database session serving this client, for cancelSession on another client
+	 */
+	public int getSessionId() throws SQLException {
+		return (Integer) call(ArticleProtocol.SESSION_ID);
+	}
+
+	/**
+	 * Cancels what the database session of another client is running. It must be called on a
+	 * different client, since a client waits for its own request to finish.
+	 */
+	public boolean cancelSession(int sessionId) throws SQLException {
+		return (Boolean) call(ArticleProtocol.CANCEL_SESSION, sessionId);
+	}
+
+	/**
+	 * Closes the connection to the server
+	 */
+	public void closeConnection() {
+		try {
+			if (socket != null) socket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		socket = null;
+	}
+}
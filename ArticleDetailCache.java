@@ -0,0 +1,141 @@
+package application;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p> ArticleDetailCache Class </p>
+ *
+ * <p> Description: Bounded least-recently-used cache of the text returned by
+ * Article.getMoreInfoForArticleAsString, keyed by article ID. Only the view with the body still
+ * encrypted is cached: decrypted bodies would sit here as Strings that can never be zeroed, so they
+ * are rebuilt on each request from the session's DecryptedBodyCache instead. The bound is the total size of the cached text rather than the number of entries, so a few
+ * very long articles cannot push memory use up. Article invalidates entries whenever an article
+ * is updated or deleted, and drops everything when the table is cleared or restored. </p>
+ *
+ * <p> One cache is shared by every Article connected to the same database in this process. When the
+ * ArticleGeneration counter shows that another process wrote to the database through H2 server mode,
+ * Article empties the cache. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ArticleDetailCache {
+
+	// Default budget: about 16 MB of cached text (two bytes per char)
+	static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+	private static final Map<String, ArticleDetailCache> CACHES = new HashMap<>();
+
+	private final long maxBytes;
+	private final LinkedHashMap<Integer, String> entries = new LinkedHashMap<>(256, 0.75f, true);  // Access order
+	private long currentBytes = 0;
+	private long generation = 0;  // Bumped by every invalidation, so details loaded before one are not cached
+
+	// Metrics
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long invalidations = 0;
+
+	ArticleDetailCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the cache shared by every Article connected to the given database URL
+	 */
+	static synchronized ArticleDetailCache forDatabase(String dbUrl) {
+		return CACHES.computeIfAbsent(dbUrl, url -> new ArticleDetailCache(DEFAULT_MAX_BYTES));
+	}
+
+	private static long sizeOf(String details) {
+		return 2L * details.length();
+	}
+
+	/**
+	 * Returns the cached details, or null on a miss
+	 */
+	synchronized String get(int articleId) {
+		String details = entries.get(articleId);
+		if (details == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return details;
+	}
+
+	/**
+	 * Returns the current generation; read it before loading details that will be passed to put
+	 */
+	synchronized long generation() {
+		return generation;
+	}
+
+	/**
+	 * Caches the details, evicting least recently used entries until the byte budget is met. Details
+	 * loaded before an invalidation that happened since loadGeneration are dropped, as they may be stale.
+	 */
+	synchronized void put(int articleId, String details, long loadGeneration) {
+		long size = sizeOf(details);
+		if (size > maxBytes || loadGeneration != generation) {
+			return;  // Larger than the whole cache, or loaded before a change to the table
+		}
+		String previous = entries.put(articleId, details);
+		if (previous != null) {
+			currentBytes -= sizeOf(previous);
+		}
+		currentBytes += size;
+
+		Iterator<Map.Entry<Integer, String>> eldest = entries.entrySet().iterator();
+		while (currentBytes > maxBytes && eldest.hasNext()) {
+			currentBytes -= sizeOf(eldest.next().getValue());
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes the cached details of one article
+	 */
+	synchronized void invalidate(int articleId) {
+		generation++;
+		String removed = entries.remove(articleId);
+		if (removed != null) {
+			currentBytes -= sizeOf(removed);
+			invalidations++;
+		}
+	}
+
+	/**
+	 * Removes every entry, used when the whole table is cleared or restored
+	 */
+	synchronized void invalidateAll() {
+		generation++;
+		invalidations += entries.size();
+		entries.clear();
+		currentBytes = 0;
+	}
+
+	synchronized double hitRatio() {
+		long requests = hits + misses;
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	synchronized long getHits() { return hits; }
+	synchronized long getMisses() { return misses; }
+	synchronized long getEvictions() { return evictions; }
+	synchronized long getInvalidations() { return invalidations; }
+	synchronized int size() { return entries.size(); }
+	synchronized long sizeInBytes() { return currentBytes; }
+
+	@Override
+	public synchronized String toString() {
+		return String.format("ArticleDetailCache[entries=%d, bytes=%d/%d, hitRatio=%.3f, hits=%d, misses=%d, evictions=%d, invalidations=%d]",
+				entries.size(), currentBytes, maxBytes, hitRatio(), hits, misses, evictions, invalidations);
+	}
+}
@@ -0,0 +1,108 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p> ArticleGeneration Class </p>
+ *
+ * <p> Description: Change counter of one database, kept in the one-row article_generation table. Every
+ * transaction that changes articles or saved searches raises the counter before it commits, so the
+ * counter tells every process that opens the file, including a second one connected through H2 server
+ * mode, whether the table changed since it last looked. </p>
+ *
+ * <p> The shared caches and indexes of a database in this process are kept current by Article with the
+ * changes made here, and this object remembers the counter value they describe. When a check finds a
+ * different value in the table, another process changed the database, and Article drops those structures
+ * so they are rebuilt from the table. Checks run at most once per CHECK_INTERVAL_MILLIS, so a change made
+ * elsewhere is seen within that interval while cache hits stay in memory. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ArticleGeneration {
+
+	// Longest time a change made by another process can go unnoticed, e.g. -Darticle.generation.check.millis=0
+	static final long CHECK_INTERVAL_MILLIS = Long.getLong("article.generation.check.millis", 100);
+
+	private static final Map<String, ArticleGeneration> GENERATIONS = new HashMap<>();
+
+	private long seen = -1;        // Counter value the shared structures describe; -1 before the first check
+	private long checkedAt = 0;    // System.nanoTime() of the last check
+	private boolean checked = false;
+
+	/**
+	 * Returns the counter shared by every Article connected to the given database URL
+	 */
+	static synchronized ArticleGeneration forDatabase(String dbUrl) {
+		return GENERATIONS.computeIfAbsent(dbUrl, url -> new ArticleGeneration());
+	}
+
+	/**
+	 * Creates the counter table with its one row unless it exists
+	 */
+	static void createTable(Statement statement) throws SQLException {
+		statement.execute("CREATE TABLE IF NOT EXISTS article_generation (" +
+				"id INT PRIMARY KEY, " +
+				"generation BIGINT NOT NULL)");
+		statement.execute("INSERT INTO article_generation (id, generation) " +
+				"SELECT 1, 0 WHERE NOT EXISTS (SELECT * FROM article_generation)");
+	}
+
+	/**
+	 * Raises the counter inside the open transaction and returns its new value. The row stays locked
+	 * until the transaction ends, so concurrent changes get consecutive values in commit order.
+	 */
+	static long raise(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.executeUpdate("UPDATE article_generation SET generation = generation + 1 WHERE id = 1");
+			return read(stmt);
+		}
+	}
+
+	private static long read(Statement stmt) throws SQLException {
+		try (ResultSet rs = stmt.executeQuery("SELECT generation FROM article_generation WHERE id = 1")) {
+			return rs.next() ? rs.getLong(1) : 0;
+		}
+	}
+
+	/**
+	 * Records that a transaction of this process committed the given value and its changes were applied
+	 * to the shared structures. They only describe it if they described the value before, otherwise a
+	 * change from elsewhere came in between and the next check drops them.
+	 */
+	synchronized void committed(long generation) {
+		if (seen == generation - 1) {
+			seen = generation;
+		}
+	}
+
+	/**
+	 * Reads the counter, unless it was read less than CHECK_INTERVAL_MILLIS ago, and returns whether it
+	 * differs from the value the shared structures describe. The caller then drops them; they are rebuilt
+	 * from a table at least as new as the value read, which becomes the one they describe.
+	 */
+	synchronized boolean changedElsewhere(Connection connection) throws SQLException {
+		long now = System.nanoTime();
+		if (checked && now - checkedAt < TimeUnit.MILLISECONDS.toNanos(CHECK_INTERVAL_MILLIS)) {
+			return false;
+		}
+		checked = true;
+		checkedAt = now;
+		long current;
+		try (Statement stmt = connection.createStatement()) {
+			current = read(stmt);
+		}
+		if (current == seen) {
+			return false;
+		}
+		seen = current;
+		return true;
+	}
+}
@@ -0,0 +1,113 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p> ArticleListing Class </p>
+ *
+ * <p> Description: Typed result of an article search before it is turned into text: a heading, the
+ * rows found in the order they are listed, each with its score when the search ranks, and the message
+ * shown when nothing was found. Every entry keeps the text Article rendered for it below the ID and Score
+ * lines, with its snippets, escaping or decrypted body, so listings of several shards are merged by
+ * their rows and scores and never by reading the text back. </p>
+ *
+ * <p> toString gives the text the search methods return: "Total Articles Retrieved: N", a blank line,
+ * the heading and the entries, or the empty message when there are no entries and it is set. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ArticleListing {
+
+	static final String TOTAL_PREFIX = "Total Articles Retrieved: ";
+
+	/**
+	 * One listed article
+	 */
+	static class Entry {
+		final ArticleRow row;
+		final double score;      // BM25 score in a ranked listing, otherwise 0
+		final String text;       // Lines shown below the ID and Score lines
+
+		Entry(ArticleRow row, double score, String text) {
+			this.row = row;
+			this.score = score;
+			this.text = text;
+		}
+	}
+
+	private final String heading;        // First line after the total, "" for none
+	private final String emptyMessage;   // Shown instead of the listing when nothing was found, or null
+	private final boolean ranked;        // Whether entries show their score
+	private final List<Entry> entries = new ArrayList<>();
+
+	ArticleListing(String heading, String emptyMessage, boolean ranked) {
+		this.heading = heading;
+		this.emptyMessage = emptyMessage;
+		this.ranked = ranked;
+	}
+
+	/**
+	 * A listing that only shows the message, e.g. for a search that could not run
+	 */
+	static ArticleListing message(String message) {
+		return new ArticleListing("", message, false);
+	}
+
+	void add(ArticleRow row, String text) {
+		entries.add(new Entry(row, 0, text));
+	}
+
+	void add(ArticleRow row, double score, String text) {
+		entries.add(new Entry(row, score, text));
+	}
+
+	List<Entry> entries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Merges listings of disjoint articles, such as the results of one search on every shard. The
+	 * heading and empty message come from the first listing. A ranked merge lists the limit best
+	 * scores of all listings, an unranked one lists every entry in the order of the listings.
+	 */
+	static ArticleListing merge(List<ArticleListing> listings, int limit) {
+		ArticleListing first = listings.get(0);
+		ArticleListing merged = new ArticleListing(first.heading, first.emptyMessage, first.ranked);
+		for (ArticleListing listing : listings) {
+			merged.entries.addAll(listing.entries);
+		}
+		if (merged.ranked) {
+			merged.entries.sort(Comparator.comparingDouble((Entry entry) -> -entry.score)
+					.thenComparingInt(entry -> entry.row.id));
+			if (merged.entries.size() > limit) {
+				merged.entries.subList(limit, merged.entries.size()).clear();
+			}
+		}
+		return merged;
+	}
+
+	@Override
+	public String toString() {
+		if (entries.isEmpty() && emptyMessage != null) {
+			return emptyMessage;
+		}
+		StringBuilder result = new StringBuilder(TOTAL_PREFIX).append(entries.size()).append("\n\n").append(heading);
+		for (Entry entry : entries) {
+			result.append("ID: ").append(entry.row.id).append("\n");
+			if (ranked) {
+				result.append("Score: ").append(Math.round(entry.score * 10000) / 10000.0).append("\n");
+			}
+			result.append(entry.text);
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,299 @@
+package application;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p> ArticleProtocol Class </p>
+ *
+ * <p> Description: The compact request/response protocol spoken between ArticleClient and ArticleServer
+ * over a local socket. A request is an operation code, an argument count and the arguments; a response
+ * is a status byte followed by either the result or an error message. Every value is written with a
+ * one-byte type tag, and strings are length-prefixed UTF-8. </p>
+ *
+ * <p> Lengths and counts come from the peer, so the reader checks them against Limits before allocating
+ * anything. The server reads the first request of a connection, which arrives before the client has
+ * shown the token, with the small AUTH_LIMITS and every later request with the REQUEST_LIMITS; the
+ * client reads responses from its own server without limits. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+final class ArticleProtocol {
+
+	// Loopback address and default port of the article server
+	static final String HOST = "127.0.0.1";
+	static final int DEFAULT_PORT = 9360;
+
+	// Response status
+	static final byte OK = 0;
+	static final byte ERROR = 1;
+
+	// Operation codes, one per Article method served remotely
+	static final byte REGISTER = 1;
+	static final byte ARTICLE_EXISTS_BY_TITLE = 2;
+	static final byte ARTICLE_EXISTS_BY_ID = 3;
+	static final byte IDENTIFIER_EXISTS = 4;
+	static final byte DISPLAY_ALL = 5;
+	static final byte BY_GROUPS = 6;
+	static final byte BY_IDENTIFIERS = 7;
+	static final byte BY_LEVEL = 8;
+	static final byte BY_AUTHOR = 9;
+	static final byte BY_TITLE = 10;
+	static final byte BY_ABSTRACT = 11;
+	static final byte MORE_INFO = 12;
+	static final byte DELETE = 13;
+	static final byte DELETE_BY_IDENTIFIER = 14;
+	static final byte UPDATE = 15;
+	static final byte CLEAR = 16;
+	static final byte GET_BODY = 17;
+	static final byte ALL_SYSTEM_INFO = 18;
+	static final byte BACKUP = 19;
+	static final byte RESTORE = 20;
+	static final byte BACKUP_BY_GROUP = 21;
+	static final byte BY_QUERY = 22;
+	static final byte BY_RELEVANCE = 23;
+	static final byte SUGGEST = 24;
+	static final byte FACETS = 25;
+	static final byte SEARCH = 26;
+	static final byte BY_BODY = 27;
+	static final byte SESSION_ID = 28;
+	static final byte CANCEL_SESSION = 29;
+	static final byte SAVE_SEARCH = 30;
+	static final byte DELETE_SAVED_SEARCH = 31;
+	static final byte SAVED_SEARCHES = 32;
+	static final byte NOTIFICATIONS = 33;
+	static final byte AUTH = 34;            // First request of every connection: the token and the signed-in user
+
+	// Value type tags
+	private static final byte NULL = 'N';
+	private static final byte STRING = 'S';
+	private static final byte INT = 'I';
+	private static final byte BOOLEAN = 'Z';
+	private static final byte LIST = 'L';
+	private static final byte SET = 'T';
+	private static final byte ARTICLE = 'A';
+	private static final byte USER = 'U';
+	private static final byte CRITERIA = 'C';
+
+	// Most arguments any request has
+	static final int MAX_ARGS = 16;
+
+	/**
+	 * Largest string, in UTF-8 bytes, and largest list a reader accepts
+	 */
+	static final class Limits {
+		final int stringBytes;
+		final int listSize;
+
+		Limits(int stringBytes, int listSize) {
+			this.stringBytes = stringBytes;
+			this.listSize = listSize;
+		}
+	}
+
+	// The token and the signed-in user's name, roles and groups
+	static final Limits AUTH_LIMITS = new Limits(4096, 256);
+	// Any request of an authenticated client, article bodies and identifier lists included
+	static final Limits REQUEST_LIMITS = new Limits(64 << 20, 100_000);
+	static final Limits NO_LIMITS = new Limits(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+	private ArticleProtocol() {
+	}
+
+	/**
+	 * Whether a request can be sent again after the connection broke without knowing whether the
+	 * server ran it: true for reads, false for changes, which could otherwise be applied twice
+	 */
+	static boolean isRetryable(byte op) {
+		switch (op) {
+		case REGISTER:
+		case DELETE:
+		case DELETE_BY_IDENTIFIER:
+		case UPDATE:
+		case CLEAR:
+		case RESTORE:
+		case SAVE_SEARCH:
+		case DELETE_SAVED_SEARCH:
+		case NOTIFICATIONS:      // Taking notifications removes them
+		case CANCEL_SESSION:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Writes one tagged value. Supported types are String, Integer, Boolean, List and Set of strings,
+	 * Article (its content fields), User (only what access checks need: name, special, roles, groups) and
+	 * SearchCriteria.
+	 */
+	static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(INT);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof List) {
+			out.writeByte(LIST);
+			writeStrings(out, castStrings((List<?>) value));
+		} else if (value instanceof Set) {
+			out.writeByte(SET);
+			writeStrings(out, castStrings((Set<?>) value));
+		} else if (value instanceof Article) {
+			Article article = (Article) value;
+			out.writeByte(ARTICLE);
+			writeString(out, article.getTitle());
+			writeString(out, article.getAuthors());
+			writeString(out, article.getAbstractText());
+			writeString(out, article.getKeywords());
+			writeString(out, article.getBody());
+			writeString(out, article.getReferences());
+			writeString(out, article.getLevel());
+			writeString(out, article.getIdentifier());
+			writeString(out, article.getSystemInfo());
+		} else if (value instanceof User) {
+			User user = (User) value;
+			out.writeByte(USER);
+			writeString(out, user.getUserName());
+			out.writeBoolean(user.getIsSpecial());
+			writeStrings(out, user.getRoles());
+			writeStrings(out, user.getGroups());
+		} else if (value instanceof SearchCriteria) {
+			SearchCriteria criteria = (SearchCriteria) value;
+			out.writeByte(CRITERIA);
+			writeString(out, criteria.getWords());
+			writeString(out, criteria.getTitle());
+			writeString(out, criteria.getAuthors());
+			writeString(out, criteria.getAbstractText());
+			writeString(out, criteria.getKeyword());
+			writeString(out, criteria.getLevel());
+			writeStrings(out, criteria.getGroups());
+			out.writeBoolean(criteria.getVisibleGroups() != null);
+			if (criteria.getVisibleGroups() != null) {
+				writeStrings(out, criteria.getVisibleGroups());
+			}
+		} else {
+			throw new IOException("Unsupported value type: " + value.getClass().getName());
+		}
+	}
+
+	/**
+	 * Reads one tagged value written by writeValue
+	 */
+	static Object readValue(DataInputStream in) throws Exception {
+		return readValue(in, NO_LIMITS);
+	}
+
+	/**
+	 * Reads one tagged value, failing with an IOException on a string or list larger than the limits
+	 */
+	static Object readValue(DataInputStream in, Limits limits) throws Exception {
+		byte tag = in.readByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(in, limits);
+		case INT:
+			return in.readInt();
+		case BOOLEAN:
+			return in.readBoolean();
+		case LIST:
+			return readStrings(in, limits);
+		case SET:
+			return new HashSet<>(readStrings(in, limits));
+		case ARTICLE:
+			return new Article(readString(in, limits), readString(in, limits), readString(in, limits),
+					readString(in, limits), readString(in, limits), readString(in, limits), readString(in, limits),
+					readString(in, limits), readString(in, limits));
+		case USER:
+			User user = new User(readString(in, limits), new char[0]);
+			user.setIsSpecial(in.readBoolean());
+			for (String role : readStrings(in, limits)) {
+				user.addRole(role);
+			}
+			user.setGroups(new HashSet<>(readStrings(in, limits)));
+			return user;
+		case CRITERIA:
+			SearchCriteria criteria = new SearchCriteria().words(readString(in, limits))
+					.title(readString(in, limits)).authors(readString(in, limits))
+					.abstractText(readString(in, limits)).keyword(readString(in, limits))
+					.level(readString(in, limits)).groups(readStrings(in, limits));
+			if (in.readBoolean()) {
+				criteria.visibleGroups(new HashSet<>(readStrings(in, limits)));
+			}
+			return criteria;
+		default:
+			throw new IOException("Unknown value tag: " + tag);
+		}
+	}
+
+	static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		return readString(in, NO_LIMITS);
+	}
+
+	static String readString(DataInputStream in, Limits limits) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		if (length > limits.stringBytes) {
+			throw new IOException("String of " + length + " bytes exceeds the limit of " + limits.stringBytes);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+		out.writeInt(values.size());
+		for (String value : values) {
+			writeString(out, value);
+		}
+	}
+
+	private static List<String> readStrings(DataInputStream in, Limits limits) throws IOException {
+		int size = in.readInt();
+		if (size < 0 || size > limits.listSize) {
+			throw new IOException("List size " + size + " is outside 0.." + limits.listSize);
+		}
+		List<String> values = new ArrayList<>(Math.min(size, 1024));   // Grows only with entries really sent
+		for (int i = 0; i < size; i++) {
+			values.add(readString(in, limits));
+		}
+		return values;
+	}
+
+	private static List<String> castStrings(Collection<?> values) {
+		List<String> strings = new ArrayList<>(values.size());
+		for (Object value : values) {
+			strings.add((String) value);
+		}
+		return strings;
+	}
+}
@@ -0,0 +1,457 @@
+package application;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p> ArticleQuery Class </p>
+ *
+ * <p> Description: Parser and execution plan for the search query language. A query combines words and
+ * quoted phrases with AND, OR, NOT (or a leading -) and parentheses; words next to each other are ANDed.
+ * A term may be limited to one field with a prefix: title:, abstract:, author:, keyword:, level: or
+ * group:. Terms without a prefix search the title, abstract, authors and keywords. For example:
+ * {@code title:"eclipse setup" AND (author:smith OR author:jones) NOT level:expert} </p>
+ *
+ * <p> The query compiles into a tree of nodes that produce sorted article ID arrays. Text terms read
+ * posting lists from the search backend; level: and group: terms read the in-memory bitmaps of
+ * ArticleBitmapIndex, and an OR of values of one column is a single OR of their bitmaps. keyword: terms
+ * run indexed equality queries against the normalized article_keywords table, so they match whole
+ * keywords only. An AND node evaluates its children cheapest first, by their estimated number of
+ * matches, and hands the IDs found so far to the next child so it only has to look within them; it stops
+ * as soon as nothing is left. Negated children are subtracted last. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ArticleQuery {
+
+	/**
+	 * Where the plan gets its IDs from; implemented by Article for its connection
+	 */
+	interface Catalog {
+		// Sorted IDs of articles whose field contains the phrase, as whole words or, for the LIKE backend,
+		// anywhere in the text
+		int[] textIds(String phrase, ArticleSearchIndex.Field field) throws SQLException;
+
+		// Upper bound of textIds' size, used only to order the work
+		int estimateText(String phrase, ArticleSearchIndex.Field field);
+
+		// Sorted IDs of articles whose column equals the value, optionally only among the given IDs.
+		// The column is level, systemInfo or keyword, the last meaning one of the article's keywords.
+		int[] columnIds(String column, String value, int[] within) throws SQLException;
+
+		// Sorted IDs of articles whose column equals any of the values, optionally only among the given IDs
+		int[] anyColumnIds(String column, List<String> values, int[] within) throws SQLException;
+
+		int countColumn(String column, String value) throws SQLException;
+
+		// Sorted IDs of every article
+		int[] allIds() throws SQLException;
+	}
+
+	/**
+	 * How a text term is tested against the text of one field of a row. It must agree with the backend
+	 * that produced the IDs, or an invalidation could miss a row the search would have found.
+	 */
+	interface TextMatcher {
+		boolean matches(String text, String phrase);
+	}
+
+	// The phrase as consecutive whole words, the test of the index and the H2 full-text backends
+	static final TextMatcher WHOLE_WORDS = ArticleSearchIndex::matches;
+
+	/**
+	 * One operator or term of a parsed query
+	 */
+	abstract static class Node {
+		/**
+		 * Sorted IDs of the matching articles, only among within unless it is null
+		 */
+		abstract int[] evaluate(Catalog catalog, int[] within) throws SQLException;
+
+		// Estimated number of matches
+		abstract int estimate(Catalog catalog) throws SQLException;
+
+		// Whether an article row matches, used to find which cached results a change affects
+		abstract boolean matches(ArticleRow row, TextMatcher matcher);
+	}
+
+	private static final ArticleSearchIndex.Field[] ALL_TEXT_FIELDS = ArticleSearchIndex.Field.values();
+
+	// A word or phrase in the text fields
+	static class TextTerm extends Node {
+		final String phrase;
+		final ArticleSearchIndex.Field[] fields;
+
+		TextTerm(String phrase, ArticleSearchIndex.Field... fields) {
+			this.phrase = phrase;
+			this.fields = fields;
+		}
+
+		int[] evaluate(Catalog catalog, int[] within) throws SQLException {
+			int[] ids = new int[0];
+			for (ArticleSearchIndex.Field field : fields) {
+				ids = ArticleSearchIndex.union(ids, catalog.textIds(phrase, field));
+			}
+			return within == null ? ids : ArticleSearchIndex.intersect(within, ids);
+		}
+
+		int estimate(Catalog catalog) {
+			int total = 0;
+			for (ArticleSearchIndex.Field field : fields) {
+				total += catalog.estimateText(phrase, field);
+			}
+			return total;
+		}
+
+		boolean matches(ArticleRow row, TextMatcher matcher) {
+			for (ArticleSearchIndex.Field field : fields) {
+				if (matcher.matches(ArticleSearchIndex.fieldText(row, field), phrase)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	// An exact level, group or keyword
+	static class ColumnTerm extends Node {
+		final String column;
+		final String value;
+
+		ColumnTerm(String column, String value) {
+			this.column = column;
+			this.value = value;
+		}
+
+		int[] evaluate(Catalog catalog, int[] within) throws SQLException {
+			return catalog.columnIds(column, value, within);
+		}
+
+		int estimate(Catalog catalog) throws SQLException {
+			return catalog.countColumn(column, value);
+		}
+
+		boolean matches(ArticleRow row, TextMatcher matcher) {
+			switch (column) {
+			case "level": return value.equals(row.level);
+			case "keyword": return Article.keywordsOf(row.keywords).contains(value);
+			default: return value.equals(row.systemInfo);
+			}
+		}
+	}
+
+	static class Not extends Node {
+		final Node child;
+
+		Not(Node child) {
+			this.child = child;
+		}
+
+		int[] evaluate(Catalog catalog, int[] within) throws SQLException {
+			int[] universe = within == null ? catalog.allIds() : within;
+			return ArticleSearchIndex.difference(universe, child.evaluate(catalog, universe));
+		}
+
+		int estimate(Catalog catalog) throws SQLException {
+			return Integer.MAX_VALUE;  // Nearly everything, so it runs last
+		}
+
+		boolean matches(ArticleRow row, TextMatcher matcher) {
+			return !child.matches(row, matcher);
+		}
+	}
+
+	static class And extends Node {
+		final List<Node> children;
+
+		And(List<Node> children) {
+			this.children = children;
+		}
+
+		int[] evaluate(Catalog catalog, int[] within) throws SQLException {
+			// Narrow with the most selective terms first, then subtract the negated ones
+			List<Node> positive = new ArrayList<>();
+			List<Node> negative = new ArrayList<>();
+			for (Node child : children) {
+				(child instanceof Not ? negative : positive).add(child);
+			}
+			List<int[]> estimates = new ArrayList<>();
+			for (Node child : positive) {
+				estimates.add(new int[] {estimates.size(), child.estimate(catalog)});
+			}
+			estimates.sort(Comparator.comparingInt(e -> e[1]));
+
+			int[] ids = within;
+			for (int[] estimate : estimates) {
+				ids = positive.get(estimate[0]).evaluate(catalog, ids);
+				if (ids.length == 0) {
+					return ids;
+				}
+			}
+			if (ids == null) {
+				ids = catalog.allIds();
+			}
+			for (Node child : negative) {
+				ids = ArticleSearchIndex.difference(ids, ((Not) child).child.evaluate(catalog, ids));
+				if (ids.length == 0) {
+					return ids;
+				}
+			}
+			return ids;
+		}
+
+		int estimate(Catalog catalog) throws SQLException {
+			int smallest = Integer.MAX_VALUE;
+			for (Node child : children) {
+				smallest = Math.min(smallest, child.estimate(catalog));
+			}
+			return smallest;
+		}
+
+		boolean matches(ArticleRow row, TextMatcher matcher) {
+			for (Node child : children) {
+				if (!child.matches(row, matcher)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	static class Or extends Node {
+		final List<Node> children;
+
+		Or(List<Node> children) {
+			this.children = children;
+		}
+
+		int[] evaluate(Catalog catalog, int[] within) throws SQLException {
+			// Alternative values of one column, such as the groups a user may see, are looked up together
+			String column = null;
+			List<String> values = new ArrayList<>();
+			for (Node child : children) {
+				if (!(child instanceof ColumnTerm) || (column != null && !column.equals(((ColumnTerm) child).column))) {
+					column = null;
+					break;
+				}
+				column = ((ColumnTerm) child).column;
+				values.add(((ColumnTerm) child).value);
+			}
+			if (column != null) {
+				return catalog.anyColumnIds(column, values, within);
+			}
+
+			int[] ids = new int[0];
+			for (Node child : children) {
+				ids = ArticleSearchIndex.union(ids, child.evaluate(catalog, within));
+			}
+			return ids;
+		}
+
+		int estimate(Catalog catalog) throws SQLException {
+			long total = 0;
+			for (Node child : children) {
+				total += child.estimate(catalog);
+			}
+			return (int) Math.min(total, Integer.MAX_VALUE);
+		}
+
+		boolean matches(ArticleRow row, TextMatcher matcher) {
+			for (Node child : children) {
+				if (child.matches(row, matcher)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The words and phrases a result should highlight, every text term that is not negated, or null
+	 * if there are none
+	 */
+	static String highlightTerms(Node node) {
+		StringBuilder terms = new StringBuilder();
+		collectTerms(node, terms);
+		return terms.length() == 0 ? null : terms.toString().trim();
+	}
+
+	private static void collectTerms(Node node, StringBuilder terms) {
+		if (node instanceof TextTerm) {
+			terms.append(((TextTerm) node).phrase).append(' ');
+		} else if (node instanceof And) {
+			for (Node child : ((And) node).children) {
+				collectTerms(child, terms);
+			}
+		} else if (node instanceof Or) {
+			for (Node child : ((Or) node).children) {
+				collectTerms(child, terms);
+			}
+		}
+	}
+
+	private final String text;
+	private int pos = 0;
+
+	private ArticleQuery(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Parses a query into its plan; throws IllegalArgumentException describing the first syntax error
+	 */
+	static Node parse(String query) {
+		if (query == null || query.trim().isEmpty()) {
+			throw new IllegalArgumentException("The query is empty");
+		}
+		ArticleQuery parser = new ArticleQuery(query);
+		Node node = parser.parseOr();
+		parser.skipSpaces();
+		if (parser.pos < parser.text.length()) {
+			throw new IllegalArgumentException("Unexpected '" + parser.text.charAt(parser.pos) + "' at position " + (parser.pos + 1));
+		}
+		return node;
+	}
+
+	// or := and ("OR" and)*
+	private Node parseOr() {
+		List<Node> children = new ArrayList<>();
+		children.add(parseAnd());
+		while (keyword("OR")) {
+			children.add(parseAnd());
+		}
+		return children.size() == 1 ? children.get(0) : new Or(children);
+	}
+
+	// and := unary (["AND"] unary)*
+	private Node parseAnd() {
+		List<Node> children = new ArrayList<>();
+		children.add(parseUnary());
+		while (true) {
+			if (keyword("AND")) {
+				children.add(parseUnary());
+				continue;
+			}
+			skipSpaces();
+			if (pos >= text.length() || text.charAt(pos) == ')' || peekKeyword("OR")) {
+				break;
+			}
+			children.add(parseUnary());
+		}
+		return children.size() == 1 ? children.get(0) : new And(children);
+	}
+
+	// unary := ("NOT" | "-") unary | primary
+	private Node parseUnary() {
+		skipSpaces();
+		if (keyword("NOT")) {
+			return new Not(parseUnary());
+		}
+		if (pos < text.length() && text.charAt(pos) == '-') {
+			pos++;
+			return new Not(parseUnary());
+		}
+		return parsePrimary();
+	}
+
+	// primary := "(" or ")" | [field ":"] (phrase | word)
+	private Node parsePrimary() {
+		skipSpaces();
+		if (pos >= text.length()) {
+			throw new IllegalArgumentException("A search term is missing at the end of the query");
+		}
+		if (text.charAt(pos) == '(') {
+			pos++;
+			Node node = parseOr();
+			skipSpaces();
+			if (pos >= text.length() || text.charAt(pos) != ')') {
+				throw new IllegalArgumentException("Missing ')'");
+			}
+			pos++;
+			return node;
+		}
+
+		String field = null;
+		int colon = fieldPrefixEnd();
+		if (colon > 0) {
+			field = text.substring(pos, colon).toLowerCase();
+			pos = colon + 1;
+		}
+		String value = (pos < text.length() && text.charAt(pos) == '"') ? quoted() : word();
+		if (value.isEmpty()) {
+			throw new IllegalArgumentException("A search term is missing at position " + (pos + 1));
+		}
+		return term(field, value);
+	}
+
+	private Node term(String field, String value) {
+		if (field == null) {
+			return new TextTerm(value, ALL_TEXT_FIELDS);
+		}
+		switch (field) {
+		case "title": return new TextTerm(value, ArticleSearchIndex.Field.TITLE);
+		case "abstract": return new TextTerm(value, ArticleSearchIndex.Field.ABSTRACT);
+		case "author":
+		case "authors": return new TextTerm(value, ArticleSearchIndex.Field.AUTHORS);
+		case "keyword":
+		case "keywords": return new ColumnTerm("keyword", value.trim().toLowerCase());
+		case "level": return new ColumnTerm("level", value);
+		case "group": return new ColumnTerm("systemInfo", value);
+		default: throw new IllegalArgumentException("Unknown field '" + field + "'");
+		}
+	}
+
+	// End of a "field:" prefix starting at pos, or -1
+	private int fieldPrefixEnd() {
+		int i = pos;
+		while (i < text.length() && Character.isLetter(text.charAt(i))) {
+			i++;
+		}
+		return (i > pos && i < text.length() && text.charAt(i) == ':') ? i : -1;
+	}
+
+	private String quoted() {
+		int end = text.indexOf('"', pos + 1);
+		if (end < 0) {
+			throw new IllegalArgumentException("Missing closing quote");
+		}
+		String phrase = text.substring(pos + 1, end);
+		pos = end + 1;
+		return phrase;
+	}
+
+	private String word() {
+		int start = pos;
+		while (pos < text.length() && !Character.isWhitespace(text.charAt(pos))
+				&& text.charAt(pos) != '(' && text.charAt(pos) != ')' && text.charAt(pos) != '"') {
+			pos++;
+		}
+		return text.substring(start, pos);
+	}
+
+	private void skipSpaces() {
+		while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	// Whether the upper-case operator word starts at pos, as a whole word
+	private boolean peekKeyword(String keyword) {
+		skipSpaces();
+		int end = pos + keyword.length();
+		return text.startsWith(keyword, pos)
+				&& (end == text.length() || Character.isWhitespace(text.charAt(end)) || text.charAt(end) == '(');
+	}
+
+	private boolean keyword(String keyword) {
+		if (peekKeyword(keyword)) {
+			pos += keyword.length();
+			return true;
+		}
+		return false;
+	}
+}
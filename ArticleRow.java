@@ -0,0 +1,57 @@
+package application;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * <p> ArticleRow Class </p>
+ *
+ * <p> Description: Snapshot of the searchable columns of one stored article. Article passes the
+ * before and after snapshots of every change to its caches, so they can tell which cached
+ * results the change could affect. The body is left out because it is stored encrypted and
+ * none of the column searches look at it. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ArticleRow {
+
+	final int id;                 // Article ID, or -1 when not known yet (a row about to be inserted)
+	final String title;
+	final String authors;
+	final String abstractText;
+	final String keywords;
+	final String level;
+	final String identifier;
+	final String systemInfo;
+
+	ArticleRow(int id, String title, String authors, String abstractText, String keywords,
+			String level, String identifier, String systemInfo) {
+		this.id = id;
+		this.title = title;
+		this.authors = authors;
+		this.abstractText = abstractText;
+		this.keywords = keywords;
+		this.level = level;
+		this.identifier = identifier;
+		this.systemInfo = systemInfo;
+	}
+
+	/**
+	 * Snapshot of the current row of a result set that selected the searchable columns
+	 */
+	static ArticleRow fromResultSet(ResultSet rs) throws SQLException {
+		return new ArticleRow(rs.getInt("id"), rs.getString("title"), rs.getString("authors"),
+				rs.getString("abstract"), rs.getString("keywords"), rs.getString("level"),
+				rs.getString("identifier"), rs.getString("systemInfo"));
+	}
+
+	/**
+	 * Snapshot of an article that is about to be stored under the given ID
+	 */
+	static ArticleRow fromArticle(int id, Article article) {
+		return new ArticleRow(id, article.getTitle(), article.getAuthors(), article.getAbstractText(),
+				article.getKeywords(), article.getLevel(), article.getIdentifier(), article.getSystemInfo());
+	}
+}
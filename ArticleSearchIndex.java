@@ -0,0 +1,1096 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p> ArticleSearchIndex Class </p>
+ *
+ * <p> Description: In-process inverted index over the title, abstract, authors and keywords of every
+ * article. Text is split into lower-case word tokens; for each field a term dictionary maps every token
+ * to a posting list holding the sorted IDs of the articles that contain it and the token positions inside
+ * each article. Term queries read one posting list; phrase queries intersect the posting lists of their
+ * words and keep the articles where the words appear at consecutive positions. The result is a sorted
+ * array of article IDs that Article turns into the usual result text. </p>
+ *
+ * <p> The index also ranks articles by BM25 relevance. It walks the posting lists of the query words
+ * together in ID order, scores one article at a time as the boosted sum of its per-field BM25 scores, and
+ * keeps only the best k in a bounded min-heap, so the full match set is never collected or sorted. </p>
+ *
+ * <p> For misspelled queries every term dictionary has a trigram index: each term is listed under the
+ * three-letter pieces of its padded spelling. A fuzzy query word only compares itself, by bounded edit
+ * distance, against terms sharing enough trigrams with it, and then runs as a phrase query in which each
+ * word may be any of its close terms. </p>
+ *
+ * <p> Searches for parts of words use a second map per field from each term folded with Article.fold to
+ * the terms it stands for, with the folded terms listed under their trigrams. The terms containing a
+ * piece of a word are the folded terms listed under every trigram of the piece, so the articles that may
+ * contain a phrase as a substring are found without reading any article text. </p>
+ *
+ * <p> For the abstracts the index also keeps the character offsets of every token, so a result can show
+ * a short snippet around the matched words with highlight markers. The snippet window is chosen from the
+ * positions in the posting lists of the query words, and the offsets turn it into a piece of the stored
+ * text without scanning it again. </p>
+ *
+ * <p> One index is shared by every Article connected to the same database in this process. It is built
+ * from the table on first use and then kept current by Article, which passes the before and after row of
+ * every committed change. When the ArticleGeneration counter shows that another process wrote to the
+ * database through H2 server mode, Article drops the index and it is rebuilt on next use. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ArticleSearchIndex {
+
+	/**
+	 * Indexed article columns
+	 */
+	enum Field { TITLE, ABSTRACT, AUTHORS, KEYWORDS }
+
+	private static final Map<String, ArticleSearchIndex> INDEXES = new HashMap<>();
+	private static final int[] NO_DOCS = new int[0];
+
+	// Markers around highlighted words in snippets, the escape for literal markers in article text, and
+	// the snippet length in words
+	static final String HIGHLIGHT_START = "\u00ab";
+	static final String HIGHLIGHT_END = "\u00bb";
+	static final char MARKUP_ESCAPE = '\\';
+	static final int SNIPPET_WORDS = 24;
+
+	// BM25 term-frequency saturation and length normalization
+	static final double K1 = 1.2;
+	static final double B = 0.75;
+
+	/**
+	 * Default weight of each field in relevance scores; a title match counts most
+	 */
+	static final Map<Field, Double> DEFAULT_BOOSTS = new EnumMap<>(Field.class);
+	static {
+		DEFAULT_BOOSTS.put(Field.TITLE, 2.0);
+		DEFAULT_BOOSTS.put(Field.KEYWORDS, 1.5);
+		DEFAULT_BOOSTS.put(Field.ABSTRACT, 1.0);
+	}
+
+	/**
+	 * An article and its relevance score
+	 */
+	static class Hit {
+		final int id;
+		final double score;
+
+		Hit(int id, double score) {
+			this.id = id;
+			this.score = score;
+		}
+	}
+
+	/**
+	 * Sorted article IDs containing one term in one field, with the term's positions in each article.
+	 * The positions of docs[i] are positions[posStart[i] .. posStart[i + 1]).
+	 */
+	static class Postings {
+		int size = 0;
+		int[] docs = new int[2];
+		int[] posStart = new int[3];
+		int[] positions = new int[2];
+
+		int find(int doc) {
+			return Arrays.binarySearch(docs, 0, size, doc);
+		}
+
+		boolean hasPosition(int i, int position) {
+			return Arrays.binarySearch(positions, posStart[i], posStart[i + 1], position) >= 0;
+		}
+
+		/**
+		 * Adds or replaces the positions of a document; documents usually arrive in ID order, which appends
+		 */
+		void put(int doc, int[] docPositions, int count) {
+			remove(doc);
+			int at = -find(doc) - 1;
+			ensureCapacity(count);
+			int posAt = posStart[at];
+			int posEnd = posStart[size];
+			System.arraycopy(docs, at, docs, at + 1, size - at);
+			System.arraycopy(posStart, at + 1, posStart, at + 2, size - at);
+			System.arraycopy(positions, posAt, positions, posAt + count, posEnd - posAt);
+			System.arraycopy(docPositions, 0, positions, posAt, count);
+			docs[at] = doc;
+			size++;
+			posStart[at + 1] = posAt + count;
+			for (int k = at + 2; k <= size; k++) {
+				posStart[k] += count;
+			}
+		}
+
+		void remove(int doc) {
+			int i = find(doc);
+			if (i < 0) {
+				return;
+			}
+			int from = posStart[i];
+			int count = posStart[i + 1] - from;
+			int posEnd = posStart[size];
+			System.arraycopy(positions, from + count, positions, from, posEnd - from - count);
+			System.arraycopy(docs, i + 1, docs, i, size - i - 1);
+			System.arraycopy(posStart, i + 2, posStart, i + 1, size - i - 1);
+			size--;
+			for (int k = i + 1; k <= size; k++) {
+				posStart[k] -= count;
+			}
+		}
+
+		private void ensureCapacity(int extraPositions) {
+			if (size + 1 >= docs.length) {
+				docs = Arrays.copyOf(docs, docs.length * 2);
+				posStart = Arrays.copyOf(posStart, docs.length + 1);
+			}
+			int needed = posStart[size] + extraPositions;
+			if (needed > positions.length) {
+				positions = Arrays.copyOf(positions, Math.max(needed, positions.length * 2));
+			}
+		}
+
+		int frequency(int i) {
+			return posStart[i + 1] - posStart[i];
+		}
+
+		int[] docIds() {
+			return Arrays.copyOf(docs, size);
+		}
+	}
+
+	private final Map<Field, Map<String, Postings>> dictionaries = new EnumMap<>(Field.class);
+	private final Map<Field, Map<String, List<String>>> trigrams = new EnumMap<>(Field.class);  // Trigram -> terms
+	private final Map<Field, Map<String, List<String>>> foldedTerms = new EnumMap<>(Field.class);  // Folded -> terms
+	private final Map<Field, Map<String, List<String>>> foldedTrigrams = new EnumMap<>(Field.class);  // Trigram -> folded
+	private final Map<Integer, int[]> fieldLengths = new HashMap<>();  // Words in each field, per article
+	private final Map<Integer, int[]> abstractOffsets = new HashMap<>();  // Start and end of each abstract token
+	private final long[] totalLengths = new long[Field.values().length];
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private boolean built = false;
+
+	ArticleSearchIndex() {
+		for (Field field : Field.values()) {
+			dictionaries.put(field, new HashMap<>());
+			trigrams.put(field, new HashMap<>());
+			foldedTerms.put(field, new HashMap<>());
+			foldedTrigrams.put(field, new HashMap<>());
+		}
+	}
+
+	/**
+	 * Returns the index shared by every Article connected to the given database URL
+	 */
+	static synchronized ArticleSearchIndex forDatabase(String dbUrl) {
+		return INDEXES.computeIfAbsent(dbUrl, url -> new ArticleSearchIndex());
+	}
+
+	/**
+	 * Splits text into lower-case tokens of letters and digits
+	 */
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (wordChar && start < 0) {
+				start = i;
+			} else if (!wordChar && start >= 0) {
+				tokens.add(text.substring(start, i).toLowerCase());
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Start and end character offsets of the tokens of text, two entries per token in tokenize's order
+	 */
+	static int[] tokenOffsets(String text) {
+		int[] offsets = new int[16];
+		int n = 0;
+		if (text == null) {
+			return new int[0];
+		}
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (wordChar && start < 0) {
+				start = i;
+			} else if (!wordChar && start >= 0) {
+				if (n + 2 > offsets.length) {
+					offsets = Arrays.copyOf(offsets, offsets.length * 2);
+				}
+				offsets[n++] = start;
+				offsets[n++] = i;
+				start = -1;
+			}
+		}
+		return Arrays.copyOf(offsets, n);
+	}
+
+	/**
+	 * Whether the query words appear next to each other in the text, the same test search applies,
+	 * used by the result cache to decide which cached searches a changed row affects
+	 */
+	static boolean matches(String text, String query) {
+		List<String> words = tokenize(query);
+		if (words.isEmpty()) {
+			return false;
+		}
+		return Collections.indexOfSubList(tokenize(text), words) >= 0;
+	}
+
+	static String fieldText(ArticleRow row, Field field) {
+		switch (field) {
+		case TITLE: return row.title;
+		case ABSTRACT: return row.abstractText;
+		case AUTHORS: return row.authors;
+		default: return row.keywords;
+		}
+	}
+
+	/**
+	 * Builds the index from the articles table unless it is already built
+	 */
+	void ensureBuilt(Connection connection) throws SQLException {
+		lock.readLock().lock();
+		try {
+			if (built) {
+				return;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		lock.writeLock().lock();
+		try {
+			if (built) {
+				return;
+			}
+			List<ArticleRow> rows = new ArrayList<>();
+			String query = "SELECT id, title, authors, abstract, keywords, level, identifier, systemInfo FROM articles";
+			try (Statement stmt = connection.createStatement();
+				 ResultSet rs = stmt.executeQuery(query)) {
+				while (rs.next()) {
+					rows.add(ArticleRow.fromResultSet(rs));
+				}
+			}
+			build(rows);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Replaces the contents of the index with the given rows, e.g. for tests that run without a database
+	 */
+	void build(List<ArticleRow> rows) {
+		lock.writeLock().lock();
+		try {
+			clear();
+			for (ArticleRow row : rows) {
+				add(row);
+			}
+			built = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Applies one committed change; before is null for an insert and after is null for a delete
+	 */
+	void update(ArticleRow before, ArticleRow after) {
+		lock.writeLock().lock();
+		try {
+			if (!built) {
+				return;  // The build will read the committed table
+			}
+			if (before != null) {
+				remove(before);
+			}
+			if (after != null && after.id >= 0) {
+				add(after);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Forgets everything; the index is rebuilt from the table on next use
+	 */
+	void invalidate() {
+		lock.writeLock().lock();
+		try {
+			clear();
+			built = false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void clear() {
+		for (Map<String, Postings> dictionary : dictionaries.values()) {
+			dictionary.clear();
+		}
+		for (Map<String, List<String>> grams : trigrams.values()) {
+			grams.clear();
+		}
+		for (Field field : Field.values()) {
+			foldedTerms.get(field).clear();
+			foldedTrigrams.get(field).clear();
+		}
+		fieldLengths.clear();
+		abstractOffsets.clear();
+		Arrays.fill(totalLengths, 0);
+	}
+
+	private void add(ArticleRow row) {
+		int[] lengths = new int[Field.values().length];
+		int[] previous = fieldLengths.get(row.id);
+		if (previous != null) {
+			for (int f = 0; f < previous.length; f++) {
+				totalLengths[f] -= previous[f];  // Already indexed, its postings are replaced below
+			}
+		}
+		for (Field field : Field.values()) {
+			List<String> tokens = tokenize(fieldText(row, field));
+			lengths[field.ordinal()] = tokens.size();
+			totalLengths[field.ordinal()] += tokens.size();
+
+			// Group the positions of each distinct token
+			Map<String, int[]> termPositions = new LinkedHashMap<>();
+			Map<String, Integer> termCounts = new HashMap<>();
+			for (int position = 0; position < tokens.size(); position++) {
+				String token = tokens.get(position);
+				int count = termCounts.getOrDefault(token, 0);
+				int[] positions = termPositions.computeIfAbsent(token, t -> new int[4]);
+				if (count == positions.length) {
+					positions = Arrays.copyOf(positions, count * 2);
+					termPositions.put(token, positions);
+				}
+				positions[count] = position;
+				termCounts.put(token, count + 1);
+			}
+			Map<String, Postings> dictionary = dictionaries.get(field);
+			for (Map.Entry<String, int[]> entry : termPositions.entrySet()) {
+				Postings postings = dictionary.get(entry.getKey());
+				if (postings == null) {
+					postings = new Postings();
+					dictionary.put(entry.getKey(), postings);
+					for (String gram : trigramsOf(entry.getKey())) {
+						trigrams.get(field).computeIfAbsent(gram, g -> new ArrayList<>()).add(entry.getKey());
+					}
+					addFolded(field, entry.getKey());
+				}
+				postings.put(row.id, entry.getValue(), termCounts.get(entry.getKey()));
+			}
+		}
+		fieldLengths.put(row.id, lengths);
+		abstractOffsets.put(row.id, tokenOffsets(row.abstractText));
+	}
+
+	private void remove(ArticleRow row) {
+		int[] lengths = fieldLengths.remove(row.id);
+		abstractOffsets.remove(row.id);
+		if (lengths != null) {
+			for (int f = 0; f < lengths.length; f++) {
+				totalLengths[f] -= lengths[f];
+			}
+		}
+		for (Field field : Field.values()) {
+			Map<String, Postings> dictionary = dictionaries.get(field);
+			for (String token : tokenize(fieldText(row, field))) {
+				Postings postings = dictionary.get(token);
+				if (postings != null) {
+					postings.remove(row.id);
+					if (postings.size == 0) {
+						dictionary.remove(token);
+						for (String gram : trigramsOf(token)) {
+							List<String> terms = trigrams.get(field).get(gram);
+							terms.remove(token);
+							if (terms.isEmpty()) {
+								trigrams.get(field).remove(gram);
+							}
+						}
+						removeFolded(field, token);
+					}
+				}
+			}
+		}
+	}
+
+	// Lists a new term under its folded spelling, and a new folded spelling under its trigrams
+	private void addFolded(Field field, String term) {
+		String folded = Article.fold(term);
+		List<String> terms = foldedTerms.get(field).get(folded);
+		if (terms == null) {
+			terms = new ArrayList<>();
+			foldedTerms.get(field).put(folded, terms);
+			for (String gram : piecesOf(folded)) {
+				foldedTrigrams.get(field).computeIfAbsent(gram, g -> new ArrayList<>()).add(folded);
+			}
+		}
+		terms.add(term);
+	}
+
+	private void removeFolded(Field field, String term) {
+		String folded = Article.fold(term);
+		List<String> terms = foldedTerms.get(field).get(folded);
+		if (terms == null) {
+			return;
+		}
+		terms.remove(term);
+		if (terms.isEmpty()) {
+			foldedTerms.get(field).remove(folded);
+			for (String gram : piecesOf(folded)) {
+				List<String> spellings = foldedTrigrams.get(field).get(gram);
+				spellings.remove(folded);
+				if (spellings.isEmpty()) {
+					foldedTrigrams.get(field).remove(gram);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the sorted IDs of articles whose text in any of the fields contains the query words. A single
+	 * word is a term query; several words are a phrase query and must appear next to each other in order.
+	 */
+	int[] search(String query, Field... fields) {
+		List<String> tokens = tokenize(query);
+		if (tokens.isEmpty()) {
+			return NO_DOCS;
+		}
+		lock.readLock().lock();
+		try {
+			int[] result = NO_DOCS;
+			for (Field field : fields) {
+				result = union(result, phrase(field, tokens));
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sorted IDs of the articles whose field may contain the query as a substring once both are folded
+	 * with Article.fold, a superset the caller checks against the stored text. In such a text the first
+	 * query word may end a longer word, the last may start one, a single word may lie anywhere in one and
+	 * the words between are whole words. The candidates are the articles holding the rarest middle word,
+	 * or, for one or two words, a term containing the longer of them. Null when those words are shorter
+	 * than a trigram, so the caller has to scan.
+	 */
+	int[] substringCandidates(String query, Field field) {
+		List<String> words = tokenize(Article.fold(query));
+		if (words.isEmpty()) {
+			return null;
+		}
+		lock.readLock().lock();
+		try {
+			if (words.size() > 2) {
+				int[] best = null;
+				for (String word : words.subList(1, words.size() - 1)) {
+					int[] docs = docsOf(field, foldedTerms.get(field).getOrDefault(word, Collections.emptyList()));
+					if (best == null || docs.length < best.length) {
+						best = docs;
+					}
+				}
+				return best;
+			}
+			int piece = words.get(words.size() - 1).length() > words.get(0).length() ? words.size() - 1 : 0;
+			String word = words.get(piece);
+			if (word.length() < 3) {
+				return null;
+			}
+			List<String> terms = new ArrayList<>();
+			for (String folded : foldedContaining(field, word)) {
+				boolean fits = words.size() == 1 || (piece == 0 ? folded.endsWith(word) : folded.startsWith(word));
+				if (fits) {
+					terms.addAll(foldedTerms.get(field).get(folded));
+				}
+			}
+			return docsOf(field, terms);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Folded terms of the field containing the piece: those listed under all of its trigrams, checked
+	private List<String> foldedContaining(Field field, String piece) {
+		List<String> smallest = null;
+		for (String gram : piecesOf(piece)) {
+			List<String> spellings = foldedTrigrams.get(field).get(gram);
+			if (spellings == null) {
+				return Collections.emptyList();
+			}
+			if (smallest == null || spellings.size() < smallest.size()) {
+				smallest = spellings;
+			}
+		}
+		List<String> containing = new ArrayList<>();
+		for (String folded : smallest) {
+			if (folded.contains(piece)) {
+				containing.add(folded);
+			}
+		}
+		return containing;
+	}
+
+	// Union of the posting lists of the terms of the field
+	private int[] docsOf(Field field, List<String> terms) {
+		int[] docs = NO_DOCS;
+		for (String term : terms) {
+			docs = union(docs, dictionaries.get(field).get(term).docIds());
+		}
+		return docs;
+	}
+
+	/**
+	 * Upper bound of the number of articles search would return for the query in one field: the length
+	 * of the shortest posting list among its words. Used to order the work of a query plan.
+	 */
+	int estimate(String query, Field field) {
+		lock.readLock().lock();
+		try {
+			int smallest = Integer.MAX_VALUE;
+			for (String token : tokenize(query)) {
+				Postings postings = dictionaries.get(field).get(token);
+				smallest = Math.min(smallest, postings == null ? 0 : postings.size);
+			}
+			return smallest == Integer.MAX_VALUE ? 0 : smallest;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the limit most relevant articles for the query words, best first, scored with BM25 over
+	 * the boosted fields. An article needs only one of the words to be scored.
+	 */
+	List<Hit> rank(String query, int limit, Map<Field, Double> boosts) {
+		List<String> words = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+		List<Hit> hits = new ArrayList<>();
+		if (words.isEmpty() || limit <= 0) {
+			return hits;
+		}
+		lock.readLock().lock();
+		try {
+			int articleCount = fieldLengths.size();
+
+			// One cursor per word and field, walked together in ID order
+			List<Postings> lists = new ArrayList<>();
+			List<double[]> weights = new ArrayList<>();   // {field ordinal, boost * idf, average length}
+			for (Map.Entry<Field, Double> boost : boosts.entrySet()) {
+				int f = boost.getKey().ordinal();
+				double averageLength = articleCount == 0 ? 0 : (double) totalLengths[f] / articleCount;
+				for (String word : words) {
+					Postings postings = dictionaries.get(boost.getKey()).get(word);
+					if (postings != null) {
+						double idf = Math.log(1 + (articleCount - postings.size + 0.5) / (postings.size + 0.5));
+						lists.add(postings);
+						weights.add(new double[] {f, boost.getValue() * idf, averageLength});
+					}
+				}
+			}
+			int[] cursor = new int[lists.size()];
+
+			PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a.score, b.score));
+			while (true) {
+				int doc = Integer.MAX_VALUE;
+				for (int c = 0; c < cursor.length; c++) {
+					if (cursor[c] < lists.get(c).size) {
+						doc = Math.min(doc, lists.get(c).docs[cursor[c]]);
+					}
+				}
+				if (doc == Integer.MAX_VALUE) {
+					break;
+				}
+				int[] lengths = fieldLengths.get(doc);
+				double score = 0;
+				for (int c = 0; c < cursor.length; c++) {
+					Postings postings = lists.get(c);
+					if (cursor[c] < postings.size && postings.docs[cursor[c]] == doc) {
+						double[] weight = weights.get(c);
+						double tf = postings.frequency(cursor[c]);
+						double norm = weight[2] == 0 ? 1 : 1 - B + B * lengths[(int) weight[0]] / weight[2];
+						score += weight[1] * tf * (K1 + 1) / (tf + K1 * norm);
+						cursor[c]++;
+					}
+				}
+				if (best.size() < limit) {
+					best.add(new Hit(doc, score));
+				} else if (score > best.peek().score) {
+					best.poll();
+					best.add(new Hit(doc, score));
+				}
+			}
+			while (!best.isEmpty()) {
+				hits.add(best.poll());
+			}
+			Collections.reverse(hits);
+			return hits;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Like search, but each query word also matches terms within a few edits of it: none for words of
+	 * up to two letters, one for up to five letters and two for longer words
+	 */
+	int[] searchFuzzy(String query, Field... fields) {
+		List<String> tokens = tokenize(query);
+		if (tokens.isEmpty()) {
+			return NO_DOCS;
+		}
+		lock.readLock().lock();
+		try {
+			int[] result = NO_DOCS;
+			for (Field field : fields) {
+				List<List<Postings>> alternatives = new ArrayList<>();
+				for (String token : tokens) {
+					List<Postings> close = new ArrayList<>();
+					for (String term : closeTerms(field, token)) {
+						close.add(dictionaries.get(field).get(term));
+					}
+					alternatives.add(close);
+				}
+				result = union(result, phrase(alternatives));
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Number of edits a query word may be away from a term and still match it fuzzily
+	 */
+	static int allowedEdits(String word) {
+		return word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+	}
+
+	/**
+	 * Whether the query words appear next to each other in the text, each within its allowed edits,
+	 * the same test searchFuzzy applies
+	 */
+	static boolean matchesFuzzy(String text, String query) {
+		List<String> words = tokenize(query);
+		List<String> tokens = tokenize(text);
+		for (int start = 0; !words.isEmpty() && start + words.size() <= tokens.size(); start++) {
+			boolean all = true;
+			for (int k = 0; k < words.size() && all; k++) {
+				all = editDistance(words.get(k), tokens.get(start + k), allowedEdits(words.get(k))) >= 0;
+			}
+			if (all) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Pieces of three characters of the term padded with $ at both ends
+	private static List<String> trigramsOf(String term) {
+		String padded = "$" + term + "$";
+		List<String> grams = new ArrayList<>();
+		for (int i = 0; i + 3 <= padded.length(); i++) {
+			String gram = padded.substring(i, i + 3);
+			if (!grams.contains(gram)) {
+				grams.add(gram);
+			}
+		}
+		return grams;
+	}
+
+	// Pieces of three characters of the text, unpadded, for substring lookups
+	private static List<String> piecesOf(String text) {
+		List<String> grams = new ArrayList<>();
+		for (int i = 0; i + 3 <= text.length(); i++) {
+			String gram = text.substring(i, i + 3);
+			if (!grams.contains(gram)) {
+				grams.add(gram);
+			}
+		}
+		return grams;
+	}
+
+	// Terms of the field within the allowed edits of the word. One edit changes at most three trigrams,
+	// so only terms sharing enough trigrams with the word are compared at all.
+	private List<String> closeTerms(Field field, String word) {
+		int edits = allowedEdits(word);
+		List<String> close = new ArrayList<>();
+		if (edits == 0) {
+			if (dictionaries.get(field).containsKey(word)) {
+				close.add(word);
+			}
+			return close;
+		}
+		List<String> grams = trigramsOf(word);
+		int needed = grams.size() - 3 * edits;
+		Iterable<String> candidates;
+		if (needed <= 0) {
+			candidates = dictionaries.get(field).keySet();  // Word too short to filter by trigrams
+		} else {
+			Map<String, Integer> shared = new HashMap<>();
+			for (String gram : grams) {
+				for (String term : trigrams.get(field).getOrDefault(gram, Collections.emptyList())) {
+					shared.merge(term, 1, Integer::sum);
+				}
+			}
+			List<String> filtered = new ArrayList<>();
+			for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+				if (entry.getValue() >= needed) {
+					filtered.add(entry.getKey());
+				}
+			}
+			candidates = filtered;
+		}
+		for (String term : candidates) {
+			if (Math.abs(term.length() - word.length()) <= edits && editDistance(word, term, edits) >= 0) {
+				close.add(term);
+			}
+		}
+		return close;
+	}
+
+	/**
+	 * Whether the index has been built, so snippets can be taken from it
+	 */
+	boolean isBuilt() {
+		lock.readLock().lock();
+		try {
+			return built;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * A piece of the article's abstract of about SNIPPET_WORDS words around the most query words, which
+	 * are put between HIGHLIGHT_START and HIGHLIGHT_END. The rest of the text is escaped with escapeMarkup,
+	 * so markers already in the abstract stay literal. The beginning of the abstract is used if none of the
+	 * words is in it. Returns null when the article is not indexed with this abstract text.
+	 */
+	String snippet(int id, String abstractText, String query) {
+		lock.readLock().lock();
+		try {
+			int[] offsets = abstractOffsets.get(id);
+			if (offsets == null || abstractText == null
+					|| (offsets.length > 0 && offsets[offsets.length - 1] > abstractText.length())) {
+				return null;
+			}
+			int words = offsets.length / 2;
+
+			// Positions of the query words in this abstract, straight from the posting lists
+			boolean[] matched = new boolean[words];
+			List<Integer> positions = new ArrayList<>();
+			for (String token : new LinkedHashSet<>(tokenize(query))) {
+				Postings postings = dictionaries.get(Field.ABSTRACT).get(token);
+				int i = postings == null ? -1 : postings.find(id);
+				if (i < 0) {
+					continue;
+				}
+				for (int p = postings.posStart[i]; p < postings.posStart[i + 1]; p++) {
+					int position = postings.positions[p];
+					if (position < words && !matched[position]) {
+						matched[position] = true;
+						positions.add(position);
+					}
+				}
+			}
+			Collections.sort(positions);
+
+			// The window starting a little before some match that covers the most matches
+			int start = 0;
+			int best = 0;
+			int lead = SNIPPET_WORDS / 6;
+			for (int first = 0; first < positions.size(); first++) {
+				int from = Math.max(0, positions.get(first) - lead);
+				int covered = 0;
+				for (int k = first; k < positions.size() && positions.get(k) < from + SNIPPET_WORDS; k++) {
+					covered++;
+				}
+				if (covered > best) {
+					best = covered;
+					start = from;
+				}
+			}
+			int end = Math.min(words, start + SNIPPET_WORDS);
+			start = Math.max(0, Math.min(start, end - SNIPPET_WORDS));
+			if (words == 0) {
+				return escapeMarkup(abstractText);
+			}
+
+			StringBuilder snippet = new StringBuilder();
+			if (start > 0) {
+				snippet.append("...");
+			}
+			int copied = start == 0 ? 0 : offsets[2 * start];
+			for (int position = start; position < end; position++) {
+				if (matched[position]) {
+					snippet.append(escapeMarkup(abstractText.substring(copied, offsets[2 * position]))).append(HIGHLIGHT_START)
+							.append(abstractText, offsets[2 * position], offsets[2 * position + 1]).append(HIGHLIGHT_END);
+					copied = offsets[2 * position + 1];
+				}
+			}
+			int stop = end == words ? abstractText.length() : offsets[2 * end - 1];
+			snippet.append(escapeMarkup(abstractText.substring(copied, stop)));
+			if (end < words) {
+				snippet.append("...");
+			}
+			return snippet.toString();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Puts MARKUP_ESCAPE before every marker and escape character in article text that goes into a
+	 * highlighted result, so the only bare markers are those of the snippets. Null stays null.
+	 */
+	static String escapeMarkup(String text) {
+		if (text == null) {
+			return null;
+		}
+		StringBuilder escaped = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == MARKUP_ESCAPE || c == HIGHLIGHT_START.charAt(0) || c == HIGHLIGHT_END.charAt(0)) {
+				escaped.append(MARKUP_ESCAPE);
+			}
+			escaped.append(c);
+		}
+		return escaped.toString();
+	}
+
+	/**
+	 * Splits highlighted text into its pieces with the escapes removed: plain text at even indexes and
+	 * highlighted words at odd ones, so a result can be shown without ever mistaking article text for a marker
+	 */
+	static List<String> parseMarkup(String markedUp) {
+		List<String> pieces = new ArrayList<>();
+		StringBuilder piece = new StringBuilder();
+		for (int i = 0; i < markedUp.length(); i++) {
+			char c = markedUp.charAt(i);
+			boolean highlighted = pieces.size() % 2 == 1;
+			if (c == MARKUP_ESCAPE && i + 1 < markedUp.length()) {
+				piece.append(markedUp.charAt(++i));
+			} else if (c == (highlighted ? HIGHLIGHT_END : HIGHLIGHT_START).charAt(0)) {
+				pieces.add(piece.toString());
+				piece.setLength(0);
+			} else {
+				piece.append(c);
+			}
+		}
+		pieces.add(piece.toString());
+		return pieces;
+	}
+
+	/**
+	 * Levenshtein distance between a and b, or -1 as soon as it is known to exceed max
+	 */
+	static int editDistance(String a, String b, int max) {
+		if (Math.abs(a.length() - b.length()) > max) {
+			return -1;
+		}
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = current[0];
+			for (int j = 1; j <= b.length(); j++) {
+				int substitute = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+				current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if (rowMin > max) {
+				return -1;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[b.length()] <= max ? previous[b.length()] : -1;
+	}
+
+	// Articles where, at consecutive positions, each word appears as one of its alternative terms
+	private static int[] phrase(List<List<Postings>> alternatives) {
+		int[] docs = null;
+		for (List<Postings> word : alternatives) {
+			int[] wordDocs = NO_DOCS;
+			for (Postings postings : word) {
+				wordDocs = union(wordDocs, postings.docIds());
+			}
+			docs = docs == null ? wordDocs : intersect(docs, wordDocs);
+			if (docs.length == 0) {
+				return docs;
+			}
+		}
+		if (alternatives.size() == 1) {
+			return docs;
+		}
+		int[] matches = new int[docs.length];
+		int count = 0;
+		for (int doc : docs) {
+			if (consecutive(alternatives, doc)) {
+				matches[count++] = doc;
+			}
+		}
+		return Arrays.copyOf(matches, count);
+	}
+
+	// Whether some position of any first-word alternative is followed by an alternative of every later word
+	private static boolean consecutive(List<List<Postings>> alternatives, int doc) {
+		for (Postings first : alternatives.get(0)) {
+			int i = first.find(doc);
+			if (i < 0) {
+				continue;
+			}
+			for (int p = first.posStart[i]; p < first.posStart[i + 1]; p++) {
+				int start = first.positions[p];
+				boolean all = true;
+				for (int k = 1; k < alternatives.size() && all; k++) {
+					all = false;
+					for (Postings next : alternatives.get(k)) {
+						int j = next.find(doc);
+						if (j >= 0 && next.hasPosition(j, start + k)) {
+							all = true;
+							break;
+						}
+					}
+				}
+				if (all) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Articles where the tokens appear consecutively in the field
+	private int[] phrase(Field field, List<String> tokens) {
+		Map<String, Postings> dictionary = dictionaries.get(field);
+		Postings[] lists = new Postings[tokens.size()];
+		int rarest = 0;
+		for (int k = 0; k < tokens.size(); k++) {
+			lists[k] = dictionary.get(tokens.get(k));
+			if (lists[k] == null) {
+				return NO_DOCS;
+			}
+			if (lists[k].size < lists[rarest].size) {
+				rarest = k;
+			}
+		}
+		if (lists.length == 1) {
+			return lists[0].docIds();
+		}
+
+		// Walk the rarest list and probe the others
+		int[] matches = new int[lists[rarest].size];
+		int count = 0;
+		int[] index = new int[lists.length];
+		for (int r = 0; r < lists[rarest].size; r++) {
+			int doc = lists[rarest].docs[r];
+			boolean inAll = true;
+			for (int k = 0; k < lists.length && inAll; k++) {
+				index[k] = (k == rarest) ? r : lists[k].find(doc);
+				inAll = index[k] >= 0;
+			}
+			if (inAll && consecutive(lists, index)) {
+				matches[count++] = doc;
+			}
+		}
+		return Arrays.copyOf(matches, count);
+	}
+
+	// Whether some position of the first token is followed by every later token in order
+	private static boolean consecutive(Postings[] lists, int[] index) {
+		Postings first = lists[0];
+		for (int p = first.posStart[index[0]]; p < first.posStart[index[0] + 1]; p++) {
+			int start = first.positions[p];
+			boolean all = true;
+			for (int k = 1; k < lists.length && all; k++) {
+				all = lists[k].hasPosition(index[k], start + k);
+			}
+			if (all) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Union of two sorted ID arrays
+	static int[] union(int[] a, int[] b) {
+		if (a.length == 0) return b;
+		if (b.length == 0) return a;
+		int[] out = new int[a.length + b.length];
+		int i = 0, j = 0, n = 0;
+		while (i < a.length || j < b.length) {
+			if (j >= b.length || (i < a.length && a[i] < b[j])) {
+				out[n++] = a[i++];
+			} else if (i >= a.length || b[j] < a[i]) {
+				out[n++] = b[j++];
+			} else {
+				out[n++] = a[i++];
+				j++;
+			}
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	// Intersection of two sorted ID arrays
+	static int[] intersect(int[] a, int[] b) {
+		int[] out = new int[Math.min(a.length, b.length)];
+		int i = 0, j = 0, n = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (b[j] < a[i]) {
+				j++;
+			} else {
+				out[n++] = a[i++];
+				j++;
+			}
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	// IDs of a that are not in b, both sorted
+	static int[] difference(int[] a, int[] b) {
+		int[] out = new int[a.length];
+		int j = 0, n = 0;
+		for (int id : a) {
+			while (j < b.length && b[j] < id) {
+				j++;
+			}
+			if (j >= b.length || b[j] != id) {
+				out[n++] = id;
+			}
+		}
+		return Arrays.copyOf(out, n);
+	}
+}
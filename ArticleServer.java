@@ -0,0 +1,394 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p> ArticleServer Class </p>
+ *
+ * <p> Description: Headless article service that owns the article database. Front-ends connect to it
+ * through ArticleClient over a loopback socket, so several JavaFX clients can share one H2 file, which
+ * embedded mode only lets a single process open. Every client connection is served by its own thread
+ * with its own store inside this one process, so they all share a warm database cache. The store is an
+ * Article on the database file, or a ShardedArticleStore over article.shards files next to it when that
+ * system property is set to a number of shards. </p>
+ *
+ * <p> The server keeps its files in the data directory named by the article.data.dir system property,
+ * by default .article-server in the user's home directory, which only its owner can read. A connection
+ * must first send the token stored there, so only processes of the same account can use the server, and
+ * the user signed in to that front-end. Backups are only read and written in the backups folder of the
+ * data directory. </p>
+ *
+ * <p> The token is the only trust boundary. User accounts live in the front-ends, so the server has no
+ * record to check the signed-in user against and takes that user's name, roles, special access and groups
+ * as the front-end sends them. Access rights are worked out from that user for every request, never from
+ * request arguments, which keeps each front-end within what its user may see and change, but a process
+ * that holds the token can claim to be any user. </p>
+ *
+ * <p> Usage: {@code java -Darticle.shards=4 ArticleServer [port] [dbFileUrl]} </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ArticleServer {
+
+	static final Path DATA_DIR = Paths.get(System.getProperty("article.data.dir",
+			Paths.get(System.getProperty("user.home"), ".article-server").toString())).toAbsolutePath().normalize();
+	static final Path TOKEN_FILE = DATA_DIR.resolve("server.token");
+	static final Path BACKUP_DIR = DATA_DIR.resolve("backups");
+	private static final int TOKEN_BYTES = 32;
+
+	// Number of shards to spread articles over, or 0 to keep them in the one database file
+	static final int SHARDS = Integer.getInteger("article.shards", 0);
+
+	private final int port;
+	private final String fileUrl;
+	private final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+		Thread thread = new Thread(r, "article-server-worker");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Map<Integer, Session> sessionOwners = new ConcurrentHashMap<>();   // By database session ID
+	private ServerSocket serverSocket;
+	private byte[] token;
+
+	// One authenticated client connection
+	private static class Session {
+		final User user;
+		int databaseSession = -1;   // Database session ID handed to the client, which may cancel it
+
+		Session(User user) {
+			this.user = user;
+		}
+	}
+
+	/**
+	 * A server for the database file at fileUrl, e.g. Article.DB_URL, opened in H2 mixed mode
+	 */
+	public ArticleServer(int port, String fileUrl) {
+		this.port = port;
+		this.fileUrl = fileUrl;
+	}
+
+	/**
+	 * Opens the store a client connection works on, sharded when article.shards is set
+	 */
+	static ArticleStore openStore(String fileUrl, int shards) throws Exception {
+		if (shards > 0) {
+			return new ShardedArticleStore(fileUrl, shards);
+		}
+		Article articleDatabase = new Article();
+		articleDatabase.connectToDatabase(Article.serverModeUrl(fileUrl));
+		return articleDatabase;
+	}
+
+	/**
+	 * The token a client must send before any request, created on first use
+	 */
+	static String token() throws IOException {
+		return Base64.getEncoder().encodeToString(SecretFile.readOrCreate(TOKEN_FILE, TOKEN_BYTES));
+	}
+
+	/**
+	 * Resolves a backup file name inside the backups folder, rejecting names that lead out of it
+	 */
+	static String backupPath(String fileName) throws IOException {
+		return backupPath(BACKUP_DIR, fileName);
+	}
+
+	// Resolves a backup file name inside the given backups folder
+	static String backupPath(Path backupDir, String fileName) throws IOException {
+		Path path = backupDir.resolve(fileName).normalize();
+		if (!path.startsWith(backupDir) || path.equals(backupDir) || Files.isSymbolicLink(path)
+				|| !path.getParent().toRealPath().startsWith(backupDir.toRealPath())) {
+			throw new IOException("Backup files must be inside " + backupDir);
+		}
+		return path.toString();
+	}
+
+	/**
+	 * Binds the loopback port and starts accepting clients on a background thread
+	 */
+	public void start() throws IOException {
+		token = token().getBytes(StandardCharsets.US_ASCII);
+		SecretFile.createDirectories(BACKUP_DIR);
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(this::acceptLoop, "article-server-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		workers.execute(this::warmUp);
+		System.out.println("Article server listening on " + ArticleProtocol.HOST + ":" + port);
+	}
+
+	/**
+	 * Stops accepting clients; connections already open finish on their own
+	 */
+	public void stop() {
+		try {
+			if (serverSocket != null) serverSocket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		workers.shutdown();
+	}
+
+	// Builds the search index and autocomplete tries before the first client needs them
+	private void warmUp() {
+		ArticleStore articleDatabase = null;
+		try {
+			articleDatabase = openStore(fileUrl, SHARDS);
+			articleDatabase.warmUp();
+		} catch (Exception e) {
+			System.err.println("Error warming up search structures: " + e.getMessage());
+		} finally {
+			if (articleDatabase != null) {
+				articleDatabase.closeConnection();
+			}
+		}
+	}
+
+	private void acceptLoop() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				workers.execute(() -> serve(socket));
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					System.err.println("Error accepting client: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	// Handles one client connection until it disconnects
+	private void serve(Socket socket) {
+		ArticleStore articleDatabase = null;
+		Session session = null;
+		try (Socket client = socket;
+			 DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+			 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()))) {
+
+			session = authenticate(in, out);
+			if (session == null) {
+				return;
+			}
+			articleDatabase = openStore(fileUrl, SHARDS);
+
+			while (true) {
+				byte op;
+				try {
+					op = in.readByte();
+				} catch (EOFException e) {
+					return;  // Client closed the connection
+				}
+				Object[] args = readArgs(in, ArticleProtocol.REQUEST_LIMITS);
+
+				try {
+					articleDatabase.ensureConnected();
+					Object result = dispatch(articleDatabase, session, op, args);
+					out.writeByte(ArticleProtocol.OK);
+					ArticleProtocol.writeValue(out, result);
+				} catch (Exception e) {
+					out.writeByte(ArticleProtocol.ERROR);
+					ArticleProtocol.writeString(out, String.valueOf(e.getMessage()));
+				}
+				out.flush();
+			}
+		} catch (Exception e) {
+			System.err.println("Article client disconnected: " + e.getMessage());
+		} finally {
+			if (session != null) {
+				sessionOwners.remove(session.databaseSession, session);
+			}
+			if (articleDatabase != null) {
+				articleDatabase.closeConnection();
+			}
+		}
+	}
+
+	// Reads the first request, which must carry the token and the signed-in user. Answers it and returns
+	// the session, or answers with an error and returns null so the connection is closed.
+	private Session authenticate(DataInputStream in, DataOutputStream out) throws Exception {
+		byte op = in.readByte();
+		Object[] args = readArgs(in, ArticleProtocol.AUTH_LIMITS);
+		if (op != ArticleProtocol.AUTH || args.length != 2 || !(args[0] instanceof String) || !(args[1] instanceof User)
+				|| !MessageDigest.isEqual(token, ((String) args[0]).getBytes(StandardCharsets.US_ASCII))) {
+			out.writeByte(ArticleProtocol.ERROR);
+			ArticleProtocol.writeString(out, "Not authenticated: the client must send the token in " + TOKEN_FILE);
+			out.flush();
+			return null;
+		}
+		out.writeByte(ArticleProtocol.OK);
+		ArticleProtocol.writeValue(out, null);
+		out.flush();
+		return new Session((User) args[1]);
+	}
+
+	private static Object[] readArgs(DataInputStream in, ArticleProtocol.Limits limits) throws Exception {
+		short count = in.readShort();
+		if (count < 0 || count > ArticleProtocol.MAX_ARGS) {
+			throw new IOException("Argument count " + count + " is outside 0.." + ArticleProtocol.MAX_ARGS);
+		}
+		Object[] args = new Object[count];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = ArticleProtocol.readValue(in, limits);
+		}
+		return args;
+	}
+
+	// Instructors and the special access group read decrypted bodies, as in the front-ends
+	private static boolean canViewBody(User user) {
+		return user.hasRole("Instructor") || user.getIsSpecial();
+	}
+
+	// Admins and instructors manage articles
+	private static boolean canEdit(User user) {
+		return user.hasRole("Admin") || user.hasRole("Instructor");
+	}
+
+	private static void requireEditor(User user) {
+		if (!canEdit(user)) {
+			throw new SecurityException("Only admins and instructors can do this");
+		}
+	}
+
+	// Body search tells which words a body holds, so it needs the right to read bodies
+	static void requireBodyReader(User user) {
+		if (!canViewBody(user)) {
+			throw new SecurityException("Only instructors and the special access group can search article bodies");
+		}
+	}
+
+	// Runs one request against the store of this connection, with the rights of its user
+	@SuppressWarnings("unchecked")
+	private Object dispatch(ArticleStore db, Session session, byte op, Object[] args) throws Exception {
+		User user = session.user;
+		switch (op) {
+		case ArticleProtocol.REGISTER:
+			requireEditor(user);
+			db.register((Article) args[0]);
+			return null;
+		case ArticleProtocol.ARTICLE_EXISTS_BY_TITLE:
+			return db.doesArticleExist((String) args[0]);
+		case ArticleProtocol.ARTICLE_EXISTS_BY_ID:
+			return db.doesArticleExist((Integer) args[0]);
+		case ArticleProtocol.IDENTIFIER_EXISTS:
+			return db.doesIdentifierExist((String) args[0]);
+		case ArticleProtocol.DISPLAY_ALL:
+			return db.displayAllArticles(user);
+		case ArticleProtocol.BY_GROUPS:
+			requireEditor(user);
+			return db.getArticlesByGroupsAsString((List<String>) args[0], canViewBody(user));
+		case ArticleProtocol.BY_IDENTIFIERS:
+			return db.getArticlesByIdentifiersAsString((List<String>) args[0]);
+		case ArticleProtocol.BY_LEVEL:
+			return db.getArticlesByContentLevelAsString((String) args[0], user);
+		case ArticleProtocol.BY_AUTHOR:
+			return db.getArticlesByAuthorAsString((String) args[0]);
+		case ArticleProtocol.BY_TITLE:
+			return db.getArticlesByTitleAsString((String) args[0]);
+		case ArticleProtocol.BY_ABSTRACT:
+			return db.getArticlesByAbstractAsString((String) args[0]);
+		case ArticleProtocol.BY_QUERY:
+			return db.getArticlesByQueryAsString((String) args[0]);
+		case ArticleProtocol.BY_RELEVANCE:
+			return db.getArticlesByRelevanceAsString((String) args[0], (Integer) args[1]);
+		case ArticleProtocol.SUGGEST:
+			return db.getSuggestions((String) args[0], (String) args[1], (Integer) args[2]);
+		case ArticleProtocol.FACETS:
+			return db.getFacetsAsString((String) args[0]);
+		case ArticleProtocol.SEARCH:
+			return db.search(((SearchCriteria) args[0]).visibleTo(user));
+		case ArticleProtocol.BY_BODY:
+			requireBodyReader(user);
+			return db.getArticlesByBodyAsString((String) args[0]);
+		case ArticleProtocol.SESSION_ID:
+			sessionOwners.remove(session.databaseSession, session);
+			session.databaseSession = db.getSessionId();
+			sessionOwners.put(session.databaseSession, session);
+			return session.databaseSession;
+		case ArticleProtocol.CANCEL_SESSION:
+			Session owner = sessionOwners.get((Integer) args[0]);
+			if (owner == null || !owner.user.getUserName().equals(user.getUserName())) {
+				return false;  // Only the user's own searches can be cancelled
+			}
+			return db.cancelSession((Integer) args[0]);
+		case ArticleProtocol.SAVE_SEARCH:
+			return db.saveSearch(user.getUserName(), (String) args[0]);
+		case ArticleProtocol.DELETE_SAVED_SEARCH:
+			db.deleteSavedSearch(user.getUserName(), (Integer) args[0]);
+			return null;
+		case ArticleProtocol.SAVED_SEARCHES:
+			return db.getSavedSearchesAsString(user.getUserName());
+		case ArticleProtocol.NOTIFICATIONS:
+			return db.takeNotificationsAsString(user.getUserName());
+		case ArticleProtocol.MORE_INFO:
+			return db.getMoreInfoForArticleAsString((Integer) args[0], canViewBody(user));
+		case ArticleProtocol.DELETE:
+			requireEditor(user);
+			db.deleteArticle((Integer) args[0]);
+			return null;
+		case ArticleProtocol.DELETE_BY_IDENTIFIER:
+			requireEditor(user);
+			db.deleteArticlesByIdentifier((String) args[0]);
+			return null;
+		case ArticleProtocol.UPDATE:
+			requireEditor(user);
+			db.updateArticle((Integer) args[0], (Article) args[1]);
+			return null;
+		case ArticleProtocol.CLEAR:
+			requireEditor(user);
+			db.clearDatabase();
+			return null;
+		case ArticleProtocol.GET_BODY:
+			requireEditor(user);   // The stored body, which an update carries over
+			return db.getBody((Integer) args[0]);
+		case ArticleProtocol.ALL_SYSTEM_INFO:
+			return db.getAllSystemInfo();
+		case ArticleProtocol.BACKUP:
+			requireEditor(user);
+			db.backupArticles(backupPath((String) args[0]));
+			return null;
+		case ArticleProtocol.RESTORE:
+			requireEditor(user);
+			db.restoreArticles(backupPath((String) args[0]));
+			return null;
+		case ArticleProtocol.BACKUP_BY_GROUP:
+			requireEditor(user);
+			db.backupArticlesByGroup(backupPath((String) args[0]), (String) args[1]);
+			return null;
+		default:
+			throw new IllegalArgumentException("Unknown operation: " + op);
+		}
+	}
+
+	/**
+	 * Runs the server in the foreground until the process is stopped, so it outlives the front-ends
+	 */
+	public static void main(String[] args) throws Exception {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : ArticleProtocol.DEFAULT_PORT;
+		String fileUrl = args.length > 1 ? args[1] : Article.DB_URL;
+		ArticleServer server = new ArticleServer(port, fileUrl);
+		server.start();
+		Thread.currentThread().join();
+	}
+}
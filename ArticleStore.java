@@ -0,0 +1,103 @@
+package application;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p> ArticleStore Interface </p>
+ *
+ * <p> Description: The operations ArticleServer serves, implemented by Article over one H2 database and
+ * by ShardedArticleStore over several. The server opens one store per client connection and picks the
+ * implementation from the article.shards setting, so the front-ends work the same with either. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+interface ArticleStore {
+
+	void register(Article articleToAdd) throws Exception;
+
+	boolean doesArticleExist(String title);
+
+	boolean doesArticleExist(int id);
+
+	boolean doesIdentifierExist(String identifier);
+
+	String displayAllArticles(User user) throws Exception;
+
+	String getArticlesByGroupsAsString(List<String> groups, boolean canViewBody) throws Exception;
+
+	String getArticlesByIdentifiersAsString(List<String> identifiers) throws Exception;
+
+	String getArticlesByContentLevelAsString(String selectedLevel, User user) throws Exception;
+
+	String getArticlesByAuthorAsString(String author) throws Exception;
+
+	String getArticlesByTitleAsString(String phrases) throws Exception;
+
+	String getArticlesByAbstractAsString(String phrases) throws Exception;
+
+	String getArticlesByQueryAsString(String query) throws Exception;
+
+	String getArticlesByRelevanceAsString(String words, int limit) throws Exception;
+
+	String getArticlesByBodyAsString(String words) throws Exception;
+
+	String search(SearchCriteria criteria) throws Exception;
+
+	List<String> getSuggestions(String kind, String prefix, int limit) throws SQLException;
+
+	String getFacetsAsString(String query) throws Exception;
+
+	String saveSearch(String username, String query) throws Exception;
+
+	void deleteSavedSearch(String username, int searchId) throws Exception;
+
+	String getSavedSearchesAsString(String username) throws Exception;
+
+	String takeNotificationsAsString(String username) throws Exception;
+
+	String getMoreInfoForArticleAsString(int id, boolean canViewBody) throws Exception;
+
+	void deleteArticle(int articleId) throws Exception;
+
+	void deleteArticlesByIdentifier(String identifier) throws Exception;
+
+	void updateArticle(int articleId, Article articleToUpdate) throws Exception;
+
+	void clearDatabase() throws Exception;
+
+	String getBody(int articleId) throws Exception;
+
+	Set<String> getAllSystemInfo() throws SQLException;
+
+	void backupArticles(String fileName) throws Exception;
+
+	void restoreArticles(String fileName) throws Exception;
+
+	void backupArticlesByGroup(String fileName, String groupName) throws Exception;
+
+	/**
+	 * ID of the database session serving this store, which cancelSession on another store accepts
+	 */
+	int getSessionId() throws SQLException;
+
+	/**
+	 * Cancels what the store with the given session ID is running
+	 */
+	boolean cancelSession(int sessionId) throws SQLException;
+
+	/**
+	 * Builds the in-memory search structures now instead of on the first search
+	 */
+	void warmUp() throws SQLException;
+
+	/**
+	 * Reconnects if the database connection was lost
+	 */
+	void ensureConnected() throws SQLException;
+
+	void closeConnection();
+}
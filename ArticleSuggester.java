@@ -0,0 +1,258 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * <p> ArticleSuggester Class </p>
+ *
+ * <p> Description: Autocomplete for the search dialogs. Title words, author names and keywords are kept
+ * in one prefix trie per kind, weighted by how many articles use them. Every trie node stores its
+ * children in small sorted arrays rather than maps, and the highest weight found anywhere below it, so a
+ * best-first walk from the node of the typed prefix returns the most popular completions after visiting
+ * only a few nodes, independent of how many entries share the prefix. </p>
+ *
+ * <p> Author names and keywords are the comma-separated entries of their columns; titles contribute
+ * their individual words. One suggester is shared by every Article connected to the same database in this
+ * process. It is built from the table on first use or at server start, and kept current by Article with
+ * the before and after row of every committed change. When the ArticleGeneration counter shows that
+ * another process wrote to the database through H2 server mode, Article drops the tries and they are
+ * rebuilt on next use. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ArticleSuggester {
+
+	/**
+	 * What can be completed
+	 */
+	enum Kind { TITLE_WORD, AUTHOR, KEYWORD }
+
+	private static final Map<String, ArticleSuggester> SUGGESTERS = new HashMap<>();
+
+	private static final char[] NO_KEYS = new char[0];
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	// One trie node; the path from the root spells the lower-case entry
+	private static class Node {
+		char[] keys = NO_KEYS;           // Sorted child characters
+		Node[] children = NO_CHILDREN;
+		String entry;                    // Entry as first written, when one ends here
+		int weight;                      // Articles using the entry ending here
+		int maxBelow;                    // Highest weight in this subtree, including this node
+
+		Node child(char c) {
+			int i = Arrays.binarySearch(keys, c);
+			return i >= 0 ? children[i] : null;
+		}
+
+		Node addChild(char c) {
+			int i = Arrays.binarySearch(keys, c);
+			if (i >= 0) {
+				return children[i];
+			}
+			int at = -i - 1;
+			char[] newKeys = new char[keys.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, at);
+			System.arraycopy(children, 0, newChildren, 0, at);
+			newKeys[at] = c;
+			newChildren[at] = new Node();
+			System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+			System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+			keys = newKeys;
+			children = newChildren;
+			return newChildren[at];
+		}
+
+		void removeChild(char c) {
+			int i = Arrays.binarySearch(keys, c);
+			if (i < 0) {
+				return;
+			}
+			char[] newKeys = new char[keys.length - 1];
+			Node[] newChildren = new Node[children.length - 1];
+			System.arraycopy(keys, 0, newKeys, 0, i);
+			System.arraycopy(children, 0, newChildren, 0, i);
+			System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+			System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+			keys = newKeys;
+			children = newChildren;
+		}
+
+		void recomputeMax() {
+			maxBelow = weight;
+			for (Node child : children) {
+				maxBelow = Math.max(maxBelow, child.maxBelow);
+			}
+		}
+	}
+
+	private final Map<Kind, Node> roots = new EnumMap<>(Kind.class);
+	private boolean built = false;
+
+	ArticleSuggester() {
+		clear();
+	}
+
+	/**
+	 * Returns the suggester shared by every Article connected to the given database URL
+	 */
+	static synchronized ArticleSuggester forDatabase(String dbUrl) {
+		return SUGGESTERS.computeIfAbsent(dbUrl, url -> new ArticleSuggester());
+	}
+
+	/**
+	 * Builds the tries from the articles table unless they are already built
+	 */
+	synchronized void ensureBuilt(Connection connection) throws SQLException {
+		if (built) {
+			return;
+		}
+		clear();
+		String query = "SELECT id, title, authors, abstract, keywords, level, identifier, systemInfo FROM articles";
+		try (Statement stmt = connection.createStatement();
+			 ResultSet rs = stmt.executeQuery(query)) {
+			while (rs.next()) {
+				apply(ArticleRow.fromResultSet(rs), 1);
+			}
+		}
+		built = true;
+	}
+
+	/**
+	 * Applies one committed change; before is null for an insert and after is null for a delete
+	 */
+	synchronized void update(ArticleRow before, ArticleRow after) {
+		if (!built) {
+			return;  // The build will read the committed table
+		}
+		if (before != null) {
+			apply(before, -1);
+		}
+		if (after != null) {
+			apply(after, 1);
+		}
+	}
+
+	/**
+	 * Forgets everything; the tries are rebuilt from the table on next use
+	 */
+	synchronized void invalidate() {
+		clear();
+		built = false;
+	}
+
+	private void clear() {
+		for (Kind kind : Kind.values()) {
+			roots.put(kind, new Node());
+		}
+	}
+
+	/**
+	 * Distinct entries an article contributes to a trie
+	 */
+	static Set<String> entries(ArticleRow row, Kind kind) {
+		Set<String> entries = new LinkedHashSet<>();
+		if (kind == Kind.TITLE_WORD) {
+			entries.addAll(ArticleSearchIndex.tokenize(row.title));
+			return entries;
+		}
+		String column = kind == Kind.AUTHOR ? row.authors : row.keywords;
+		if (column != null) {
+			for (String entry : column.split(",")) {
+				if (!entry.trim().isEmpty()) {
+					entries.add(entry.trim());
+				}
+			}
+		}
+		return entries;
+	}
+
+	private void apply(ArticleRow row, int delta) {
+		for (Kind kind : Kind.values()) {
+			for (String entry : entries(row, kind)) {
+				add(roots.get(kind), entry, delta);
+			}
+		}
+	}
+
+	// Adds delta to the weight of the entry and fixes maxBelow along its path
+	private static void add(Node root, String entry, int delta) {
+		String key = entry.toLowerCase();
+		Node[] path = new Node[key.length() + 1];
+		path[0] = root;
+		for (int i = 0; i < key.length(); i++) {
+			path[i + 1] = delta > 0 ? path[i].addChild(key.charAt(i)) : path[i].child(key.charAt(i));
+			if (path[i + 1] == null) {
+				return;  // Removing an entry that was never added
+			}
+		}
+		Node end = path[key.length()];
+		end.weight = Math.max(0, end.weight + delta);
+		if (end.entry == null) {
+			end.entry = entry;
+		}
+		if (end.weight == 0) {
+			end.entry = null;
+		}
+		for (int i = key.length(); i >= 0; i--) {
+			path[i].recomputeMax();
+			// Drop nodes that no longer lead to any entry
+			if (i > 0 && path[i].maxBelow == 0 && path[i].children.length == 0) {
+				path[i - 1].removeChild(key.charAt(i - 1));
+			}
+		}
+	}
+
+	/**
+	 * Returns up to limit entries starting with the prefix, ignoring case, most used first
+	 */
+	synchronized List<String> complete(Kind kind, String prefix, int limit) {
+		List<String> completions = new ArrayList<>();
+		if (prefix == null || limit <= 0) {
+			return completions;
+		}
+		Node node = roots.get(kind);
+		String key = prefix.toLowerCase();
+		for (int i = 0; i < key.length() && node != null; i++) {
+			node = node.child(key.charAt(i));
+		}
+		if (node == null || node.maxBelow == 0) {
+			return completions;
+		}
+
+		// Best-first: subtrees are queued by their best weight, entries by their own weight,
+		// so entries leave the queue in order of popularity
+		PriorityQueue<Object[]> queue = new PriorityQueue<>((a, b) -> Integer.compare((int) b[1], (int) a[1]));
+		queue.add(new Object[] {node, node.maxBelow});
+		while (!queue.isEmpty() && completions.size() < limit) {
+			Object[] next = queue.poll();
+			if (next[0] instanceof String) {
+				completions.add((String) next[0]);
+				continue;
+			}
+			Node current = (Node) next[0];
+			if (current.weight > 0) {
+				queue.add(new Object[] {current.entry, current.weight});
+			}
+			for (Node child : current.children) {
+				queue.add(new Object[] {child, child.maxBelow});
+			}
+		}
+		return completions;
+	}
+}
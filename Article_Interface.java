@@ -25,7 +25,7 @@ import java.util.*;
 public class Article_Interface extends Application {
 		
 
-    private static Article articleDatabase; // Object of Article class for managing articles
+    private static ArticleClient articleDatabase; // Client of the article server for managing articles
     private Map<String, User> userDatabase = new HashMap<>(); // Database to store user information
     private Map<String, User> specialAccessGroup = new HashMap<>(); // A map that stores the special access group memebers where the key is the username and the value is a User object.
     private User user; // The current user
@@ -42,7 +42,7 @@ public class Article_Interface extends Application {
 //        this.specialAccessGroup = specialAccessGroup;  // Initialize the special access group
         this.userDatabase = userDatabase; // Initialize the user database
         this.user = user; // Initialize the current user
-        articleDatabase = new Article();
+        articleDatabase = new ArticleClient(user);
         articleDatabase.connectToDatabase();
     }
 
@@ -315,11 +315,11 @@ public class Article_Interface extends Application {
     	
     	String articles;
     	if (user.getIsSpecial()) {
-            articles = articleDatabase.displayAllArticles(user);
+            articles = articleDatabase.displayAllArticles();
             showAlert("All Articles", articles);
     	}
     	else {
-            articles = articleDatabase.displayAllArticles(user);
+            articles = articleDatabase.displayAllArticles();
             showAlert("All Articles", articles);
 
     	}
@@ -0,0 +1,93 @@
+package application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * <p> BodyBlindIndex Class </p>
+ *
+ * <p> Description: Turns the words of an article body into blind index tokens, so encrypted bodies can
+ * be searched without decrypting them. A token is the keyed HMAC-SHA256 of one normalized word (the
+ * lower-case letter and digit runs of ArticleSearchIndex.tokenize), cut to 128 bits and written in hex.
+ * Article stores the distinct tokens of each body in the article_body_tokens table when the article is
+ * registered, updated or restored, and a body search computes the tokens of the query words and looks
+ * them up there. Neither the table nor the query ever holds a plaintext word. </p>
+ *
+ * <p> The key is read from the file named by the article.blindindex.keyfile system property, by default
+ * .article-blind-index.key in the user's home directory, and a random key is written there the first
+ * time, created with owner-only permissions. Without the key a token cannot be linked to a word, though
+ * equal words still give equal tokens, so the table shows how often each unknown word occurs. Tokens made
+ * with another key never match, so Article records the fingerprint of the key the table was filled with
+ * and rebuilds the table on connect when the key has changed. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class BodyBlindIndex {
+
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final int KEY_BYTES = 32;
+	private static final int TOKEN_BYTES = 16;   // Truncated HMAC, collisions stay negligible
+
+	static final Path KEY_FILE = Paths.get(System.getProperty("article.blindindex.keyfile",
+			Paths.get(System.getProperty("user.home"), ".article-blind-index.key").toString()));
+
+	private static SecretKeySpec key;
+
+	private BodyBlindIndex() {
+	}
+
+	/**
+	 * Distinct tokens of every word of a body, in order of first appearance
+	 */
+	static Set<String> tokens(String body) throws GeneralSecurityException, IOException {
+		Set<String> tokens = new LinkedHashSet<>();
+		if (body == null) {
+			return tokens;
+		}
+		Mac mac = newMac();
+		for (String word : new LinkedHashSet<>(ArticleSearchIndex.tokenize(body))) {
+			tokens.add(token(mac, word));
+		}
+		return tokens;
+	}
+
+	private static String token(Mac mac, String word) {
+		byte[] digest = mac.doFinal(word.getBytes(StandardCharsets.UTF_8));
+		StringBuilder hex = new StringBuilder(TOKEN_BYTES * 2);
+		for (int i = 0; i < TOKEN_BYTES; i++) {
+			hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Identifies the key without revealing it: the token of a string no body word can produce
+	 */
+	static String keyFingerprint() throws GeneralSecurityException, IOException {
+		return token(newMac(), "\u0000key");
+	}
+
+	private static Mac newMac() throws GeneralSecurityException, IOException {
+		Mac mac = Mac.getInstance(ALGORITHM);
+		mac.init(key());
+		return mac;
+	}
+
+	// Loads the key, creating it on first use
+	private static synchronized SecretKeySpec key() throws IOException {
+		if (key == null) {
+			key = new SecretKeySpec(SecretFile.readOrCreate(KEY_FILE, KEY_BYTES), ALGORITHM);
+		}
+		return key;
+	}
+}
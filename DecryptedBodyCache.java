@@ -0,0 +1,136 @@
+package application;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p> DecryptedBodyCache Class </p>
+ *
+ * <p> Description: Bounded cache of decrypted article bodies, so an instructor who views the same
+ * articles again does not pay for Base64 decoding and AES decryption each time. The budget is the
+ * total number of plaintext and ciphertext bytes held, not the number of entries. Plaintext is kept
+ * as a byte array and overwritten with zeros as soon as an entry is evicted, invalidated or the
+ * cache is cleared, so decrypted content does not linger in memory past its use. </p>
+ *
+ * <p> Each Article connection, meaning each user session, owns its own cache, and only the code paths
+ * that are allowed to see bodies use it. An entry is only returned when the stored ciphertext and IV
+ * source are unchanged, so an article updated through another session is never served stale. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class DecryptedBodyCache {
+
+	// Default budget per session: 4 MB
+	static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+	private static class Entry {
+		final String encrypted;   // Stored ciphertext the plaintext was decrypted from
+		final String ivSource;
+		final byte[] plain;
+
+		Entry(String encrypted, String ivSource, byte[] plain) {
+			this.encrypted = encrypted;
+			this.ivSource = ivSource;
+			this.plain = plain;
+		}
+
+		long size() {
+			return plain.length + 2L * encrypted.length();
+		}
+	}
+
+	private final long maxBytes;
+	private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);  // Access order
+	private long currentBytes = 0;
+
+	// Metrics
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	DecryptedBodyCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns a copy of the cached plaintext for the article, or null if it is not cached or the
+	 * stored ciphertext has changed since it was decrypted
+	 */
+	synchronized byte[] get(int articleId, String encrypted, String ivSource) {
+		Entry entry = entries.get(articleId);
+		if (entry == null || !entry.encrypted.equals(encrypted) || !entry.ivSource.equals(ivSource)) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return Arrays.copyOf(entry.plain, entry.plain.length);
+	}
+
+	/**
+	 * Caches a copy of the plaintext, evicting and zeroing least recently used entries to stay in budget
+	 */
+	synchronized void put(int articleId, String encrypted, String ivSource, byte[] plain) {
+		Entry entry = new Entry(encrypted, ivSource, Arrays.copyOf(plain, plain.length));
+		if (entry.size() > maxBytes) {
+			Arrays.fill(entry.plain, (byte) 0);
+			return;
+		}
+		discard(entries.put(articleId, entry));
+		currentBytes += entry.size();
+
+		Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+		while (currentBytes > maxBytes && eldest.hasNext()) {
+			Entry evicted = eldest.next().getValue();
+			eldest.remove();
+			discard(evicted);
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes and zeroes the cached body of one article
+	 */
+	synchronized void invalidate(int articleId) {
+		discard(entries.remove(articleId));
+	}
+
+	/**
+	 * Removes and zeroes every cached body, e.g. when the session ends
+	 */
+	synchronized void clear() {
+		for (Entry entry : entries.values()) {
+			Arrays.fill(entry.plain, (byte) 0);
+		}
+		entries.clear();
+		currentBytes = 0;
+	}
+
+	/**
+	 * Returns the cached plaintext itself rather than a copy, so a test can check it is zeroed once dropped
+	 */
+	synchronized byte[] heldPlaintext(int articleId) {
+		Entry entry = entries.get(articleId);
+		return entry == null ? null : entry.plain;
+	}
+
+	// Zeroes an entry that has left the map and releases its share of the budget
+	private void discard(Entry entry) {
+		if (entry != null) {
+			Arrays.fill(entry.plain, (byte) 0);
+			currentBytes -= entry.size();
+		}
+	}
+
+	synchronized double hitRatio() {
+		long requests = hits + misses;
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	synchronized long getEvictions() { return evictions; }
+	synchronized long sizeInBytes() { return currentBytes; }
+	synchronized int size() { return entries.size(); }
+}
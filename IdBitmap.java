@@ -0,0 +1,392 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * <p> IdBitmap Class </p>
+ *
+ * <p> Description: Compressed set of non-negative article IDs in the layout of a Roaring bitmap. IDs are
+ * grouped by their upper 16 bits; each group is a container holding the lower 16 bits, either as a sorted
+ * array while it has at most ARRAY_LIMIT values or as a plain bitmap of 65536 bits once it has more. A
+ * sparse group so costs two bytes per ID and a dense one at most 8 KB, and AND and OR work container by
+ * container, with word-wide operations between two bitmap containers. </p>
+ *
+ * <p> add and remove change the set in place; and, or and intersect return new results and leave both
+ * operands unchanged. The class is not thread-safe; ArticleBitmapIndex guards its bitmaps with a lock. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class IdBitmap {
+
+	// Largest array container; a bitmap container of 1024 longs is smaller beyond it
+	static final int ARRAY_LIMIT = 4096;
+	private static final int WORDS = 1 << 10;
+
+	private char[] keys = new char[4];                   // Upper 16 bits of each group, sorted
+	private Container[] containers = new Container[4];   // Lower 16 bits of the IDs in each group
+	private int size = 0;
+
+	// The lower 16 bits of the IDs in one group
+	private abstract static class Container {
+		abstract int cardinality();
+		abstract boolean contains(char low);
+		abstract Container add(char low);       // Returns the container to keep, converted when it grew
+		abstract Container remove(char low);    // Returns the container to keep, converted when it shrank
+		abstract Container and(Container other);
+		abstract Container or(Container other);
+		abstract Container copy();
+		abstract int fill(int[] out, int at, int high);   // Writes the full IDs, returns the next index
+	}
+
+	private static class ArrayContainer extends Container {
+		char[] values;
+		int cardinality;
+
+		ArrayContainer(char[] values, int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		int cardinality() {
+			return cardinality;
+		}
+
+		boolean contains(char low) {
+			return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+		}
+
+		Container add(char low) {
+			int i = Arrays.binarySearch(values, 0, cardinality, low);
+			if (i >= 0) {
+				return this;
+			}
+			if (cardinality == ARRAY_LIMIT) {
+				return toBitmap().add(low);
+			}
+			i = -i - 1;
+			if (cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+			}
+			System.arraycopy(values, i, values, i + 1, cardinality - i);
+			values[i] = low;
+			cardinality++;
+			return this;
+		}
+
+		Container remove(char low) {
+			int i = Arrays.binarySearch(values, 0, cardinality, low);
+			if (i >= 0) {
+				System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+				cardinality--;
+			}
+			return this;
+		}
+
+		Container and(Container other) {
+			char[] result = new char[Math.min(cardinality, other.cardinality())];
+			int n = 0;
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				int i = 0, j = 0;
+				while (i < cardinality && j < array.cardinality) {
+					if (values[i] < array.values[j]) {
+						i++;
+					} else if (values[i] > array.values[j]) {
+						j++;
+					} else {
+						result[n++] = values[i];
+						i++;
+						j++;
+					}
+				}
+			} else {
+				for (int i = 0; i < cardinality; i++) {
+					if (other.contains(values[i])) {
+						result[n++] = values[i];
+					}
+				}
+			}
+			return new ArrayContainer(result, n);
+		}
+
+		Container or(Container other) {
+			if (other instanceof BitmapContainer) {
+				return other.or(this);
+			}
+			ArrayContainer array = (ArrayContainer) other;
+			char[] result = new char[cardinality + array.cardinality];
+			int n = 0, i = 0, j = 0;
+			while (i < cardinality || j < array.cardinality) {
+				if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+					result[n++] = values[i++];
+				} else if (i == cardinality || values[i] > array.values[j]) {
+					result[n++] = array.values[j++];
+				} else {
+					result[n++] = values[i++];
+					j++;
+				}
+			}
+			ArrayContainer union = new ArrayContainer(result, n);
+			return n > ARRAY_LIMIT ? union.toBitmap() : union;
+		}
+
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+		}
+
+		int fill(int[] out, int at, int high) {
+			for (int i = 0; i < cardinality; i++) {
+				out[at++] = high | values[i];
+			}
+			return at;
+		}
+
+		BitmapContainer toBitmap() {
+			long[] words = new long[WORDS];
+			for (int i = 0; i < cardinality; i++) {
+				words[values[i] >>> 6] |= 1L << values[i];
+			}
+			return new BitmapContainer(words, cardinality);
+		}
+	}
+
+	private static class BitmapContainer extends Container {
+		final long[] words;
+		int cardinality;
+
+		BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		int cardinality() {
+			return cardinality;
+		}
+
+		boolean contains(char low) {
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		Container add(char low) {
+			if (!contains(low)) {
+				words[low >>> 6] |= 1L << low;
+				cardinality++;
+			}
+			return this;
+		}
+
+		Container remove(char low) {
+			if (contains(low)) {
+				words[low >>> 6] &= ~(1L << low);
+				cardinality--;
+			}
+			return cardinality <= ARRAY_LIMIT ? toArray() : this;
+		}
+
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+			long[] result = new long[WORDS];
+			int cardinality = 0;
+			for (int w = 0; w < WORDS; w++) {
+				result[w] = words[w] & ((BitmapContainer) other).words[w];
+				cardinality += Long.bitCount(result[w]);
+			}
+			BitmapContainer intersection = new BitmapContainer(result, cardinality);
+			return cardinality <= ARRAY_LIMIT ? intersection.toArray() : intersection;
+		}
+
+		Container or(Container other) {
+			BitmapContainer union = (BitmapContainer) copy();
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				for (int i = 0; i < array.cardinality; i++) {
+					union.add(array.values[i]);
+				}
+				return union;
+			}
+			union.cardinality = 0;
+			for (int w = 0; w < WORDS; w++) {
+				union.words[w] |= ((BitmapContainer) other).words[w];
+				union.cardinality += Long.bitCount(union.words[w]);
+			}
+			return union;
+		}
+
+		Container copy() {
+			return new BitmapContainer(words.clone(), cardinality);
+		}
+
+		int fill(int[] out, int at, int high) {
+			for (int w = 0; w < WORDS; w++) {
+				long word = words[w];
+				while (word != 0) {
+					out[at++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+			return at;
+		}
+
+		ArrayContainer toArray() {
+			char[] values = new char[Math.max(cardinality, 1)];
+			int n = 0;
+			for (int w = 0; w < WORDS; w++) {
+				long word = words[w];
+				while (word != 0) {
+					values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayContainer(values, n);
+		}
+	}
+
+	/**
+	 * A bitmap holding the given IDs
+	 */
+	static IdBitmap of(int... ids) {
+		IdBitmap bitmap = new IdBitmap();
+		for (int id : ids) {
+			bitmap.add(id);
+		}
+		return bitmap;
+	}
+
+	void add(int id) {
+		char high = (char) (id >>> 16);
+		int i = find(high);
+		if (i < 0) {
+			i = -i - 1;
+			insertContainer(i, high, new ArrayContainer(new char[4], 0));
+		}
+		containers[i] = containers[i].add((char) id);
+	}
+
+	void remove(int id) {
+		int i = find((char) (id >>> 16));
+		if (i < 0) {
+			return;
+		}
+		containers[i] = containers[i].remove((char) id);
+		if (containers[i].cardinality() == 0) {
+			System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+			System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+			containers[--size] = null;
+		}
+	}
+
+	boolean contains(int id) {
+		int i = find((char) (id >>> 16));
+		return i >= 0 && containers[i].contains((char) id);
+	}
+
+	int cardinality() {
+		int cardinality = 0;
+		for (int i = 0; i < size; i++) {
+			cardinality += containers[i].cardinality();
+		}
+		return cardinality;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * IDs in both bitmaps
+	 */
+	IdBitmap and(IdBitmap other) {
+		IdBitmap result = new IdBitmap();
+		int i = 0, j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				Container container = containers[i].and(other.containers[j]);
+				if (container.cardinality() > 0) {
+					result.insertContainer(result.size, keys[i], container);
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * IDs in either bitmap
+	 */
+	IdBitmap or(IdBitmap other) {
+		IdBitmap result = new IdBitmap();
+		int i = 0, j = 0;
+		while (i < size || j < other.size) {
+			if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+				result.insertContainer(result.size, keys[i], containers[i].copy());
+				i++;
+			} else if (i == size || keys[i] > other.keys[j]) {
+				result.insertContainer(result.size, other.keys[j], other.containers[j].copy());
+				j++;
+			} else {
+				result.insertContainer(result.size, keys[i], containers[i].or(other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The IDs of a sorted array that are in this bitmap, still sorted, e.g. to filter text search results
+	 */
+	int[] intersect(int[] sortedIds) {
+		int[] result = new int[sortedIds.length];
+		int n = 0;
+		int i = -1;
+		int high = -1;
+		for (int id : sortedIds) {
+			int key = id >>> 16;
+			if (key != high) {
+				high = key;
+				i = find((char) key);   // Sorted IDs are grouped, so this runs once per group
+			}
+			if (i >= 0 && containers[i].contains((char) id)) {
+				result[n++] = id;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * The IDs in ascending order
+	 */
+	int[] toArray() {
+		int[] ids = new int[cardinality()];
+		int at = 0;
+		for (int i = 0; i < size; i++) {
+			at = containers[i].fill(ids, at, keys[i] << 16);
+		}
+		return ids;
+	}
+
+	private int find(char high) {
+		return Arrays.binarySearch(keys, 0, size, high);
+	}
+
+	private void insertContainer(int i, char high, Container container) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			containers = Arrays.copyOf(containers, size * 2);
+		}
+		System.arraycopy(keys, i, keys, i + 1, size - i);
+		System.arraycopy(containers, i, containers, i + 1, size - i);
+		keys[i] = high;
+		containers[i] = container;
+		size++;
+	}
+}
@@ -172,6 +172,418 @@ public class JunitTests{
 			
 		}
 	
+	    /**
+	     * Tests that a failing unit of work rolls back every statement it issued
+	     */
+		@Test
+		public void JT9() throws Exception {
+			Article article = new Article("TestArticle", "TestAuthor", "TestAbstract", "test", "test", "test", "test", "transactionTest", "test");
+			Exception abort = assertThrows(Exception.class, () -> articleDatabase.inTransaction(() -> {
+				articleDatabase.register(article);
+				throw new Exception("abort");
+			}));
+			assertEquals("abort", abort.getMessage());  // Any other failure is a real error
+			assertEquals(false, articleDatabase.doesIdentifierExist("transactionTest"));
+		}
+	
+	    /**
+	     * Tests that the detail cache stays within its byte budget, forgets invalidated articles and drops stale loads
+	     */
+		@Test
+		public void JT10() {
+			ArticleDetailCache cache = new ArticleDetailCache(40);
+			cache.put(1, "0123456789", cache.generation());
+			cache.put(2, "0123456789", cache.generation());
+			cache.put(3, "0123456789", cache.generation());  // 60 bytes in total, so article 1 is evicted
+			assertEquals(null, cache.get(1));
+			assertEquals("0123456789", cache.get(2));
+			cache.invalidate(2);
+			assertEquals(null, cache.get(2));
+			long loadGeneration = cache.generation();
+			cache.invalidate(4);  // A change committed while article 4 was being loaded
+			cache.put(4, "stale", loadGeneration);
+			assertEquals(null, cache.get(4));
+			assertEquals(1, cache.getEvictions());
+		}
+	
+	    /**
+	     * Tests that a cached search result is only dropped by changes to rows it could contain
+	     */
+		@Test
+		public void JT11() throws Exception {
+			QueryResultCache cache = new QueryResultCache(1 << 20, 60000);
+			cache.get("title:Eclipse", row -> QueryResultCache.contains(row.title, "Eclipse"), () -> "first");
+			ArticleRow unrelated = new ArticleRow(1, "JavaFX basics", "a", "b", "c", "beginner", "id1", "general");
+			cache.invalidate(null, unrelated);
+			assertEquals("first", cache.get("title:Eclipse", row -> true, () -> "second"));
+			ArticleRow related = new ArticleRow(2, "Eclipse setup", "a", "b", "c", "beginner", "id2", "general");
+			cache.invalidate(null, related);
+			assertEquals("second", cache.get("title:Eclipse", row -> true, () -> "second"));
+		}
+
+	    /**
+	     * Tests that the search index answers phrase queries in word order and sees new articles
+	     */
+		@Test
+		public void JT12() throws Exception {
+			Article article = new Article("Inverted Index Phrase Test", "TestAuthor", "TestAbstract", "test", "test", "test", "test", "indexTest", "test");
+			articleDatabase.register(article);
+			try {
+				assertEquals(true, articleDatabase.getArticlesByTitleAsString("index phrase").contains("Inverted Index Phrase Test"));
+				assertEquals(false, articleDatabase.getArticlesByTitleAsString("phrase index").contains("Inverted Index Phrase Test"));
+			} finally {
+				articleDatabase.deleteArticlesByIdentifier("indexTest");
+			}
+		}
+
+	    /**
+	     * Tests that bitmap AND and OR give the same IDs as the sorted arrays, across array and bitmap containers
+	     */
+		@Test
+		public void JT13() {
+			IdBitmap sparse = IdBitmap.of(3, 70000, 70001, 200000);
+			IdBitmap dense = new IdBitmap();
+			for (int id = 0; id < 10000; id++) {
+				dense.add(id * 2);   // 10000 IDs in the first group, so it is held as a bitmap container
+			}
+			assertArrayEquals(new int[] {}, sparse.and(dense).toArray());
+			assertArrayEquals(new int[] {4}, IdBitmap.of(4, 70000).and(dense).toArray());
+			assertEquals(10004, sparse.or(dense).cardinality());
+			assertArrayEquals(new int[] {2, 4}, dense.intersect(new int[] {1, 2, 3, 4, 70000}));
+			dense.remove(2);
+			assertEquals(false, dense.contains(2));
+			assertEquals(9999, dense.cardinality());
+		}
+
+	    /**
+	     * Tests the query parser: AND binds tighter than OR, NOT and -, parentheses, quoted phrases,
+	     * field prefixes and syntax errors
+	     */
+		@Test
+		public void JT15() {
+			ArticleQuery.Node node = ArticleQuery.parse("eclipse OR java setup");
+			assertEquals(true, node instanceof ArticleQuery.Or);
+			assertEquals(true, ((ArticleQuery.Or) node).children.get(1) instanceof ArticleQuery.And);
+
+			node = ArticleQuery.parse("(eclipse OR java) setup");
+			assertEquals(true, node instanceof ArticleQuery.And);
+			assertEquals(true, ((ArticleQuery.And) node).children.get(0) instanceof ArticleQuery.Or);
+
+			node = ArticleQuery.parse("eclipse NOT level:expert -group:cse360");
+			List<ArticleQuery.Node> children = ((ArticleQuery.And) node).children;
+			assertEquals(3, children.size());
+			assertEquals("level", ((ArticleQuery.ColumnTerm) ((ArticleQuery.Not) children.get(1)).child).column);
+			assertEquals("systemInfo", ((ArticleQuery.ColumnTerm) ((ArticleQuery.Not) children.get(2)).child).column);
+
+			ArticleQuery.TextTerm phrase = (ArticleQuery.TextTerm) ArticleQuery.parse("title:\"eclipse setup\"");
+			assertEquals("eclipse setup", phrase.phrase);
+			assertArrayEquals(new ArticleSearchIndex.Field[] {ArticleSearchIndex.Field.TITLE}, phrase.fields);
+			assertEquals("java", ((ArticleQuery.ColumnTerm) ArticleQuery.parse("keyword:Java")).value);
+			assertEquals(ArticleSearchIndex.Field.values().length, ((ArticleQuery.TextTerm) ArticleQuery.parse("eclipse")).fields.length);
+
+			for (String malformed : new String[] {"", "(eclipse", "eclipse)", "eclipse AND", "NOT", "title:\"eclipse", "color:red"}) {
+				assertThrows(IllegalArgumentException.class, () -> ArticleQuery.parse(malformed), malformed);
+			}
+		}
+
+	    /**
+	     * Tests that a cached plan is invalidated the way its backend matched: substrings for LIKE,
+	     * whole words for the others
+	     */
+		@Test
+		public void JT16() {
+			ArticleQuery.Node plan = ArticleQuery.parse("title:eclipse");
+			ArticleRow row = new ArticleRow(1, "Eclipses of the sun", "a", "b", "c", "beginner", "id1", "general");
+			assertEquals(false, plan.matches(row, ArticleQuery.WHOLE_WORDS));
+			assertEquals(true, plan.matches(row, QueryResultCache::contains));
+			assertEquals(false, ArticleQuery.parse("NOT title:eclipse").matches(row, QueryResultCache::contains));
+		}
+
+	    /**
+	     * Tests that a body search finds a word of the encrypted body but not a word found only in the title
+	     */
+		@Test
+		public void JT17() throws Exception {
+			Article article = new Article("Blind Index Headline", "TestAuthor", "TestAbstract", "test", "zebrafish migration", "test", "test", "bodyTest", "test");
+			articleDatabase.register(article);
+			try {
+				assertEquals(true, articleDatabase.getArticlesByBodyAsString("zebrafish").contains("Blind Index Headline"));
+				assertEquals(false, articleDatabase.getArticlesByBodyAsString("headline").contains("Blind Index Headline"));
+			} finally {
+				articleDatabase.deleteArticlesByIdentifier("bodyTest");
+			}
+		}
+
+	    /**
+	     * Tests that a decrypted body evicted from the cache is overwritten with zeros
+	     */
+		@Test
+		public void JT14() {
+			DecryptedBodyCache cache = new DecryptedBodyCache(40);
+			cache.put(1, "aaaa", "1", "secret".getBytes());
+			byte[] held = cache.heldPlaintext(1);
+			cache.put(2, "bbbbbbbb", "2", "another secret".getBytes());  // Over budget, so article 1 is evicted
+			assertEquals(null, cache.get(1, "aaaa", "1"));
+			assertArrayEquals(new byte[6], held);
+			assertEquals(1, cache.getEvictions());
+		}
+
+	    /**
+	     * Tests that fuzzy matching accepts a word one edit away and rejects one three edits away
+	     */
+		@Test
+		public void JT18() {
+			assertEquals(1, ArticleSearchIndex.editDistance("eclipse", "eclipze", 2));
+			assertEquals(-1, ArticleSearchIndex.editDistance("eclipse", "ecxxxse", 2));
+			assertEquals(true, ArticleSearchIndex.matchesFuzzy("Setting up Eclipse", "eclipze"));
+			assertEquals(false, ArticleSearchIndex.matchesFuzzy("Setting up Eclipse", "ecxxxse"));
+		}
+
+	    /**
+	     * Tests that a saved search fires for a new article that matches it and not for one that does not
+	     */
+		@Test
+		public void JT19() {
+			StandingQueries percolator = new StandingQueries();
+			percolator.add(1, "alice", "title:eclipse level:beginner");
+			ArticleRow matching = new ArticleRow(1, "Eclipse setup", "a", "b", "c", "beginner", "id1", "general");
+			ArticleRow other = new ArticleRow(2, "Eclipse setup", "a", "b", "c", "expert", "id2", "general");
+			List<StandingQueries.Match> matches = percolator.percolate(null, matching);
+			assertEquals(1, matches.size());
+			assertEquals("alice", matches.get(0).username);
+			assertEquals(0, percolator.percolate(null, other).size());
+			assertEquals(0, percolator.percolate(matching, matching).size());  // Already matched before the update
+		}
+
+	    /**
+	     * Tests that a snippet puts the highlight markers around exactly the words that matched
+	     */
+		@Test
+		public void JT20() {
+			ArticleSearchIndex index = new ArticleSearchIndex();
+			ArticleRow row = new ArticleRow(1, "Eclipse", "a", "Setting up the Eclipse IDE for Java, then Eclipse plugins", "c", "beginner", "id1", "general");
+			index.build(List.of(row));
+			String start = ArticleSearchIndex.HIGHLIGHT_START;
+			String end = ArticleSearchIndex.HIGHLIGHT_END;
+			assertEquals("Setting up the " + start + "Eclipse" + end + " IDE for " + start + "Java" + end + ", then "
+					+ start + "Eclipse" + end + " plugins", index.snippet(1, row.abstractText, "eclipse java"));
+			assertEquals(row.abstractText, index.snippet(1, row.abstractText, "netbeans"));
+		}
+
+	    /**
+	     * Tests that highlight markers and backslashes already in an abstract stay literal text
+	     */
+		@Test
+		public void JT21() {
+			String start = ArticleSearchIndex.HIGHLIGHT_START;
+			String end = ArticleSearchIndex.HIGHLIGHT_END;
+			ArticleSearchIndex index = new ArticleSearchIndex();
+			ArticleRow row = new ArticleRow(1, "Quotes", "a", "The " + start + "Eclipse" + end + " guide, C:\\eclipse", "c", "beginner", "id1", "general");
+			index.build(List.of(row));
+			List<String> pieces = ArticleSearchIndex.parseMarkup(index.snippet(1, row.abstractText, "guide"));
+			assertEquals(List.of("The " + start + "Eclipse" + end + " ", "guide", ", C:\\eclipse"), pieces);
+			assertEquals(List.of("a " + start + "b" + end + " \\"), ArticleSearchIndex.parseMarkup(ArticleSearchIndex.escapeMarkup("a " + start + "b" + end + " \\")));
+		}
+
+	    /**
+	     * Tests that accents and case are folded, so a search for "elan" matches "\u00c9lan"
+	     */
+		@Test
+		public void JT22() {
+			assertEquals("elan", Article.fold("\u00c9lan"));
+			assertEquals(Article.fold("ELAN"), Article.fold("\u00e9lan"));
+			assertEquals("%elan%", Article.foldedPattern("\u00c9LAN"));
+			assertEquals(true, QueryResultCache.contains("\u00c9lan vital", "elan"));
+		}
+
+	    /**
+	     * Tests that backup file names stay inside the server's backups folder
+	     */
+		@Test
+		public void JT23() throws Exception {
+			java.nio.file.Path dataDir = java.nio.file.Files.createTempDirectory("articleServerTest");
+			java.nio.file.Path backupDir = dataDir.resolve("backups").toAbsolutePath().normalize();
+			try {
+				SecretFile.createDirectories(backupDir);
+				assertEquals(backupDir.resolve("articles.txt").toString(), ArticleServer.backupPath(backupDir, "articles.txt"));
+				assertThrows(java.io.IOException.class, () -> ArticleServer.backupPath(backupDir, "../server.token"));
+				assertThrows(java.io.IOException.class, () -> ArticleServer.backupPath(backupDir, "/etc/passwd"));
+				assertThrows(java.io.IOException.class, () -> ArticleServer.backupPath(backupDir, "."));
+			} finally {
+				deleteTree(dataDir);
+			}
+		}
+
+	    /**
+	     * Tests that the sharded store merges the results of its shards and keeps an article's ID by
+	     * rejecting an update that would move it to another shard
+	     */
+		@Test
+		public void JT24() throws Exception {
+			java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("shardTest");
+			ShardedArticleStore store = (ShardedArticleStore) ArticleServer.openStore("jdbc:h2:" + dir.resolve("shardTestDatabase"), 2);
+			try {
+				store.clearDatabase();
+				String otherGroup = "g0";
+				for (int i = 1; store.shardIndexFor(otherGroup) == store.shardIndexFor("general"); i++) {
+					otherGroup = "g" + i;
+				}
+				store.register(new Article("Sharded Merge Alpha", "TestAuthor", "TestAbstract", "test", "test", "test", "test", "shardA", "general"));
+				store.register(new Article("Sharded Merge Beta", "TestAuthor", "TestAbstract", "test", "test", "test", "test", "shardB", otherGroup));
+				String titles = store.getArticlesByTitleAsString("sharded merge");
+				assertEquals(true, titles.startsWith("Total Articles Retrieved: 2"));
+				assertEquals(true, titles.indexOf("Alpha") < titles.indexOf("Beta"));  // Shard order is ID order
+				assertEquals(true, store.getArticlesByRelevanceAsString("sharded", 1).startsWith("Total Articles Retrieved: 1"));
+
+				int betaId = store.listArticlesByIdentifiers(List.of("shardB")).entries().get(0).row.id;
+				Article moved = new Article("Sharded Merge Beta", "TestAuthor", "TestAbstract", "test", "test", "test", "test", "shardB", "general");
+				assertThrows(IllegalArgumentException.class, () -> store.updateArticle(betaId, moved));
+				assertEquals(betaId, store.listArticlesByIdentifiers(List.of("shardB")).entries().get(0).row.id);
+				assertEquals(otherGroup, store.listArticlesByIdentifiers(List.of("shardB")).entries().get(0).row.systemInfo);
+			} finally {
+				store.closeConnection();
+				deleteTree(dir);
+			}
+		}
+
+	    /**
+	     * Tests that only instructors and the special access group may search article bodies
+	     */
+		@Test
+		public void JT25() {
+			assertThrows(SecurityException.class, () -> ArticleServer.requireBodyReader(user));
+			User instructor = new User("inst", "123".toCharArray());
+			instructor.addRole("Instructor");
+			ArticleServer.requireBodyReader(instructor);
+			User special = new User("spec", "123".toCharArray());
+			special.setIsSpecial(true);
+			ArticleServer.requireBodyReader(special);
+		}
+
+	    /**
+	     * Tests that the protocol rejects strings and lists beyond its limits and negative list sizes
+	     */
+		@Test
+		public void JT26() throws Exception {
+			java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+			ArticleProtocol.writeValue(new java.io.DataOutputStream(bytes), "x".repeat(5000));
+			assertThrows(java.io.IOException.class, () -> ArticleProtocol.readValue(
+					new java.io.DataInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray())), ArticleProtocol.AUTH_LIMITS));
+			assertEquals(5000, ((String) ArticleProtocol.readValue(
+					new java.io.DataInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray())), ArticleProtocol.REQUEST_LIMITS)).length());
+
+			byte[] negativeList = {'L', -1, -1, -1, -1};   // A list tag with size -1
+			assertThrows(java.io.IOException.class, () -> ArticleProtocol.readValue(
+					new java.io.DataInputStream(new java.io.ByteArrayInputStream(negativeList)), ArticleProtocol.REQUEST_LIMITS));
+		}
+
+	    /**
+	     * Tests that title, author and abstract searches still find parts of words when the index holds
+	     * the whole word too, e.g. "Java" finds "JavaFX Installation" next to "Java basics"
+	     */
+		@Test
+		public void JT27() throws Exception {
+			articleDatabase.register(new Article("JavaFX Installation", "Jameson", "Installing JavaFX", "test", "test", "test", "test", "substringTest", "test"));
+			articleDatabase.register(new Article("Java basics", "James", "Java for beginners", "test", "test", "test", "test", "substringTest", "test"));
+			try {
+				String titles = articleDatabase.getArticlesByTitleAsString("Java");
+				assertEquals(true, titles.contains("JavaFX Installation"));
+				assertEquals(true, titles.contains("Java basics"));
+				assertEquals(true, articleDatabase.getArticlesByAuthorAsString("james").contains("JavaFX Installation"));
+				assertEquals(true, articleDatabase.getArticlesByAbstractAsString("JavaF").contains("JavaFX Installation"));
+			} finally {
+				articleDatabase.deleteArticlesByIdentifier("substringTest");
+			}
+		}
+
+	    /**
+	     * Tests that typo matches are only used when nothing matches as typed: "Eclip" lists the title
+	     * containing it and not the one a single edit away
+	     */
+		@Test
+		public void JT28() throws Exception {
+			articleDatabase.register(new Article("Eclipse setup", "TestAuthor", "TestAbstract", "test", "test", "test", "test", "fuzzyOrderTest", "test"));
+			articleDatabase.register(new Article("Eclap tools", "TestAuthor", "TestAbstract", "test", "test", "test", "test", "fuzzyOrderTest", "test"));
+			try {
+				String titles = articleDatabase.getArticlesByTitleAsString("Eclip");
+				assertEquals(true, titles.contains("Eclipse setup"));
+				assertEquals(false, titles.contains("Eclap tools"));
+				assertEquals(true, articleDatabase.getArticlesByTitleAsString("Eclpise").contains("Eclipse setup"));
+			} finally {
+				articleDatabase.deleteArticlesByIdentifier("fuzzyOrderTest");
+			}
+		}
+
+	    /**
+	     * Tests that the sharded store restores a backup of the unsharded store by renumbering the articles
+	     * of the other shard, and that a restore failing on one shard leaves every shard as it was
+	     */
+		@Test
+		public void JT29() throws Exception {
+			java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("shardRestoreTest");
+			String backup = dir.resolve("backup.txt").toString();
+			Article unsharded = new Article();
+			unsharded.connectToDatabase("jdbc:h2:" + dir.resolve("unsharded"));
+			ShardedArticleStore store = (ShardedArticleStore) ArticleServer.openStore("jdbc:h2:" + dir.resolve("sharded"), 2);
+			try {
+				String[] groups = new String[2];
+				for (int i = 0; groups[0] == null || groups[1] == null; i++) {
+					groups[store.shardIndexFor("g" + i)] = "g" + i;
+				}
+				unsharded.register(new Article("Restore Zero", "TestAuthor", "TestAbstract", "test", "zero body", "test", "test", "restoreA", groups[0]));
+				unsharded.register(new Article("Restore One", "TestAuthor", "TestAbstract", "test", "one body", "test", "test", "restoreB", groups[1]));
+				unsharded.backupArticles(backup);
+
+				store.restoreArticles(backup);
+				assertEquals(true, store.listArticlesByIdentifiers(List.of("restoreA")).entries().get(0).row.id <= ShardedArticleStore.ID_RANGE);
+				int oneId = store.listArticlesByIdentifiers(List.of("restoreB")).entries().get(0).row.id;
+				assertEquals(ShardedArticleStore.ID_RANGE + 1, oneId);
+
+				// The second shard gets the same ID twice, so its restore fails after the first shard staged its own
+				try (java.io.PrintWriter writer = new java.io.PrintWriter(backup)) {
+					writer.println("1,Replacement,a,b,k,body,r,beginner,restoreC," + groups[0]);
+					writer.println(oneId + ",Twice,a,b,k,body,r,beginner,restoreD," + groups[1]);
+					writer.println(oneId + ",Twice,a,b,k,body,r,beginner,restoreD," + groups[1]);
+				}
+				assertThrows(Exception.class, () -> store.restoreArticles(backup));
+				assertEquals(1, store.listArticlesByIdentifiers(List.of("restoreA")).entries().size());
+				assertEquals(1, store.listArticlesByIdentifiers(List.of("restoreB")).entries().size());
+				assertEquals(0, store.listArticlesByIdentifiers(List.of("restoreC")).entries().size());
+			} finally {
+				unsharded.closeConnection();
+				store.closeConnection();
+				deleteTree(dir);
+			}
+		}
+
+	    /**
+	     * Tests that a connection whose caches and indexes are shared under another URL of the same file,
+	     * as in a second process, sees articles the first one registers once the change counter is checked
+	     */
+		@Test
+		public void JT30() throws Exception {
+			java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("generationTest");
+			String url = "jdbc:h2:" + dir.resolve("generation");
+			Article first = new Article();
+			Article second = new Article();
+			first.connectToDatabase(url);
+			second.connectToDatabase(url + ";TRACE_LEVEL_FILE=0");
+			try {
+				first.register(new Article("Generation Alpha", "TestAuthor", "TestAbstract", "test", "test", "test", "test", "generationTest", "test"));
+				assertEquals(true, second.getArticlesByTitleAsString("Generation").contains("Generation Alpha"));
+				assertEquals(true, second.getSuggestions("title", "zyzz", 5).isEmpty());
+
+				first.register(new Article("Generation Zyzzyva", "TestAuthor", "TestAbstract", "test", "test", "test", "test", "generationTest", "test"));
+				Thread.sleep(ArticleGeneration.CHECK_INTERVAL_MILLIS + 50);
+				assertEquals(true, second.getArticlesByTitleAsString("Generation").contains("Generation Zyzzyva"));
+				assertEquals(1, second.getSuggestions("title", "zyzz", 5).size());
+			} finally {
+				first.closeConnection();
+				second.closeConnection();
+				deleteTree(dir);
+			}
+		}
+
 	    /**
 	     * Tests the sending of a special message from a student user to the admin user(s)
 	     */
@@ -180,5 +592,11 @@ public class JunitTests{
 			assertEquals(true, student.sendMessage("Question", "I have a question"));
 		}
 	
+	// Deletes a temporary test folder and everything in it
+	private static void deleteTree(java.nio.file.Path dir) throws java.io.IOException {
+		try (java.util.stream.Stream<java.nio.file.Path> paths = java.nio.file.Files.walk(dir)) {
+			paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
 	
 }
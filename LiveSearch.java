@@ -0,0 +1,158 @@
+package application;
+
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p> LiveSearch Class </p>
+ *
+ * <p> Description: Runs a search again every time the user changes its input, without blocking the
+ * JavaFX thread and without piling up queries. An input is only searched once the user has paused for
+ * the debounce delay, and a newer input replaces an older one that is still waiting. If a search is
+ * already running on the server when the input changes, its statement is cancelled through a second
+ * connection, so a superseded scan stops using the database instead of running to the end. Only the
+ * result of the latest input is handed to the consumer. </p>
+ *
+ * <p> Searches run one at a time on a background thread with their own ArticleClient, so they never
+ * wait behind the window's other requests. The consumer is called on that thread; JavaFX code passes
+ * its result on with Platform.runLater. The input can be any value, so several fields of one dialog can
+ * share a LiveSearch, and its two connections, by submitting which field changed along with its text. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class LiveSearch<I, T> {
+
+	/**
+	 * One search of the current input
+	 */
+	interface Search<I, T> {
+		T run(ArticleClient client, I input) throws Exception;
+	}
+
+	private final Search<I, T> search;
+	private final Consumer<T> onResult;
+	private final long debounceMillis;
+
+	private final ArticleClient client;    // Runs the searches
+	private final ArticleClient control;   // Cancels them while client waits
+	private final ScheduledExecutorService searches = Executors.newSingleThreadScheduledExecutor(daemon("live-search"));
+	private final ExecutorService cancels = Executors.newSingleThreadExecutor(daemon("live-search-cancel"));
+
+	private final Object lock = new Object();
+	private long generation = 0;       // Number of the latest input
+	private long running = -1;         // Number of the input being searched, or -1
+	private ScheduledFuture<?> pending;
+	private int sessionId = -1;        // Database session of client
+
+	LiveSearch(User user, Search<I, T> search, Consumer<T> onResult, long debounceMillis) {
+		this.client = new ArticleClient(user);
+		this.control = new ArticleClient(user);
+		this.search = search;
+		this.onResult = onResult;
+		this.debounceMillis = debounceMillis;
+	}
+
+	/**
+	 * Connects both clients to the article server
+	 */
+	void connect() throws SQLException {
+		client.connectToDatabase();
+		control.connectToDatabase();
+		sessionId = client.getSessionId();
+	}
+
+	/**
+	 * Searches the input once the user pauses, superseding every earlier input
+	 */
+	void submit(I input) {
+		synchronized (lock) {
+			long current = ++generation;
+			if (pending != null) {
+				pending.cancel(false);  // Still in its debounce delay, so it never reaches the server
+			}
+			if (running >= 0) {
+				cancels.execute(this::cancelSuperseded);
+			}
+			pending = searches.schedule(() -> run(current, input), debounceMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void run(long current, I input) {
+		synchronized (lock) {
+			if (current != generation) {
+				return;
+			}
+			running = current;
+		}
+		try {
+			T result = search.run(client, input);
+			synchronized (lock) {
+				if (current != generation) {
+					return;
+				}
+			}
+			onResult.accept(result);
+		} catch (Exception e) {
+			synchronized (lock) {
+				if (current != generation) {
+					return;  // Cancelled because the user typed on
+				}
+			}
+			e.printStackTrace();
+		} finally {
+			synchronized (lock) {
+				running = -1;
+			}
+		}
+	}
+
+	// Cancels the running search if a newer input exists. Holding the lock keeps the next search from
+	// starting meanwhile, so the cancellation cannot hit it instead.
+	private void cancelSuperseded() {
+		synchronized (lock) {
+			if (running < 0 || running == generation) {
+				return;
+			}
+			try {
+				control.cancelSession(sessionId);
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Drops any waiting input, cancels the running search and disconnects
+	 */
+	void close() {
+		synchronized (lock) {
+			generation++;
+			if (pending != null) {
+				pending.cancel(false);
+			}
+		}
+		cancels.execute(() -> {
+			cancelSuperseded();
+			control.closeConnection();
+		});
+		cancels.shutdown();
+		searches.execute(client::closeConnection);
+		searches.shutdown();
+	}
+
+	private static ThreadFactory daemon(String name) {
+		return r -> {
+			Thread thread = new Thread(r, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
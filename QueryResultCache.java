@@ -0,0 +1,193 @@
+package application;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * <p> QueryResultCache Class </p>
+ *
+ * <p> Description: Cache of the formatted results of the getArticlesBy... search methods. Each entry is
+ * keyed by the search method and its normalized arguments, including whatever decides what the user
+ * may see, such as their groups, so a cached result is never handed to a user with different visibility.
+ * Results with decrypted bodies are never cached, since a String cannot be zeroed once it is dropped. </p>
+ *
+ * <p> Every entry also remembers which rows it depends on, as a test on an ArticleRow: a title search
+ * depends on rows whose title contains the phrase, a group search on rows in those groups, and so on.
+ * When an article changes, Article passes its row before and after the change, and only entries that
+ * match one of them are dropped. Changes made by another process through H2 server mode empty the cache
+ * once the ArticleGeneration counter shows them, and entries also expire after a time-to-live as a
+ * safety net. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class QueryResultCache {
+
+	// Defaults: about 32 MB of cached result text, kept for at most five minutes
+	static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+	static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+
+	private static final Map<String, QueryResultCache> CACHES = new HashMap<>();
+
+	/**
+	 * Runs the real query on a cache miss
+	 */
+	interface Loader {
+		String load() throws Exception;
+	}
+
+	private static class Entry {
+		final String result;
+		final Predicate<ArticleRow> dependsOn;  // Rows whose change can alter this result
+		final long expiresAt;
+
+		Entry(String result, Predicate<ArticleRow> dependsOn, long expiresAt) {
+			this.result = result;
+			this.dependsOn = dependsOn;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private final long maxBytes;
+	private final long ttlMillis;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);  // Access order
+	private long currentBytes = 0;
+	private long generation = 0;  // Bumped by every invalidation, so results loaded before one are not cached
+
+	// Metrics
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long invalidations = 0;
+	private long expirations = 0;
+
+	QueryResultCache(long maxBytes, long ttlMillis) {
+		this.maxBytes = maxBytes;
+		this.ttlMillis = ttlMillis;
+	}
+
+	/**
+	 * Returns the cache shared by every Article connected to the given database URL
+	 */
+	static synchronized QueryResultCache forDatabase(String dbUrl) {
+		return CACHES.computeIfAbsent(dbUrl, url -> new QueryResultCache(DEFAULT_MAX_BYTES, DEFAULT_TTL_MILLIS));
+	}
+
+	private static long sizeOf(String key, String result) {
+		return 2L * (key.length() + result.length());
+	}
+
+	/**
+	 * Returns the cached result for the key, or runs the loader and caches what it returns
+	 */
+	String get(String key, Predicate<ArticleRow> dependsOn, Loader loader) throws Exception {
+		long loadGeneration;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+				hits++;
+				return entry.result;
+			}
+			if (entry != null) {
+				remove(key);
+				expirations++;
+			}
+			misses++;
+			loadGeneration = generation;
+		}
+		// Run the query outside the lock so slow searches do not block each other
+		String result = loader.load();
+		put(key, dependsOn, result, loadGeneration);
+		return result;
+	}
+
+	private synchronized void put(String key, Predicate<ArticleRow> dependsOn, String result, long loadGeneration) {
+		long size = sizeOf(key, result);
+		if (size > maxBytes || loadGeneration != generation) {
+			return;
+		}
+		remove(key);
+		entries.put(key, new Entry(result, dependsOn, System.currentTimeMillis() + ttlMillis));
+		currentBytes += size;
+
+		Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+		while (currentBytes > maxBytes && eldest.hasNext()) {
+			Map.Entry<String, Entry> next = eldest.next();
+			currentBytes -= sizeOf(next.getKey(), next.getValue().result);
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	private void remove(String key) {
+		Entry removed = entries.remove(key);
+		if (removed != null) {
+			currentBytes -= sizeOf(key, removed.result);
+		}
+	}
+
+	/**
+	 * Drops every entry whose result could include the row before or after a change.
+	 * Either row may be null, for an insert or a delete.
+	 */
+	synchronized void invalidate(ArticleRow before, ArticleRow after) {
+		generation++;
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Entry> next = it.next();
+			Predicate<ArticleRow> dependsOn = next.getValue().dependsOn;
+			if ((before != null && dependsOn.test(before)) || (after != null && dependsOn.test(after))) {
+				currentBytes -= sizeOf(next.getKey(), next.getValue().result);
+				it.remove();
+				invalidations++;
+			}
+		}
+	}
+
+	/**
+	 * Drops every entry, used when the whole table is cleared or restored
+	 */
+	synchronized void invalidateAll() {
+		generation++;
+		invalidations += entries.size();
+		entries.clear();
+		currentBytes = 0;
+	}
+
+	/**
+	 * Whether a changed value may belong to a text search for phrase. Compares the way the searches do,
+	 * ignoring case and accents and the trailing * of a prefix search, so it errs towards invalidating.
+	 */
+	static boolean contains(String value, String phrase) {
+		if (value == null) {
+			return false;
+		}
+		String folded = Article.fold(phrase);
+		if (folded.endsWith("*")) {
+			folded = folded.substring(0, folded.length() - 1);
+		}
+		return Article.fold(value).contains(folded.trim());
+	}
+
+	synchronized double hitRatio() {
+		long requests = hits + misses;
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	synchronized long getHits() { return hits; }
+	synchronized long getMisses() { return misses; }
+	synchronized long getEvictions() { return evictions; }
+	synchronized long getInvalidations() { return invalidations; }
+	synchronized long getExpirations() { return expirations; }
+	synchronized int size() { return entries.size(); }
+
+	@Override
+	public synchronized String toString() {
+		return String.format("QueryResultCache[entries=%d, bytes=%d/%d, hitRatio=%.3f, hits=%d, misses=%d, evictions=%d, invalidations=%d, expirations=%d]",
+				entries.size(), currentBytes, maxBytes, hitRatio(), hits, misses, evictions, invalidations, expirations);
+	}
+}
@@ -0,0 +1,172 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <p> SearchCriteria Class </p>
+ *
+ * <p> Description: The filters of a combined search: words anywhere in the text, a title, author or
+ * abstract phrase, a keyword, a level and any number of groups. Every filter that is set must match, and
+ * the groups match if the article is in any one of them. Filters are set in a chain, e.g.
+ * {@code new SearchCriteria().words("eclipse").level("beginner").group("cse360").visibleTo(user)} </p>
+ *
+ * <p> visibleTo applies the same rule as displayAllArticles: a user in the special access group sees
+ * every article, anyone else only the articles of their own groups. Article.search turns the criteria
+ * into an ArticleQuery plan, so the filters are intersected cheapest first like a typed query. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class SearchCriteria {
+
+	private String words;                              // Words that must each appear in some text field
+	private String title;                              // Phrase in the title
+	private String authors;                            // Phrase in the authors
+	private String abstractText;                       // Phrase in the abstract
+	private String keyword;                            // One whole keyword
+	private String level;                              // Exact level, null or "All" for any
+	private Set<String> groups = new TreeSet<>();      // Groups the article may be in, empty for any
+	private Set<String> visibleGroups;                 // Groups the user may see, null for everything
+
+	SearchCriteria words(String words) {
+		this.words = blankToNull(words);
+		return this;
+	}
+
+	SearchCriteria title(String title) {
+		this.title = blankToNull(title);
+		return this;
+	}
+
+	SearchCriteria authors(String authors) {
+		this.authors = blankToNull(authors);
+		return this;
+	}
+
+	SearchCriteria abstractText(String abstractText) {
+		this.abstractText = blankToNull(abstractText);
+		return this;
+	}
+
+	SearchCriteria keyword(String keyword) {
+		this.keyword = blankToNull(keyword);
+		return this;
+	}
+
+	SearchCriteria level(String level) {
+		this.level = "All".equals(level) ? null : blankToNull(level);
+		return this;
+	}
+
+	SearchCriteria group(String group) {
+		if (blankToNull(group) != null) {
+			groups.add(group.trim());
+		}
+		return this;
+	}
+
+	SearchCriteria groups(Iterable<String> groups) {
+		for (String group : groups) {
+			group(group);
+		}
+		return this;
+	}
+
+	/**
+	 * Limits the results to what the user may see; special access users see everything
+	 */
+	SearchCriteria visibleTo(User user) {
+		this.visibleGroups = user.getIsSpecial() ? null : new TreeSet<>(user.getGroups());
+		return this;
+	}
+
+	// Restores the visibility read from the protocol
+	SearchCriteria visibleGroups(Set<String> visibleGroups) {
+		this.visibleGroups = visibleGroups == null ? null : new TreeSet<>(visibleGroups);
+		return this;
+	}
+
+	String getWords() { return words; }
+	String getTitle() { return title; }
+	String getAuthors() { return authors; }
+	String getAbstractText() { return abstractText; }
+	String getKeyword() { return keyword; }
+	String getLevel() { return level; }
+	Set<String> getGroups() { return groups; }
+	Set<String> getVisibleGroups() { return visibleGroups; }
+
+	/**
+	 * Whether no filter is set, visibility aside
+	 */
+	boolean isEmpty() {
+		return words == null && title == null && authors == null && abstractText == null
+				&& keyword == null && level == null && groups.isEmpty();
+	}
+
+	/**
+	 * The filters as a query plan, with the visibility rule as one more filter
+	 */
+	ArticleQuery.Node toPlan() {
+		List<ArticleQuery.Node> filters = new ArrayList<>();
+		if (words != null) {
+			for (String word : words.trim().split("\\s+")) {
+				filters.add(new ArticleQuery.TextTerm(word, ArticleSearchIndex.Field.values()));
+			}
+		}
+		if (title != null) {
+			filters.add(new ArticleQuery.TextTerm(title, ArticleSearchIndex.Field.TITLE));
+		}
+		if (authors != null) {
+			filters.add(new ArticleQuery.TextTerm(authors, ArticleSearchIndex.Field.AUTHORS));
+		}
+		if (abstractText != null) {
+			filters.add(new ArticleQuery.TextTerm(abstractText, ArticleSearchIndex.Field.ABSTRACT));
+		}
+		if (keyword != null) {
+			filters.add(new ArticleQuery.ColumnTerm("keyword", keyword.trim().toLowerCase()));
+		}
+		if (level != null) {
+			filters.add(new ArticleQuery.ColumnTerm("level", level));
+		}
+
+		// Only groups that were asked for and may be seen
+		Set<String> allowed = null;
+		if (!groups.isEmpty()) {
+			allowed = new TreeSet<>(groups);
+		}
+		if (visibleGroups != null) {
+			if (allowed == null) {
+				allowed = new TreeSet<>(visibleGroups);
+			} else {
+				allowed.retainAll(visibleGroups);
+			}
+		}
+		if (allowed != null) {
+			List<ArticleQuery.Node> anyGroup = new ArrayList<>();
+			for (String group : allowed) {
+				anyGroup.add(new ArticleQuery.ColumnTerm("systemInfo", group));
+			}
+			filters.add(anyGroup.size() == 1 ? anyGroup.get(0) : new ArticleQuery.Or(anyGroup));
+		}
+		return filters.size() == 1 ? filters.get(0) : new ArticleQuery.And(filters);
+	}
+
+	private static String blankToNull(String value) {
+		return value == null || value.trim().isEmpty() ? null : value.trim();
+	}
+
+	/**
+	 * Canonical form, used as the result cache key
+	 */
+	@Override
+	public String toString() {
+		return "words=" + words + "\u0000title=" + title + "\u0000authors=" + authors
+				+ "\u0000abstract=" + abstractText + "\u0000keyword=" + keyword + "\u0000level=" + level
+				+ "\u0000groups=" + String.join(",", groups)
+				+ "\u0000visible=" + (visibleGroups == null ? "*" : String.join(",", visibleGroups));
+	}
+}
@@ -1,12 +1,20 @@
 package application;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.event.EventHandler;
 import javafx.geometry.Insets;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
 import javafx.stage.Stage;
 
 import java.sql.SQLException;
@@ -41,7 +49,11 @@ import javafx.scene.control.TextInputDialog;
 public class Search_Interface extends Application {
 	
 
-    private static Article articleDatabase; // Object of Article class for managing articles
+    private static ArticleClient articleDatabase; // Client of the article server for managing articles
+    private static final int RELEVANCE_LIMIT = 20; // Number of articles listed by a relevance search
+    private static final int SUGGESTION_LIMIT = 8; // Number of completions offered while typing
+    private static final long LIVE_SEARCH_DELAY_MILLIS = 250; // Pause in typing before live results are searched
+    private static final long SUGGESTION_DELAY_MILLIS = 100; // Pause in typing before completions are looked up
     private Map<String, User> specialAccessGroup = new HashMap<>(); // A map that stores the special access group memebers where the key is the username and the value is a User object.
     private Map<String, User> userDatabase = new HashMap<>(); // Database to store user information
 //    private Map<String, User> specialAccessGroup = new HashMap<>(); // A map that stores the special access group memebers where the key is the username and the value is a User object.
@@ -59,7 +71,7 @@ public class Search_Interface extends Application {
 //        this.specialAccessGroup = specialAccessGroup;  // Initialize the special access group
         this.userDatabase = userDatabase; // Initialize the user database
         this.user = user; // Initialize the current user
-        articleDatabase = new Article();
+        articleDatabase = new ArticleClient(user);
         articleDatabase.connectToDatabase();
     }
     
@@ -80,6 +92,11 @@ public class Search_Interface extends Application {
         Button searchByIdentifiersButton = new Button("Search by Identifiers");
         Button searchByLevelsButton = new Button("Search by Levels");
         Button searchByGroupsButton = new Button("Search by Groups");
+        Button searchByBodyButton = new Button("Search by Body");
+        Button searchByQueryButton = new Button("Search by Query");
+        Button searchByRelevanceButton = new Button("Search by Relevance");
+        Button combinedSearchButton = new Button("Combined Search");
+        Button savedSearchesButton = new Button("Saved Searches");
         Button backButton = new Button("Back");
 
         // Adding buttons to the layout
@@ -91,7 +108,14 @@ public class Search_Interface extends Application {
         if (user.hasRole("Instructor") || user.hasRole("Admin")) {
             grid.add(searchByGroupsButton, 1, 2);
         }
-        grid.add(backButton, 0, 3);
+        if (user.hasRole("Instructor") || user.getIsSpecial()) {
+            grid.add(searchByBodyButton, 0, 3);  // Body search needs the right to read bodies
+        }
+        grid.add(searchByQueryButton, 1, 3);
+        grid.add(searchByRelevanceButton, 0, 4);
+        grid.add(combinedSearchButton, 1, 4);
+        grid.add(savedSearchesButton, 1, 5);
+        grid.add(backButton, 0, 5);
 
         // Create Scene and display the main stage
         Scene scene = new Scene(grid, 600, 500);
@@ -106,6 +130,11 @@ public class Search_Interface extends Application {
         searchByIdentifiersButton.setOnAction(e -> searchByIdentifiersWindow());
         searchByLevelsButton.setOnAction(e -> searchByLevelsWindow());
         searchByGroupsButton.setOnAction(e -> searchByGroupsWindow());
+        searchByBodyButton.setOnAction(e -> searchByBodyWindow());
+        searchByQueryButton.setOnAction(e -> searchByQueryWindow());
+        searchByRelevanceButton.setOnAction(e -> searchByRelevanceWindow());
+        combinedSearchButton.setOnAction(e -> combinedSearchWindow());
+        savedSearchesButton.setOnAction(e -> savedSearchesWindow());
         backButton.setOnAction(e -> {
 			try {
 				returnToOriginal(user, primaryStage);
@@ -122,7 +151,9 @@ public class Search_Interface extends Application {
 	void searchByTitlesWindow() {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("Search by Titles");
-        dialog.setHeaderText("Enter phrases OR words for the Title ");
+        dialog.setHeaderText("Enter phrases OR words for the Title (end with * to match the start of titles)");
+        offerSuggestions(dialog, Map.of(dialog.getEditor(), "title"));
+        showLiveResults(dialog, (client, input) -> client.getArticlesByTitleAsString(input));
 
         dialog.showAndWait().ifPresent(input -> {
             String results = null;
@@ -137,13 +168,113 @@ public class Search_Interface extends Application {
         });
     }
 	
+    // One field's text to complete, as it was when the user typed it
+    private static class Completion {
+        final TextField editor;
+        final String kind;
+        final ContextMenu suggestions;
+        final String text;
+
+        Completion(TextField editor, String kind, ContextMenu suggestions, String text) {
+            this.editor = editor;
+            this.kind = kind;
+            this.suggestions = suggestions;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Shows the most used completions under each of the text fields, keyed to the kind it completes,
+     * while the user types. Titles complete the word being typed; author names and keywords complete the
+     * whole input. The lookups run off the JavaFX thread and stop when the dialog closes. All fields of
+     * the dialog share one LiveSearch, and so one pair of connections, as only one is typed in at a time.
+     */
+    private void offerSuggestions(Dialog<?> dialog, Map<TextField, String> fields) {
+        LiveSearch<Completion, Runnable> live = new LiveSearch<>(user, (client, input) -> {
+            String prefix = input.text.substring(completionStart(input.text, input.kind)).trim();
+            List<String> completions = prefix.isEmpty() ? new ArrayList<String>() : client.getSuggestions(input.kind, prefix, SUGGESTION_LIMIT);
+            return () -> showSuggestions(input.editor, input.kind, input.suggestions, completions);
+        }, Platform::runLater, SUGGESTION_DELAY_MILLIS);
+        try {
+            live.connect();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return;
+        }
+        for (Map.Entry<TextField, String> field : fields.entrySet()) {
+            ContextMenu suggestions = new ContextMenu();
+            field.getKey().textProperty().addListener((observable, oldText, text) ->
+                    live.submit(new Completion(field.getKey(), field.getValue(), suggestions, text)));
+        }
+        closeWhenHidden(dialog, live);
+    }
+
+    // Closes the live search when the dialog is hidden, after whatever else was set to run then
+    private static void closeWhenHidden(Dialog<?> dialog, LiveSearch<?, ?> live) {
+        EventHandler<DialogEvent> previous = dialog.getOnHidden();
+        dialog.setOnHidden(e -> {
+            if (previous != null) {
+                previous.handle(e);
+            }
+            live.close();
+        });
+    }
+
+    // Where the part of the input being completed starts
+    private static int completionStart(String text, String kind) {
+        return "title".equals(kind) ? text.lastIndexOf(' ') + 1 : 0;
+    }
+
+    private void showSuggestions(TextField editor, String kind, ContextMenu suggestions, List<String> completions) {
+        String text = editor.getText();
+        int start = completionStart(text, kind);
+        suggestions.getItems().clear();
+        for (String suggestion : completions) {
+            MenuItem item = new MenuItem(suggestion);
+            item.setOnAction(e -> {
+                editor.setText(text.substring(0, start) + suggestion);
+                editor.positionCaret(editor.getText().length());
+                suggestions.hide();
+            });
+            suggestions.getItems().add(item);
+        }
+        if (suggestions.getItems().isEmpty()) {
+            suggestions.hide();
+        } else if (!suggestions.isShowing()) {
+            suggestions.show(editor, Side.BOTTOM, 0, 0);
+        }
+    }
+
+    /**
+     * Lists the results under the input and updates them as the user types. Each pause in typing
+     * starts a search off the JavaFX thread and cancels the one still running for older input.
+     */
+    private void showLiveResults(TextInputDialog dialog, LiveSearch.Search<String, String> search) {
+        TextFlow liveResults = new TextFlow();
+        ScrollPane liveScroll = highlightedPane(liveResults);
+        LiveSearch<String, String> live = new LiveSearch<>(user, search,
+                results -> Platform.runLater(() -> setHighlightedText(liveResults, results)), LIVE_SEARCH_DELAY_MILLIS);
+        try {
+            live.connect();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return;
+        }
+        dialog.getDialogPane().setExpandableContent(liveScroll);
+        dialog.getDialogPane().setExpanded(true);
+        dialog.getEditor().textProperty().addListener((observable, oldText, text) -> live.submit(text));
+        closeWhenHidden(dialog, live);
+    }
+
      /**
      * Searches for articles by author
      */
     void searchByAuthorWindow() {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("Search by Author");
-        dialog.setHeaderText("Enter phrases OR words: ");
+        dialog.setHeaderText("Enter phrases OR words (end with * to match the start of the authors): ");
+        offerSuggestions(dialog, Map.of(dialog.getEditor(), "author"));
+        showLiveResults(dialog, (client, input) -> client.getArticlesByAuthorAsString(input));
 
         dialog.showAndWait().ifPresent(input -> {
             String results = null;
@@ -164,6 +295,7 @@ public class Search_Interface extends Application {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("Search by Abstract");
         dialog.setHeaderText("Enter phrases OR words: ");
+        showLiveResults(dialog, (client, input) -> client.getArticlesByAbstractAsString(input));
 
         dialog.showAndWait().ifPresent(input -> {
             String results = null;
@@ -176,6 +308,196 @@ public class Search_Interface extends Application {
             }
             showArticleDetailsWindow(results);
         });
+    }
+    /**
+     * Searches the article bodies for words, without the bodies being decrypted
+     */
+    void searchByBodyWindow() {
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Search by Body");
+        dialog.setHeaderText("Enter words; articles whose body contains all of them are listed");
+        showLiveResults(dialog, (client, input) -> client.getArticlesByBodyAsString(input));
+
+        dialog.showAndWait().ifPresent(input -> {
+            String results = null;
+            try {
+            	results = articleDatabase.getArticlesByBodyAsString(input);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            showArticleDetailsWindow(results);
+        });
+    }
+    /**
+     * Searches for articles with a query combining fields, e.g. title:"eclipse setup" AND NOT level:expert
+     */
+    void searchByQueryWindow() {
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Search by Query");
+        dialog.setHeaderText("Combine words and \"phrases\" with AND, OR, NOT and ( ).\n"
+                + "Limit a term with title:, abstract:, author:, keyword:, level: or group:");
+        showLiveResults(dialog, (client, input) -> client.getArticlesByQueryAsString(input));
+
+        dialog.showAndWait().ifPresent(input -> {
+            String results = null;
+            try {
+            	results = articleDatabase.getArticlesByQueryAsString(input);
+            	if (results.startsWith("Total Articles Retrieved")) {
+            		results = ArticleSearchIndex.escapeMarkup(articleDatabase.getFacetsAsString(input)) + "\n" + results;  // Counts to drill down with
+            	}
+            } catch (SQLException e) {
+                e.printStackTrace();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            showArticleDetailsWindow(results);
+        });
+    }
+    /**
+     * Lists the articles most relevant to the words, best first
+     */
+    void searchByRelevanceWindow() {
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Search by Relevance");
+        dialog.setHeaderText("Enter words; the " + RELEVANCE_LIMIT + " best matching articles are listed first");
+        showLiveResults(dialog, (client, input) -> client.getArticlesByRelevanceAsString(input, RELEVANCE_LIMIT));
+
+        dialog.showAndWait().ifPresent(input -> {
+            String results = null;
+            try {
+            	results = articleDatabase.getArticlesByRelevanceAsString(input, RELEVANCE_LIMIT);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            showArticleDetailsWindow(results);
+        });
+    }
+    /**
+     * Searches with any combination of words, title, author, keyword, level and groups in one form.
+     * Only articles the user may see are listed.
+     */
+    void combinedSearchWindow() {
+    	Dialog<SearchCriteria> dialog = new Dialog<>();
+        dialog.setTitle("Combined Search");
+        dialog.setHeaderText("Fill in any of the fields; articles must match all of them");
+
+        ButtonType searchButtonType = new ButtonType("Search", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(searchButtonType, ButtonType.CANCEL);
+
+        TextField wordsField = new TextField();
+        TextField titleField = new TextField();
+        TextField authorField = new TextField();
+        TextField keywordField = new TextField();
+        TextField groupsField = new TextField();
+        groupsField.setPromptText("comma-separated");
+        String levels[] = {"All", "Beginner", "Intermediate","Advanced", "Expert"};
+        ComboBox<String> contentLevels = new ComboBox<String>(FXCollections.observableArrayList(levels));
+        contentLevels.setValue("All"); // Set default to "All"
+        offerSuggestions(dialog, Map.of(titleField, "title", authorField, "author", keywordField, "keyword"));
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20, 150, 10, 10));
+
+        grid.add(new Label("Words:"), 0, 0);
+        grid.add(wordsField, 1, 0);
+        grid.add(new Label("Title:"), 0, 1);
+        grid.add(titleField, 1, 1);
+        grid.add(new Label("Author:"), 0, 2);
+        grid.add(authorField, 1, 2);
+        grid.add(new Label("Keyword:"), 0, 3);
+        grid.add(keywordField, 1, 3);
+        grid.add(new Label("Content Level:"), 0, 4);
+        grid.add(contentLevels, 1, 4);
+        grid.add(new Label("Groups:"), 0, 5);
+        grid.add(groupsField, 1, 5);
+
+        dialog.getDialogPane().setContent(grid);
+
+        dialog.setResultConverter(dialogButton -> {
+            if (dialogButton == searchButtonType) {
+                return new SearchCriteria().words(wordsField.getText()).title(titleField.getText())
+                        .authors(authorField.getText()).keyword(keywordField.getText())
+                        .level(contentLevels.getValue()).groups(Arrays.asList(groupsField.getText().split(",")))
+                        .visibleTo(user);
+            }
+            return null;
+        });
+
+        dialog.showAndWait().ifPresent(criteria -> {
+            String results = null;
+            try {
+            	results = articleDatabase.search(criteria);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            showArticleDetailsWindow(results);
+        });
+    }
+    /**
+     * Shows the new articles that matched the user's saved searches since they last looked, and lets
+     * them save a query or delete a saved one
+     */
+    void savedSearchesWindow() {
+    	Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Saved Searches");
+        dialog.setHeaderText("You are notified when a new or updated article matches a saved query");
+
+        ButtonType saveButtonType = new ButtonType("Save", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(saveButtonType, ButtonType.CLOSE);
+
+        TextArea savedArea = new TextArea();
+        savedArea.setEditable(false);
+        savedArea.setWrapText(true);
+        TextField queryField = new TextField();
+        queryField.setPromptText("e.g. keyword:eclipse level:beginner");
+        TextField deleteField = new TextField();
+        deleteField.setPromptText("ID of a saved search to delete");
+        try {
+            savedArea.setText(articleDatabase.takeNotificationsAsString() + "\n\n"
+                    + articleDatabase.getSavedSearchesAsString());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20, 150, 10, 10));
+
+        grid.add(savedArea, 0, 0, 2, 1);
+        grid.add(new Label("New Query:"), 0, 1);
+        grid.add(queryField, 1, 1);
+        grid.add(new Label("Delete ID:"), 0, 2);
+        grid.add(deleteField, 1, 2);
+
+        dialog.getDialogPane().setContent(grid);
+
+        dialog.showAndWait().ifPresent(button -> {
+            if (button != saveButtonType) {
+                return;
+            }
+            try {
+                if (!queryField.getText().trim().isEmpty()) {
+                    showAlert("Saved Searches", articleDatabase.saveSearch(queryField.getText()));
+                }
+                if (!deleteField.getText().trim().isEmpty()) {
+                    articleDatabase.deleteSavedSearch(Integer.parseInt(deleteField.getText().trim()));
+                    showAlert("Saved Searches", "Saved search deleted.");
+                }
+            } catch (NumberFormatException e) {
+                showAlert("Saved Searches", "The ID to delete must be a number.");
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        });
     }
      /**
      * Searches for articles by identifiers.
@@ -183,14 +505,14 @@ public class Search_Interface extends Application {
     void searchByIdentifiersWindow() {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("Search by Identifiers");
-        dialog.setHeaderText("Enter Identifiers (comma-separated) OR 'All'");
+        dialog.setHeaderText("Enter Identifiers (comma-separated, end one with * to match a prefix) OR 'All'");
 
         dialog.showAndWait().ifPresent(input -> {
             String results = null;
             try {
                 if (input.trim().equalsIgnoreCase("All")) {
                     // If "All" is entered, fetch all articles
-                    results = articleDatabase.displayAllArticles(user);
+                    results = ArticleSearchIndex.escapeMarkup(articleDatabase.displayAllArticles());  // Plain text, unlike the search listings
                 } else {
                     // Otherwise, split input into identifiers and search by those
                     String[] keywordsArray = input.split(",");
@@ -224,7 +546,7 @@ public class Search_Interface extends Application {
             try {
                 if (input.trim().equalsIgnoreCase("All")) {
                     // If "All" is entered, fetch all articles
-                    results = articleDatabase.displayAllArticles(user);
+                    results = articleDatabase.displayAllArticles();
                 } else {
                     // Otherwise, split input into identifiers and search by those
                     String[] keywordsArray = input.split(",");
@@ -233,13 +555,7 @@ public class Search_Interface extends Application {
                         keywordsList.add(keyword.trim());
                     }
                     
-                    boolean canView = false;
-                    
-                    if (user.hasRole("Instructor") || user.getIsSpecial()) {
-                    	canView = true;
-                    }
-                    
-                    results = articleDatabase.getArticlesByGroupsAsString(keywordsList, canView);
+                    results = articleDatabase.getArticlesByGroupsAsString(keywordsList);
                 }    
             } catch (SQLException e) {
 				// TODO Auto-generated catch block
@@ -248,7 +564,7 @@ public class Search_Interface extends Application {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			}
-            showArticleDetailsWindow(results);
+            showArticleDetailsWindow(ArticleSearchIndex.escapeMarkup(results));
         });
     }
     
@@ -287,13 +603,13 @@ public class Search_Interface extends Application {
         dialog.showAndWait().ifPresent(selectedLevel -> {
             String results = null;
             try {
-                results = articleDatabase.getArticlesByContentLevelAsString(selectedLevel, user);
+                results = articleDatabase.getArticlesByContentLevelAsString(selectedLevel);
             } catch (SQLException e) {
                 e.printStackTrace();
             } catch (Exception e) {
                 e.printStackTrace();
             }
-            showArticleDetailsWindow(results);
+            showArticleDetailsWindow(ArticleSearchIndex.escapeMarkup(results));
         });
         
     }
@@ -317,27 +633,22 @@ public class Search_Interface extends Application {
             try {            	
                 int articleId = Integer.parseInt(input);
                 // Fetch more details for the article with the provided ID
-                boolean canView = false;
-                
-                if (user.hasRole("Instructor") || user.getIsSpecial()) {
-                	canView = true;
-                }
-                 
                 String articleDetails = null;
 				try {				
-					articleDetails = articleDatabase.getMoreInfoForArticleAsString(articleId, canView);
+					articleDetails = articleDatabase.getMoreInfoForArticleAsString(articleId);
 				} catch (Exception e) {
 					// TODO Auto-generated catch block
 					e.printStackTrace();
 				}
-                showArticleDetailsWindow(articleDetails);
+                showArticleDetailsWindow(ArticleSearchIndex.escapeMarkup(articleDetails));
             } catch (NumberFormatException e) {
                 showAlert("Error", "Invalid ID format.");
             }
         });
     }
      /**
-     * Displays the article details in a new window.
+     * Displays the article details in a new window. The details are highlighted text, as the search
+     * listings return it; plain text is passed through ArticleSearchIndex.escapeMarkup first.
      */
     private void showArticleDetailsWindow(String articleDetails) {
         // Create a new Stage for the article details window
@@ -354,24 +665,24 @@ public class Search_Interface extends Application {
 		}
     	String groupsAsString = String.join(", ", groups);
     	
-    	String results = "Active Groups: " + groupsAsString + "\n" + articleDetails;    	
+    	String results = "Active Groups: " + ArticleSearchIndex.escapeMarkup(groupsAsString) + "\n" + articleDetails;    	
     	
-        // Create a TextArea to display article details (read-only)
-        TextArea detailTextArea = new TextArea();
-        detailTextArea.setText(results);
-        detailTextArea.setEditable(false);  // Make the TextArea read-only
-        detailTextArea.setWrapText(true);   // Wrap text for better readability
+        // Show the article details with the matched words of each snippet in bold (read-only)
+        TextFlow detailText = new TextFlow();
+        setHighlightedText(detailText, results);
+        ScrollPane detailScroll = highlightedPane(detailText);
 
-        // Create a VBox to hold the TextArea and the button
+        // Create a VBox to hold the text and the button
         VBox vbox = new VBox(10);  // 10px space between elements
         vbox.setPadding(new Insets(10));  // Add padding around the VBox
-        vbox.getChildren().add(detailTextArea);  // Add the TextArea to VBox
+        vbox.getChildren().add(detailScroll);  // Add the text to VBox
+        VBox.setVgrow(detailScroll, Priority.ALWAYS);
 
         // Create a button to view more details
         Button viewMoreInfoButton = new Button("View an Article in More Detail");
 
         // Add the button to the VBox layout (instead of the grid)
-        vbox.getChildren().add(viewMoreInfoButton);  // Add button below TextArea
+        vbox.getChildren().add(viewMoreInfoButton);  // Add button below the text
 
         // Set the scene for the new stage and show it
         detailStage.setScene(new Scene(vbox, 400, 300));
@@ -381,7 +692,34 @@ public class Search_Interface extends Application {
         viewMoreInfoButton.setOnAction(e -> showViewMoreWindow());
     }
 
-    
+    /**
+     * Fills the flow with highlighted text, showing the words between the highlight markers of search
+     * snippets in bold and dropping the markers and their escapes
+     */
+    private static void setHighlightedText(TextFlow flow, String text) {
+        flow.getChildren().clear();
+        List<String> pieces = ArticleSearchIndex.parseMarkup(text);
+        for (int i = 0; i < pieces.size(); i++) {
+            if (pieces.get(i).isEmpty()) {
+                continue;
+            }
+            Text piece = new Text(pieces.get(i));
+            if (i % 2 == 1) {
+                piece.setFont(Font.font(Font.getDefault().getFamily(), FontWeight.BOLD, Font.getDefault().getSize()));
+            }
+            flow.getChildren().add(piece);
+        }
+    }
+
+    // Scrolls a text flow, wrapping it to the width of the pane
+    private static ScrollPane highlightedPane(TextFlow flow) {
+        flow.setPadding(new Insets(5));
+        ScrollPane scroll = new ScrollPane(flow);
+        scroll.setFitToWidth(true);
+        scroll.setPrefViewportHeight(200);
+        return scroll;
+    }
+
     private static void showAlert(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle(title);
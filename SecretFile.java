@@ -0,0 +1,91 @@
+package application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * <p> SecretFile Class </p>
+ *
+ * <p> Description: Random secrets kept in files only their owner can read, such as the blind index key
+ * and the token front-ends show the article server. The first caller writes a random secret and every
+ * later caller, in this or another process, reads the same one. The file and any missing directories
+ * above it are created in one step with owner-only permissions, so the secret is never readable by
+ * others, and a process that loses the race to create the file reads the winner's secret instead of
+ * overwriting it. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+final class SecretFile {
+
+	private static final int READ_ATTEMPTS = 20;   // Waits up to a second for another process to write the secret
+
+	private SecretFile() {
+	}
+
+	/**
+	 * The secret stored in the file, creating the file with a random secret of the given length first
+	 */
+	static byte[] readOrCreate(Path file, int length) throws IOException {
+		try {
+			createDirectories(file.toAbsolutePath().getParent());
+			Path created;
+			if (isPosix()) {
+				created = Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+			} else {
+				created = Files.createFile(file);
+				created.toFile().setReadable(false, false);
+				created.toFile().setReadable(true, true);
+			}
+			byte[] bytes = new byte[length];
+			new SecureRandom().nextBytes(bytes);
+			Files.write(created, Base64.getEncoder().encode(bytes));
+			return bytes;
+		} catch (FileAlreadyExistsException e) {
+			return read(file);
+		}
+	}
+
+	/**
+	 * Creates a directory and any missing parents, the new ones readable only by their owner
+	 */
+	static void createDirectories(Path directory) throws IOException {
+		if (directory == null || Files.isDirectory(directory)) {
+			return;
+		}
+		if (isPosix()) {
+			Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		} else {
+			Files.createDirectories(directory);
+		}
+	}
+
+	// Reads an existing secret, waiting briefly if another process has created the file but not written it yet
+	private static byte[] read(Path file) throws IOException {
+		for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+			String encoded = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+			if (!encoded.isEmpty()) {
+				return Base64.getDecoder().decode(encoded);
+			}
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		throw new IOException("The secret file " + file + " is empty");
+	}
+
+	private static boolean isPosix() {
+		return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+	}
+}
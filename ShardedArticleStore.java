@@ -0,0 +1,546 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p> ShardedArticleStore Class </p>
+ *
+ * <p> Description: Sharded storage mode for articles. Instead of one H2 file, articles are spread over
+ * several H2 stores, and each article is routed by its group (systemInfo). A group is hashed to exactly
+ * one shard, so every article of a group lives in the same store and single-group operations such as
+ * getArticlesByGroupsAsString and backupArticlesByGroup only touch that store. Searches that are not
+ * limited to a group are sent to all shards in parallel. Each shard answers with an ArticleListing of
+ * typed rows, and the listings are merged by ID, or by score for relevance, before they become text. </p>
+ *
+ * <p> Each shard hands out article IDs from its own range of ID_RANGE values, so IDs stay unique across
+ * shards and an ID alone tells which shard holds the article. An article therefore never changes shard:
+ * an update to a group stored on another shard is rejected, and a restored article whose ID does not fit
+ * the shard of its group gets a new ID in that shard's range. Saved searches are stored on every shard
+ * under one ID, so each shard notifies of its own new articles. ArticleServer uses this store when the
+ * article.shards property is set. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class ShardedArticleStore implements ArticleStore {
+
+	// Number of IDs reserved for each shard; INT ids allow up to MAX_SHARDS shards
+	static final int ID_RANGE = 100_000_000;
+	static final int MAX_SHARDS = 20;
+
+	// Session IDs on every shard of each store in this process that handed out its session ID, keyed by
+	// base URL and the session ID on shard 0, so another store can cancel what it runs
+	private static final Map<String, int[]> SESSIONS = new ConcurrentHashMap<>();
+
+	private final String baseUrl;
+	private final Article[] shards;         // One Article connection per shard
+	private final ExecutorService pool;      // Runs scatter-gather searches, one task per shard
+	private String sessionKey;               // Entry of this store in SESSIONS, or null
+
+	/**
+	 * Opens shardCount H2 stores next to the given base URL, e.g. jdbc:h2:~/firstDatabase_shard0
+	 */
+	public ShardedArticleStore(String baseUrl, int shardCount) throws Exception {
+		if (shardCount < 1 || shardCount > MAX_SHARDS) {
+			throw new IllegalArgumentException("Shard count must be between 1 and " + MAX_SHARDS);
+		}
+		this.baseUrl = baseUrl;
+		shards = new Article[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Article();
+			shards[i].connectToDatabase(Article.serverModeUrl(baseUrl + "_shard" + i));
+			shards[i].reserveIdRange(i * ID_RANGE + 1);
+		}
+		pool = Executors.newFixedThreadPool(shardCount);
+	}
+
+	/**
+	 * Opens shardCount stores next to the default article database file
+	 */
+	public ShardedArticleStore(int shardCount) throws Exception {
+		this(Article.DB_URL, shardCount);
+	}
+
+	// Shard that holds every article of the given group
+	int shardIndexFor(String systemInfo) {
+		String group = (systemInfo == null) ? "general" : systemInfo;
+		return Math.floorMod(group.hashCode(), shards.length);
+	}
+
+	// Shard that holds the article with the given ID
+	private Article shardForId(int articleId) {
+		int index = (articleId - 1) / ID_RANGE;
+		return (index >= 0 && index < shards.length) ? shards[index] : null;
+	}
+
+	public void register(Article articleToAdd) throws Exception {
+		shards[shardIndexFor(articleToAdd.getSystemInfo())].register(articleToAdd);
+	}
+
+	/**
+	 * Registers a list of articles, one batched insert per shard touched
+	 */
+	public void registerBatch(List<Article> articlesToAdd) throws Exception {
+		Map<Integer, List<Article>> byShard = new HashMap<>();
+		for (Article article : articlesToAdd) {
+			byShard.computeIfAbsent(shardIndexFor(article.getSystemInfo()), k -> new ArrayList<>()).add(article);
+		}
+		for (Map.Entry<Integer, List<Article>> entry : byShard.entrySet()) {
+			shards[entry.getKey()].registerBatch(entry.getValue());
+		}
+	}
+
+	/**
+	 * Updates an article in place. Moving it to a group stored on another shard would change its ID and
+	 * could not be done in one transaction across the two stores, so such an update is rejected.
+	 */
+	public void updateArticle(int articleId, Article articleToUpdate) throws Exception {
+		Article current = shardForId(articleId);
+		if (current == null) {
+			return;
+		}
+		if (shards[shardIndexFor(articleToUpdate.getSystemInfo())] != current) {
+			throw new IllegalArgumentException("Article " + articleId + " cannot move to group "
+					+ articleToUpdate.getSystemInfo() + ", which is stored on another shard");
+		}
+		current.updateArticle(articleId, articleToUpdate);
+	}
+
+	public boolean doesArticleExist(String title) {
+		for (Article shard : shards) {
+			if (shard.doesArticleExist(title)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean doesIdentifierExist(String identifier) {
+		for (Article shard : shards) {
+			if (shard.doesIdentifierExist(identifier)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean doesArticleExist(int articleId) {
+		Article shard = shardForId(articleId);
+		return shard != null && shard.doesArticleExist(articleId);
+	}
+
+	public void deleteArticle(int articleId) throws Exception {
+		Article shard = shardForId(articleId);
+		if (shard != null) {
+			shard.deleteArticle(articleId);
+		}
+	}
+
+	public void deleteArticlesByIdentifier(String identifier) throws Exception {
+		for (Article shard : shards) {
+			shard.deleteArticlesByIdentifier(identifier);
+		}
+	}
+
+	public void clearDatabase() throws Exception {
+		for (Article shard : shards) {
+			shard.clearDatabase();
+		}
+	}
+
+	public String getMoreInfoForArticleAsString(int id, boolean canViewBody) throws Exception {
+		Article shard = shardForId(id);
+		if (shard == null) {
+			return "No articles found for the specified groups.";
+		}
+		return shard.getMoreInfoForArticleAsString(id, canViewBody);
+	}
+
+	public String getBody(int articleId) throws Exception {
+		Article shard = shardForId(articleId);
+		if (shard == null) {
+			return "No articles found in the database.";
+		}
+		return shard.getBody(articleId);
+	}
+
+	/**
+	 * Queries only the shards that hold the requested groups
+	 */
+	public String getArticlesByGroupsAsString(List<String> groups, boolean canViewBody) throws Exception {
+		if (groups == null || groups.isEmpty()) {
+			return "No groups provided.";
+		}
+		Map<Integer, List<String>> byShard = new TreeMap<>();  // In shard order, which is ID order
+		for (String group : groups) {
+			byShard.computeIfAbsent(shardIndexFor(group), k -> new ArrayList<>()).add(group);
+		}
+		List<Callable<ArticleListing>> tasks = new ArrayList<>();
+		for (Map.Entry<Integer, List<String>> entry : byShard.entrySet()) {
+			Article shard = shards[entry.getKey()];
+			tasks.add(() -> shard.listArticlesByGroups(entry.getValue(), canViewBody));
+		}
+		return ArticleListing.merge(gather(tasks), Integer.MAX_VALUE).toString();
+	}
+
+	public String displayAllArticles(User user) throws Exception {
+		return scatter(shard -> shard.listArticlesVisibleTo(user));
+	}
+
+	public String getArticlesByIdentifiersAsString(List<String> identifiers) throws Exception {
+		return listArticlesByIdentifiers(identifiers).toString();
+	}
+
+	ArticleListing listArticlesByIdentifiers(List<String> identifiers) throws Exception {
+		return scatterListing(shard -> shard.listArticlesByIdentifiers(identifiers));
+	}
+
+	public String getArticlesByContentLevelAsString(String selectedLevel, User user) throws Exception {
+		return scatter(shard -> shard.listArticlesByContentLevel(selectedLevel, user));
+	}
+
+	public String getArticlesByAuthorAsString(String author) throws Exception {
+		return scatter(shard -> shard.listArticlesByAuthor(author));
+	}
+
+	public String getArticlesByTitleAsString(String phrases) throws Exception {
+		return scatter(shard -> shard.listArticlesByTitle(phrases));
+	}
+
+	public String getArticlesByAbstractAsString(String phrases) throws Exception {
+		return scatter(shard -> shard.listArticlesByAbstract(phrases));
+	}
+
+	public String getArticlesByQueryAsString(String query) throws Exception {
+		return scatter(shard -> shard.listArticlesByQuery(query));
+	}
+
+	public String getArticlesByBodyAsString(String words) throws Exception {
+		return scatter(shard -> shard.listArticlesByBody(words));
+	}
+
+	public String search(SearchCriteria criteria) throws Exception {
+		return scatter(shard -> shard.listArticles(criteria));
+	}
+
+	/**
+	 * Adds up the facet counts of every shard
+	 */
+	public String getFacetsAsString(String query) throws Exception {
+		Map<String, Map<String, Integer>> total = new LinkedHashMap<>();
+		try {
+			for (Article shard : shards) {
+				for (Map.Entry<String, Map<String, Integer>> facet : shard.getFacets(query).entrySet()) {
+					Map<String, Integer> counts = total.computeIfAbsent(facet.getKey(), k -> new HashMap<>());
+					facet.getValue().forEach((value, count) -> counts.merge(value, count, Integer::sum));
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			return "Invalid search query: " + e.getMessage();
+		}
+		return Article.formatFacets(total);
+	}
+
+	/**
+	 * Ranks on every shard and keeps the limit best scores of all shards. Each shard scores with its own
+	 * collection statistics, which is close enough when groups are spread evenly.
+	 */
+	public String getArticlesByRelevanceAsString(String words, int limit) throws Exception {
+		List<Callable<ArticleListing>> tasks = new ArrayList<>();
+		for (Article shard : shards) {
+			tasks.add(() -> shard.listArticlesByRelevance(words, limit));
+		}
+		return ArticleListing.merge(gather(tasks), limit).toString();
+	}
+
+	/**
+	 * Completions from every shard, taking each shard's best in turn. Shards only report the order of
+	 * their completions, not how often each is used, so the merged order is approximate.
+	 */
+	public List<String> getSuggestions(String kind, String prefix, int limit) throws SQLException {
+		List<List<String>> perShard = new ArrayList<>();
+		for (Article shard : shards) {
+			perShard.add(shard.getSuggestions(kind, prefix, limit));
+		}
+		Set<String> merged = new LinkedHashSet<>();
+		for (int rank = 0; rank < limit && merged.size() < limit; rank++) {
+			for (List<String> completions : perShard) {
+				if (rank < completions.size() && merged.size() < limit) {
+					merged.add(completions.get(rank));
+				}
+			}
+		}
+		return new ArrayList<>(merged);
+	}
+
+	/**
+	 * Saves the search on every shard under the ID shard 0 gives it, so a new article matching it is
+	 * found whichever shard it is stored on
+	 */
+	public String saveSearch(String username, String query) throws Exception {
+		String error = Article.savedSearchError(query);
+		if (error != null) {
+			return error;
+		}
+		int id = shards[0].addSavedSearch(username, query.trim(), 0);
+		try {
+			for (int i = 1; i < shards.length; i++) {
+				shards[i].addSavedSearch(username, query.trim(), id);
+			}
+		} catch (Exception e) {
+			for (Article shard : shards) {
+				shard.deleteSavedSearch(username, id);
+			}
+			throw e;
+		}
+		return "Saved search " + id + ": " + query.trim();
+	}
+
+	public void deleteSavedSearch(String username, int searchId) throws Exception {
+		for (Article shard : shards) {
+			shard.deleteSavedSearch(username, searchId);
+		}
+	}
+
+	public String getSavedSearchesAsString(String username) throws Exception {
+		return shards[0].getSavedSearchesAsString(username);
+	}
+
+	/**
+	 * Takes the notifications of every shard, shard by shard, each oldest first
+	 */
+	public String takeNotificationsAsString(String username) throws Exception {
+		StringBuilder result = new StringBuilder("New articles matching your saved searches:\n");
+		int count = 0;
+		for (Article shard : shards) {
+			count += shard.takeNotifications(username, result);
+		}
+		return count == 0 ? "No new articles for your saved searches." : result.toString();
+	}
+
+	public Set<String> getAllSystemInfo() throws SQLException {
+		Set<String> systemInfoSet = new LinkedHashSet<>();
+		for (Article shard : shards) {
+			systemInfoSet.addAll(shard.getAllSystemInfo());
+		}
+		return systemInfoSet;
+	}
+
+	/**
+	 * Backs up a single group from the one shard that holds it
+	 */
+	public void backupArticlesByGroup(String fileName, String groupName) throws Exception {
+		shards[shardIndexFor(groupName)].backupArticlesByGroup(fileName, groupName);
+	}
+
+	/**
+	 * Backs up every shard into one file in the same format as Article.backupArticles
+	 */
+	public void backupArticles(String fileName) throws Exception {
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+			for (int i = 0; i < shards.length; i++) {
+				File part = new File(fileName + ".shard" + i);
+				try {
+					shards[i].backupArticles(part.getPath());
+					try (BufferedReader reader = new BufferedReader(new FileReader(part))) {
+						String line;
+						while ((line = reader.readLine()) != null) {
+							writer.write(line);
+							writer.newLine();
+						}
+					}
+				} finally {
+					part.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Restores a backup file, routing every line to the shard of its group. Every shard stages its
+	 * restore inside one transaction that stays open until all shards have staged theirs, so a failure
+	 * on any shard rolls back every shard and the current articles stay in place. An ID that does not
+	 * lie in the range of its group's shard, as in a backup made by the unsharded store or with another
+	 * shard count, is renumbered into that range after the highest ID that already fits there.
+	 */
+	public void restoreArticles(String fileName) throws Exception {
+		int[] nextIds = new int[shards.length];
+		for (int i = 0; i < shards.length; i++) {
+			nextIds[i] = i * ID_RANGE + 1;
+		}
+		// First pass: find the highest fitting ID of each shard, so renumbered articles never reuse one
+		try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int index = shardIndexForLine(line);
+				int id = Integer.parseInt(line.split(",")[0].trim());
+				if ((id - 1) / ID_RANGE == index && id > 0) {
+					nextIds[index] = Math.max(nextIds[index], id + 1);
+				}
+			}
+		}
+
+		File[] parts = new File[shards.length];
+		BufferedWriter[] writers = new BufferedWriter[shards.length];
+		try {
+			for (int i = 0; i < shards.length; i++) {
+				parts[i] = new File(fileName + ".shard" + i);
+				writers[i] = new BufferedWriter(new FileWriter(parts[i]));
+			}
+			try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int index = shardIndexForLine(line);
+					int comma = line.indexOf(',');
+					int id = Integer.parseInt((comma < 0 ? line : line.substring(0, comma)).trim());
+					if ((id - 1) / ID_RANGE != index || id <= 0) {
+						if (nextIds[index] > (index + 1) * ID_RANGE) {
+							throw new IllegalArgumentException("Shard " + index + " has no free IDs left for article " + id);
+						}
+						// The body is encrypted with the authors, not the ID, so only the ID column changes
+						line = nextIds[index]++ + (comma < 0 ? "" : line.substring(comma));
+					}
+					writers[index].write(line);
+					writers[index].newLine();
+				}
+			}
+			for (BufferedWriter writer : writers) {
+				writer.close();
+			}
+			restoreShards(parts, 0);
+		} finally {
+			for (int i = 0; i < shards.length; i++) {
+				if (writers[i] != null) {
+					writers[i].close();
+				}
+				if (parts[i] != null) {
+					parts[i].delete();
+				}
+			}
+		}
+	}
+
+	// Shard of the group named in a backup line
+	private int shardIndexForLine(String line) {
+		String[] data = line.split(",");
+		String systemInfo = data.length > 9 ? data[9].trim() : "";
+		return shardIndexFor(systemInfo.isEmpty() ? null : systemInfo);
+	}
+
+	/**
+	 * Restores shard index and every later shard, each inside the still open transaction of the shards
+	 * before it. Shard restores join the open transaction, so nothing commits until the last shard has
+	 * staged its articles, and an exception rolls back every shard on its way out. The commits then run
+	 * from the last shard to the first; only a failure of one of those commits can leave shards apart.
+	 */
+	private void restoreShards(File[] parts, int index) throws Exception {
+		if (index == shards.length) {
+			return;
+		}
+		shards[index].inTransaction(() -> {
+			shards[index].restoreArticles(parts[index].getPath());
+			restoreShards(parts, index + 1);
+		});
+	}
+
+	/**
+	 * Session ID of shard 0, which stands for the sessions of every shard of this store
+	 */
+	public int getSessionId() throws SQLException {
+		int[] ids = new int[shards.length];
+		for (int i = 0; i < shards.length; i++) {
+			ids[i] = shards[i].getSessionId();
+		}
+		if (sessionKey != null) {
+			SESSIONS.remove(sessionKey);
+		}
+		sessionKey = baseUrl + "#" + ids[0];
+		SESSIONS.put(sessionKey, ids);
+		return ids[0];
+	}
+
+	/**
+	 * Cancels what the store that handed out the session ID runs on each of its shards
+	 */
+	public boolean cancelSession(int sessionId) throws SQLException {
+		int[] ids = SESSIONS.get(baseUrl + "#" + sessionId);
+		if (ids == null) {
+			return false;
+		}
+		boolean found = false;
+		for (int i = 0; i < shards.length; i++) {
+			found |= shards[i].cancelSession(ids[i]);
+		}
+		return found;
+	}
+
+	public void warmUp() throws SQLException {
+		for (Article shard : shards) {
+			shard.warmUp();
+		}
+	}
+
+	public void ensureConnected() throws SQLException {
+		for (Article shard : shards) {
+			shard.ensureConnected();
+		}
+	}
+
+	/**
+	 * Closes every shard connection and the search thread pool
+	 */
+	public void closeConnection() {
+		if (sessionKey != null) {
+			SESSIONS.remove(sessionKey);
+		}
+		pool.shutdown();
+		for (Article shard : shards) {
+			shard.closeConnection();
+		}
+	}
+
+	// A search run against a single shard
+	private interface ShardQuery {
+		ArticleListing run(Article shard) throws Exception;
+	}
+
+	// Runs the query on every shard in parallel and merges the listings in shard order, which is ID order
+	private ArticleListing scatterListing(ShardQuery query) throws Exception {
+		List<Callable<ArticleListing>> tasks = new ArrayList<>();
+		for (Article shard : shards) {
+			tasks.add(() -> query.run(shard));
+		}
+		return ArticleListing.merge(gather(tasks), Integer.MAX_VALUE);
+	}
+
+	private String scatter(ShardQuery query) throws Exception {
+		return scatterListing(query).toString();
+	}
+
+	private List<ArticleListing> gather(List<Callable<ArticleListing>> tasks) throws Exception {
+		List<ArticleListing> results = new ArrayList<>();
+		for (Future<ArticleListing> future : pool.invokeAll(tasks)) {
+			results.add(future.get());
+		}
+		return results;
+	}
+}
@@ -0,0 +1,237 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <p> StandingQueries Class </p>
+ *
+ * <p> Description: Percolator for the saved searches of users. Instead of running every saved query
+ * against the article table after each change, the queries themselves are indexed: each one is filed
+ * under a few anchor keys, words or column values that any matching article must contain. A new or
+ * changed article looks up the keys of its own words and columns, and only the queries found there are
+ * checked in full against the article row, so the work grows with the number of candidates rather than
+ * with the number of saved searches. </p>
+ *
+ * <p> The anchors of a word or phrase term are its longest word in each field it searches; of a level,
+ * group or keyword term its value; of an AND the smallest anchor set of its positive parts; of an OR the
+ * anchors of all its parts. Queries that have no anchors, such as a lone NOT, are checked against every
+ * article. One percolator is shared by every Article connected to the same database in this process. It
+ * is loaded from the saved_searches table on first use and kept current by Article, which reloads it when
+ * the ArticleGeneration counter shows that another process changed the database. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+class StandingQueries {
+
+	private static final Map<String, StandingQueries> PERCOLATORS = new HashMap<>();
+
+	/**
+	 * A saved search whose query matched an article
+	 */
+	static class Match {
+		final int searchId;
+		final String username;
+
+		Match(int searchId, String username) {
+			this.searchId = searchId;
+			this.username = username;
+		}
+	}
+
+	// One saved search and its parsed plan
+	private static class Saved {
+		final int id;
+		final String username;
+		final ArticleQuery.Node plan;
+		final Set<String> anchors;   // Null when the query has to be checked against every article
+
+		Saved(int id, String username, ArticleQuery.Node plan) {
+			this.id = id;
+			this.username = username;
+			this.plan = plan;
+			this.anchors = anchors(plan);
+		}
+	}
+
+	private final Map<Integer, Saved> searches = new HashMap<>();
+	private final Map<String, Set<Integer>> byAnchor = new HashMap<>();
+	private final Set<Integer> unanchored = new TreeSet<>();
+	private boolean built = false;
+
+	/**
+	 * Returns the percolator shared by every Article connected to the given database URL
+	 */
+	static synchronized StandingQueries forDatabase(String dbUrl) {
+		return PERCOLATORS.computeIfAbsent(dbUrl, url -> new StandingQueries());
+	}
+
+	/**
+	 * Loads the saved searches unless they are already loaded
+	 */
+	synchronized void ensureBuilt(Connection connection) throws SQLException {
+		if (built) {
+			return;
+		}
+		try (Statement stmt = connection.createStatement();
+			 ResultSet rs = stmt.executeQuery("SELECT id, username, query FROM saved_searches")) {
+			while (rs.next()) {
+				try {
+					add(rs.getInt(1), rs.getString(2), rs.getString(3));
+				} catch (IllegalArgumentException e) {
+					System.err.println("Skipping saved search " + rs.getInt(1) + ": " + e.getMessage());
+				}
+			}
+		}
+		built = true;
+	}
+
+	/**
+	 * Forgets every saved search; they are loaded from the table again on next use
+	 */
+	synchronized void invalidate() {
+		searches.clear();
+		byAnchor.clear();
+		unanchored.clear();
+		built = false;
+	}
+
+	/**
+	 * Files a saved search under its anchors; throws IllegalArgumentException if the query does not parse
+	 */
+	synchronized void add(int id, String username, String query) {
+		remove(id);
+		Saved saved = new Saved(id, username, ArticleQuery.parse(query));
+		searches.put(id, saved);
+		if (saved.anchors == null) {
+			unanchored.add(id);
+			return;
+		}
+		for (String anchor : saved.anchors) {
+			byAnchor.computeIfAbsent(anchor, k -> new HashSet<>()).add(id);
+		}
+	}
+
+	synchronized void remove(int id) {
+		Saved saved = searches.remove(id);
+		if (saved == null) {
+			return;
+		}
+		if (saved.anchors == null) {
+			unanchored.remove(id);
+			return;
+		}
+		for (String anchor : saved.anchors) {
+			Set<Integer> ids = byAnchor.get(anchor);
+			ids.remove(id);
+			if (ids.isEmpty()) {
+				byAnchor.remove(anchor);
+			}
+		}
+	}
+
+	/**
+	 * Saved searches that match the article after the change and did not match it before; before
+	 * is null for a new article
+	 */
+	synchronized List<Match> percolate(ArticleRow before, ArticleRow after) {
+		Set<Integer> candidates = new TreeSet<>(unanchored);
+		for (String key : keys(after)) {
+			Set<Integer> ids = byAnchor.get(key);
+			if (ids != null) {
+				candidates.addAll(ids);
+			}
+		}
+		List<Match> matches = new ArrayList<>();
+		for (int id : candidates) {
+			Saved saved = searches.get(id);
+			// Saved searches always match whole words, whichever backend answers interactive searches
+			if (saved.plan.matches(after, ArticleQuery.WHOLE_WORDS)
+					&& (before == null || !saved.plan.matches(before, ArticleQuery.WHOLE_WORDS))) {
+				matches.add(new Match(saved.id, saved.username));
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Keys an article can be found under: the words of each text field and its column values
+	 */
+	static Set<String> keys(ArticleRow row) {
+		Set<String> keys = new LinkedHashSet<>();
+		for (ArticleSearchIndex.Field field : ArticleSearchIndex.Field.values()) {
+			for (String token : ArticleSearchIndex.tokenize(ArticleSearchIndex.fieldText(row, field))) {
+				keys.add(field + ":" + token);
+			}
+		}
+		keys.add("level:" + row.level);
+		keys.add("systemInfo:" + row.systemInfo);
+		for (String keyword : Article.keywordsOf(row.keywords)) {
+			keys.add("keyword:" + keyword);
+		}
+		return keys;
+	}
+
+	/**
+	 * Keys of which every matching article has at least one, or null if there are none
+	 */
+	static Set<String> anchors(ArticleQuery.Node node) {
+		if (node instanceof ArticleQuery.TextTerm) {
+			ArticleQuery.TextTerm term = (ArticleQuery.TextTerm) node;
+			String longest = null;
+			for (String token : ArticleSearchIndex.tokenize(term.phrase)) {
+				if (longest == null || token.length() > longest.length()) {
+					longest = token;
+				}
+			}
+			if (longest == null) {
+				return null;
+			}
+			Set<String> anchors = new LinkedHashSet<>();
+			for (ArticleSearchIndex.Field field : term.fields) {
+				anchors.add(field + ":" + longest);
+			}
+			return anchors;
+		}
+		if (node instanceof ArticleQuery.ColumnTerm) {
+			ArticleQuery.ColumnTerm term = (ArticleQuery.ColumnTerm) node;
+			Set<String> anchors = new LinkedHashSet<>();
+			anchors.add(term.column + ":" + term.value);
+			return anchors;
+		}
+		if (node instanceof ArticleQuery.And) {
+			Set<String> smallest = null;
+			for (ArticleQuery.Node child : ((ArticleQuery.And) node).children) {
+				Set<String> anchors = anchors(child);
+				if (anchors != null && (smallest == null || anchors.size() < smallest.size())) {
+					smallest = anchors;
+				}
+			}
+			return smallest;
+		}
+		if (node instanceof ArticleQuery.Or) {
+			Set<String> all = new LinkedHashSet<>();
+			for (ArticleQuery.Node child : ((ArticleQuery.Or) node).children) {
+				Set<String> anchors = anchors(child);
+				if (anchors == null) {
+					return null;
+				}
+				all.addAll(anchors);
+			}
+			return all;
+		}
+		return null;  // A NOT matches articles without its term, so nothing is required
+	}
+}
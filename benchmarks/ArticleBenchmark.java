@@ -0,0 +1,197 @@
+package application;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * <p> ArticleBenchmark Class </p>
+ *
+ * <p> Description: JMH benchmarks for the persistence and search paths of the Article class. Every trial
+ * runs against a fresh H2 database in a temporary directory, populated with a parameterized number of
+ * articles and body size, so the shared ~/firstDatabase file is never touched. The benchmarks cover
+ * register, updateArticle, each search method, getMoreInfoForArticleAsString, backupArticles and
+ * restoreArticles. The result and detail caches are emptied before every invocation, so the searches and
+ * getMoreInfoForArticleAsString measure the database path rather than a cache hit. </p>
+ *
+ * <p> Run through the jmh source set of the Gradle build, e.g.
+ * {@code gradle jmh -Pjmh='ArticleBenchmark -p datasetSize=1000'}, or build it with {@code gradle jmhJar}
+ * and run {@code java -jar build/libs/benchmarks.jar ArticleBenchmark -p datasetSize=1000}. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ArticleBenchmark {
+
+	// Number of articles loaded into the database before each trial
+	@Param({"1000", "100000", "1000000"})
+	public int datasetSize;
+
+	// Length in characters of every generated article body
+	@Param({"256", "4096"})
+	public int bodySize;
+
+	private static final String[] LEVELS = {"beginner", "intermediate", "advanced", "expert"};
+	private static final String[] GROUPS = {"general", "cse360", "cse340", "eclipse"};
+
+	private Path tempDir;               // Directory holding the temporary H2 database and backup file
+	private Article articleDatabase;    // Article instance connected to the temporary database
+	private User user;                  // Plain student user used for level searches
+	private String backupFile;          // Backup written once per trial and used by restoreArticles
+	private Article updateTemplate;     // Article used as the new content by updateArticle
+	private Random random;
+
+	/**
+	 * Creates the temporary database and loads datasetSize articles into it
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		tempDir = Files.createTempDirectory("article-bench");
+		articleDatabase = new Article();
+		articleDatabase.connectToDatabase("jdbc:h2:" + tempDir.resolve("bench").toAbsolutePath());
+		user = new User("bench", "bench".toCharArray());
+		random = new Random(42);
+
+		List<Article> batch = new ArrayList<>();
+		for (int i = 0; i < datasetSize; i++) {
+			batch.add(newArticle(i));
+			if (batch.size() == 1000) {
+				articleDatabase.registerBatch(batch);
+				batch.clear();
+			}
+		}
+		articleDatabase.registerBatch(batch);
+		updateTemplate = newArticle(datasetSize);
+
+		backupFile = tempDir.resolve("backup.txt").toString();
+		articleDatabase.backupArticles(backupFile);
+	}
+
+	/**
+	 * Empties the result and detail caches so every search and detail view reaches the database
+	 */
+	@Setup(Level.Invocation)
+	public void clearCaches() {
+		articleDatabase.getQueryCache().invalidateAll();
+		articleDatabase.getDetailCache().invalidateAll();
+	}
+
+	/**
+	 * Closes the connection and deletes the temporary database files
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		articleDatabase.closeConnection();
+		File[] files = tempDir.toFile().listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		tempDir.toFile().delete();
+	}
+
+	// Builds a deterministic article; bodies contain no commas so backup files can be restored
+	private Article newArticle(int n) throws Exception {
+		char[] body = new char[bodySize];
+		Arrays.fill(body, 'x');
+		return new Article("Title " + n + " Eclipse setup", "Author" + (n % 500), "Abstract for article " + n,
+				"eclipse java", new String(body), "ref" + n, LEVELS[n % LEVELS.length],
+				"id" + (n % 1000), GROUPS[n % GROUPS.length]);
+	}
+
+	// Picks an id that exists in the loaded dataset
+	private int randomId() {
+		return 1 + random.nextInt(datasetSize);
+	}
+
+	@Benchmark
+	public void register() throws Exception {
+		articleDatabase.register(updateTemplate);
+	}
+
+	@Benchmark
+	public void updateArticle() throws Exception {
+		articleDatabase.updateArticle(randomId(), updateTemplate);
+	}
+
+	@Benchmark
+	public void searchByTitle(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByTitleAsString("Title " + randomId() + " "));
+	}
+
+	@Benchmark
+	public void searchByAuthor(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByAuthorAsString("Author" + random.nextInt(500)));
+	}
+
+	@Benchmark
+	public void searchByAbstract(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByAbstractAsString("article " + randomId()));
+	}
+
+	@Benchmark
+	public void searchByIdentifiers(Blackhole bh) throws Exception {
+		List<String> identifiers = new ArrayList<>();
+		identifiers.add("id" + random.nextInt(1000));
+		identifiers.add("id" + random.nextInt(1000));
+		bh.consume(articleDatabase.getArticlesByIdentifiersAsString(identifiers));
+	}
+
+	@Benchmark
+	public void searchByGroups(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByGroupsAsString(Arrays.asList(GROUPS[random.nextInt(GROUPS.length)]), true));
+	}
+
+	@Benchmark
+	public void searchByLevel(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByContentLevelAsString(LEVELS[random.nextInt(LEVELS.length)], user));
+	}
+
+	@Benchmark
+	public void viewMore(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getMoreInfoForArticleAsString(randomId(), true));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void backupArticles() throws Exception {
+		articleDatabase.backupArticles(tempDir.resolve("bench-backup.txt").toString());
+	}
+
+	// Restores the trial's own backup, so the dataset is unchanged for the following benchmarks
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void restoreArticles() throws Exception {
+		articleDatabase.restoreArticles(backupFile);
+	}
+}
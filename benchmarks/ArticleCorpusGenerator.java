@@ -0,0 +1,255 @@
+package application;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p> ArticleCorpusGenerator Class </p>
+ *
+ * <p> Description: Deterministic, seedable generator of synthetic Article records for load and scale
+ * testing. The same seed always produces the same corpus. Field lengths follow clamped normal
+ * distributions, and title, abstract, body and keyword words are drawn from a synthetic vocabulary
+ * with Zipfian frequencies, so a few terms are very common and most are rare, as in real text.
+ * Levels, identifiers and systemInfo groups are drawn the same way. </p>
+ *
+ * <p> Generated articles can be streamed into the database through Article.registerBatch, or written
+ * straight to a backup file in the format read by Article.restoreArticles. Generated text never
+ * contains commas, because the backup format is comma-separated. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+public class ArticleCorpusGenerator {
+
+	private static final String[] SYLLABLES = {"ja", "va", "ec", "lip", "se", "fx", "ko", "tor", "bu", "ild",
+			"ma", "ven", "gra", "dle", "de", "bug", "sql", "in", "stall", "run", "git", "hub", "test", "log"};
+	private static final String[] LEVELS = {"beginner", "intermediate", "advanced", "expert"};
+	private static final int MAX_COLUMN_LENGTH = 255;  // Width of the VARCHAR columns in the articles table
+
+	private final Random random;
+
+	// Vocabulary and Zipf settings
+	private int vocabularySize = 50000;
+	private double zipfExponent = 1.07;
+	private String[] vocabulary;
+	private double[] vocabularyCdf;
+
+	// Field length settings, in words (mean and standard deviation)
+	private int titleWordsMean = 6, titleWordsSpread = 2;
+	private int abstractWordsMean = 40, abstractWordsSpread = 15;
+	private int bodyWordsMean = 400, bodyWordsSpread = 200;
+	private int keywordsMean = 4, keywordsSpread = 2;
+	private int authorCount = 5000;
+
+	// Grouping settings
+	private String[] groups = {"general", "cse360", "cse340", "cse310", "eclipse", "javafx"};
+	private int identifierCount = 2000;
+	private double[] groupCdf;
+	private double[] identifierCdf;
+	private double[] authorCdf;
+
+	private long generated = 0;  // Number of articles produced so far
+
+	/**
+	 * Creates a generator whose output is fully determined by the seed
+	 */
+	public ArticleCorpusGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+
+	public void setVocabulary(int vocabularySize, double zipfExponent) {
+		this.vocabularySize = vocabularySize;
+		this.zipfExponent = zipfExponent;
+		this.vocabulary = null;
+	}
+
+	public void setTitleWords(int mean, int spread) {
+		this.titleWordsMean = mean;
+		this.titleWordsSpread = spread;
+	}
+
+	public void setAbstractWords(int mean, int spread) {
+		this.abstractWordsMean = mean;
+		this.abstractWordsSpread = spread;
+	}
+
+	public void setBodyWords(int mean, int spread) {
+		this.bodyWordsMean = mean;
+		this.bodyWordsSpread = spread;
+	}
+
+	public void setKeywords(int mean, int spread) {
+		this.keywordsMean = mean;
+		this.keywordsSpread = spread;
+	}
+
+	public void setAuthorCount(int authorCount) {
+		this.authorCount = authorCount;
+		this.authorCdf = null;
+	}
+
+	public void setGroups(String[] groups) {
+		this.groups = Arrays.copyOf(groups, groups.length);
+		this.groupCdf = null;
+	}
+
+	public void setIdentifierCount(int identifierCount) {
+		this.identifierCount = identifierCount;
+		this.identifierCdf = null;
+	}
+
+	/**
+	 * Produces the next synthetic article
+	 */
+	public Article next() throws Exception {
+		prepare();
+		generated++;
+		String title = capitalize(words(titleWordsMean, titleWordsSpread));
+		String authors = "Author" + zipf(authorCdf);
+		String abstractText = words(abstractWordsMean, abstractWordsSpread);
+		String keywords = words(keywordsMean, keywordsSpread);
+		String body = words(bodyWordsMean, bodyWordsSpread);
+		String references = "ref" + generated;
+		String level = LEVELS[random.nextInt(LEVELS.length)];
+		String identifier = "id" + zipf(identifierCdf);
+		String systemInfo = groups[zipf(groupCdf)];
+		return new Article(clip(title), clip(authors), abstractText, clip(keywords), body, references,
+				level, identifier, systemInfo);
+	}
+
+	/**
+	 * Streams count generated articles into the database through the bulk insert path
+	 */
+	public void streamToDatabase(Article articleDatabase, long count, int batchSize) throws Exception {
+		List<Article> batch = new ArrayList<>(batchSize);
+		for (long i = 0; i < count; i++) {
+			batch.add(next());
+			if (batch.size() == batchSize) {
+				articleDatabase.registerBatch(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			articleDatabase.registerBatch(batch);
+		}
+	}
+
+	/**
+	 * Writes count generated articles to a backup file that Article.restoreArticles can load.
+	 * The articleDatabase is only used to encrypt bodies into their stored format.
+	 */
+	public void writeBackupFile(Article articleDatabase, String fileName, long count) throws Exception {
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+			for (long i = 1; i <= count; i++) {
+				Article a = next();
+				writer.write(i + "," + a.getTitle() + "," + a.getAuthors() + ","
+						+ a.getAbstractText() + "," + a.getKeywords() + ","
+						+ articleDatabase.encryptField(a.getBody(), a.getAuthors()) + "," + a.getReferences() + ","
+						+ a.getLevel() + "," + a.getIdentifier() + "," + a.getSystemInfo());
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Draws a single vocabulary word with the corpus' Zipfian frequencies, for building realistic search terms
+	 */
+	public String sampleWord() {
+		prepare();
+		return vocabulary[zipf(vocabularyCdf)];
+	}
+
+	/**
+	 * Draws an author name with the corpus' Zipfian frequencies
+	 */
+	public String sampleAuthor() {
+		prepare();
+		return "Author" + zipf(authorCdf);
+	}
+
+	/**
+	 * Draws an identifier with the corpus' Zipfian frequencies
+	 */
+	public String sampleIdentifier() {
+		prepare();
+		return "id" + zipf(identifierCdf);
+	}
+
+	// Builds the vocabulary and cumulative distributions on first use
+	private void prepare() {
+		if (vocabulary == null) {
+			vocabulary = new String[vocabularySize];
+			for (int rank = 0; rank < vocabularySize; rank++) {
+				vocabulary[rank] = wordForRank(rank);
+			}
+			vocabularyCdf = zipfCdf(vocabularySize);
+		}
+		if (authorCdf == null) {
+			authorCdf = zipfCdf(authorCount);
+		}
+		if (groupCdf == null) {
+			groupCdf = zipfCdf(groups.length);
+		}
+		if (identifierCdf == null) {
+			identifierCdf = zipfCdf(identifierCount);
+		}
+	}
+
+	// Spells a rank as a sequence of syllables, so every rank maps to a distinct pronounceable word
+	private static String wordForRank(int rank) {
+		StringBuilder word = new StringBuilder();
+		int n = rank;
+		do {
+			word.append(SYLLABLES[n % SYLLABLES.length]);
+			n = n / SYLLABLES.length - 1;
+		} while (n >= 0);
+		return word.toString();
+	}
+
+	// Cumulative Zipf distribution over n ranks
+	private double[] zipfCdf(int n) {
+		double[] cdf = new double[n];
+		double sum = 0;
+		for (int rank = 1; rank <= n; rank++) {
+			sum += 1.0 / Math.pow(rank, zipfExponent);
+			cdf[rank - 1] = sum;
+		}
+		for (int i = 0; i < n; i++) {
+			cdf[i] /= sum;
+		}
+		return cdf;
+	}
+
+	// Samples a zero-based rank from a cumulative distribution
+	private int zipf(double[] cdf) {
+		int index = Arrays.binarySearch(cdf, random.nextDouble());
+		return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+	}
+
+	// Samples a word count from a clamped normal distribution and joins that many Zipfian words
+	private String words(int mean, int spread) {
+		int count = Math.max(1, (int) Math.round(mean + random.nextGaussian() * spread));
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				text.append(' ');
+			}
+			text.append(vocabulary[zipf(vocabularyCdf)]);
+		}
+		return text.toString();
+	}
+
+	private static String capitalize(String text) {
+		return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+	}
+
+	// Keeps VARCHAR fields within the column width
+	private static String clip(String text) {
+		return text.length() <= MAX_COLUMN_LENGTH ? text : text.substring(0, MAX_COLUMN_LENGTH);
+	}
+}
@@ -0,0 +1,124 @@
+package application;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * <p> IdentifierLookupBenchmark Class </p>
+ *
+ * <p> Description: JMH measurement of the searches that take a list of values: identifiers, exact or as
+ * prefixes ending in *, and groups. Each list is a single array parameter, so the time should grow with
+ * the number of matching articles rather than with a statement that gets longer for every value. The
+ * result cache is emptied before every search so each one reaches the database. </p>
+ *
+ * <p> Run through the jmh source set, e.g. {@code gradle jmh -Pjmh='IdentifierLookupBenchmark -p identifierCount=500'}. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IdentifierLookupBenchmark {
+
+	// Number of articles loaded into the database before each trial
+	@Param({"100000"})
+	public int datasetSize;
+
+	// Number of identifiers passed to one search
+	@Param({"1", "10", "50", "100", "500"})
+	public int identifierCount;
+
+	private Path tempDir;               // Directory holding the temporary H2 database
+	private Article articleDatabase;    // Article instance connected to the temporary database
+	private List<String> identifiers = new ArrayList<>();
+	private List<String> prefixes = new ArrayList<>();
+	private List<String> groups = Arrays.asList("cse360", "eclipse");
+
+	/**
+	 * Creates the temporary database, loads datasetSize articles with mostly distinct identifiers
+	 * and picks the identifiers to search for
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		tempDir = Files.createTempDirectory("identifier-bench");
+		articleDatabase = new Article();
+		articleDatabase.connectToDatabase("jdbc:h2:" + tempDir.resolve("bench").toAbsolutePath());
+		ArticleCorpusGenerator generator = new ArticleCorpusGenerator(42);
+		generator.setIdentifierCount(datasetSize);
+		generator.streamToDatabase(articleDatabase, datasetSize, 1000);
+
+		for (int i = 0; i < identifierCount; i++) {
+			String identifier = generator.sampleIdentifier();
+			identifiers.add(identifier);
+			// Drop the last two digits so each prefix covers up to a hundred identifiers
+			prefixes.add(identifier.substring(0, Math.max(2, identifier.length() - 2)) + "*");
+		}
+	}
+
+	/**
+	 * Empties the result cache so every search reaches the database
+	 */
+	@Setup(Level.Invocation)
+	public void clearResultCache() {
+		articleDatabase.getQueryCache().invalidateAll();
+	}
+
+	/**
+	 * Closes the connection and deletes the temporary database files
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		articleDatabase.closeConnection();
+		deleteRecursively(tempDir.toFile());
+	}
+
+	private static void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				deleteRecursively(child);
+			}
+		}
+		file.delete();
+	}
+
+	@Benchmark
+	public void searchByIdentifiers(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByIdentifiersAsString(identifiers));
+	}
+
+	@Benchmark
+	public void searchByIdentifierPrefixes(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByIdentifiersAsString(prefixes));
+	}
+
+	@Benchmark
+	public void searchByGroups(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByGroupsAsString(groups, false));
+	}
+}
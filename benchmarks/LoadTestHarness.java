@@ -0,0 +1,260 @@
+package application;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p> LoadTestHarness Class </p>
+ *
+ * <p> Description: Headless load test that simulates concurrent student sessions against the Article API.
+ * Each session owns its own Article connection, as every Student_Interface and Search_Interface window does,
+ * and loops over the same operation mix those screens offer: title, author, abstract, level and identifier
+ * searches followed by an occasional "view more", pausing for a think time between operations. </p>
+ *
+ * <p> The session count is ramped up in steps. For every step the harness reports throughput, latency
+ * percentiles and error rate, and the full table is the saturation curve, also written as CSV when an
+ * output file is given. </p>
+ *
+ * <p> Usage: {@code LoadTestHarness [articles] [maxSessions] [step] [stepSeconds] [thinkMillis] [csvFile]} </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+public class LoadTestHarness {
+
+	private static final String[] OPERATIONS = {"title", "author", "abstract", "level", "identifier", "viewMore"};
+	private static final int[] OPERATION_WEIGHTS = {30, 15, 15, 15, 10, 15};  // Percent of operations of each kind
+	private static final String[] LEVELS = {"beginner", "intermediate", "advanced", "expert"};
+
+	private final String dbUrl;
+	private final int articleCount;
+	private final long thinkMillis;
+
+	public LoadTestHarness(String dbUrl, int articleCount, long thinkMillis) {
+		this.dbUrl = dbUrl;
+		this.articleCount = articleCount;
+		this.thinkMillis = thinkMillis;
+	}
+
+	/**
+	 * Results of one ramp step
+	 */
+	static class StepResult {
+		int sessions;
+		long operations;
+		long errors;
+		double seconds;
+		long[] latenciesMicros;  // Sorted latencies of the successful operations
+
+		double throughput() {
+			return operations / seconds;
+		}
+
+		double errorRate() {
+			long total = operations + errors;
+			return total == 0 ? 0 : (double) errors / total;
+		}
+
+		long percentile(double p) {
+			if (latenciesMicros.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(p / 100.0 * latenciesMicros.length) - 1;
+			return latenciesMicros[Math.max(0, Math.min(index, latenciesMicros.length - 1))];
+		}
+
+		String toCsv() {
+			return sessions + "," + String.format("%.1f", throughput()) + "," + percentile(50) + ","
+					+ percentile(95) + "," + percentile(99) + "," + percentile(100) + ","
+					+ String.format("%.4f", errorRate());
+		}
+	}
+
+	/**
+	 * One simulated user. Records the latency of each operation until the deadline passes.
+	 */
+	private class Session implements Callable<long[]> {
+		private final long deadline;
+		private final Random random;
+		private final ArticleCorpusGenerator terms;
+		private final User user;
+		private final List<Long> latencies = new ArrayList<>();
+		private long errors = 0;
+
+		Session(int number, long deadline) {
+			this.deadline = deadline;
+			this.random = new Random(number);
+			this.terms = new ArticleCorpusGenerator(number);
+			this.user = new User("loadtest" + number, "loadtest".toCharArray());
+		}
+
+		@Override
+		public long[] call() throws Exception {
+			Article articleDatabase = new Article();
+			articleDatabase.connectToDatabase(dbUrl);
+			try {
+				while (System.currentTimeMillis() < deadline) {
+					long start = System.nanoTime();
+					try {
+						runOperation(articleDatabase, pickOperation());
+						latencies.add((System.nanoTime() - start) / 1000);
+					} catch (Exception e) {
+						errors++;
+					}
+					if (thinkMillis > 0) {
+						Thread.sleep(thinkMillis / 2 + (long) (random.nextDouble() * thinkMillis));
+					}
+				}
+			} finally {
+				articleDatabase.closeConnection();
+			}
+			long[] result = new long[latencies.size() + 1];
+			result[0] = errors;
+			for (int i = 0; i < latencies.size(); i++) {
+				result[i + 1] = latencies.get(i);
+			}
+			return result;
+		}
+
+		private String pickOperation() {
+			int roll = random.nextInt(100);
+			for (int i = 0; i < OPERATIONS.length; i++) {
+				roll -= OPERATION_WEIGHTS[i];
+				if (roll < 0) {
+					return OPERATIONS[i];
+				}
+			}
+			return OPERATIONS[0];
+		}
+
+		private void runOperation(Article articleDatabase, String operation) throws Exception {
+			switch (operation) {
+			case "title":
+				articleDatabase.getArticlesByTitleAsString(terms.sampleWord());
+				break;
+			case "author":
+				articleDatabase.getArticlesByAuthorAsString(terms.sampleAuthor());
+				break;
+			case "abstract":
+				articleDatabase.getArticlesByAbstractAsString(terms.sampleWord());
+				break;
+			case "level":
+				articleDatabase.getArticlesByContentLevelAsString(LEVELS[random.nextInt(LEVELS.length)], user);
+				break;
+			case "identifier":
+				articleDatabase.getArticlesByIdentifiersAsString(Arrays.asList(terms.sampleIdentifier()));
+				break;
+			default:
+				articleDatabase.getMoreInfoForArticleAsString(1 + random.nextInt(articleCount), false);
+			}
+		}
+	}
+
+	/**
+	 * Runs the given number of concurrent sessions for the given duration
+	 */
+	StepResult runStep(int sessions, long stepSeconds) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(sessions);
+		long started = System.currentTimeMillis();
+		long deadline = started + TimeUnit.SECONDS.toMillis(stepSeconds);
+		List<Future<long[]>> futures = new ArrayList<>();
+		for (int i = 0; i < sessions; i++) {
+			futures.add(pool.submit(new Session(i, deadline)));
+		}
+
+		StepResult result = new StepResult();
+		result.sessions = sessions;
+		List<long[]> perSession = new ArrayList<>();
+		int total = 0;
+		for (Future<long[]> future : futures) {
+			try {
+				long[] sessionResult = future.get();
+				result.errors += sessionResult[0];
+				perSession.add(sessionResult);
+				total += sessionResult.length - 1;
+			} catch (Exception e) {
+				// A session that could not even connect counts as one failed operation
+				result.errors++;
+			}
+		}
+		pool.shutdown();
+		result.seconds = (System.currentTimeMillis() - started) / 1000.0;
+
+		result.latenciesMicros = new long[total];
+		int position = 0;
+		for (long[] sessionResult : perSession) {
+			System.arraycopy(sessionResult, 1, result.latenciesMicros, position, sessionResult.length - 1);
+			position += sessionResult.length - 1;
+		}
+		Arrays.sort(result.latenciesMicros);
+		result.operations = total;
+		return result;
+	}
+
+	/**
+	 * Ramps the session count from step to maxSessions and returns one result per step
+	 */
+	List<StepResult> ramp(int maxSessions, int step, long stepSeconds) throws Exception {
+		List<StepResult> curve = new ArrayList<>();
+		System.out.println("sessions,throughput_ops_s,p50_us,p95_us,p99_us,max_us,error_rate");
+		for (int sessions = step; sessions <= maxSessions; sessions += step) {
+			StepResult result = runStep(sessions, stepSeconds);
+			curve.add(result);
+			System.out.println(result.toCsv());
+		}
+		return curve;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int articles = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int maxSessions = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int step = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		long stepSeconds = args.length > 3 ? Long.parseLong(args[3]) : 30;
+		long thinkMillis = args.length > 4 ? Long.parseLong(args[4]) : 500;
+		String csvFile = args.length > 5 ? args[5] : null;
+
+		// Load a generated corpus into a temporary database so the shared file is untouched
+		Path tempDir = Files.createTempDirectory("article-load");
+		String dbUrl = "jdbc:h2:" + tempDir.resolve("load").toAbsolutePath();
+		Article loader = new Article();
+		loader.connectToDatabase(dbUrl);
+		new ArticleCorpusGenerator(1).streamToDatabase(loader, articles, 1000);
+
+		try {
+			LoadTestHarness harness = new LoadTestHarness(dbUrl, articles, thinkMillis);
+			List<StepResult> curve = harness.ramp(maxSessions, step, stepSeconds);
+			if (csvFile != null) {
+				try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvFile))) {
+					writer.write("sessions,throughput_ops_s,p50_us,p95_us,p99_us,max_us,error_rate");
+					writer.newLine();
+					for (StepResult result : curve) {
+						writer.write(result.toCsv());
+						writer.newLine();
+					}
+				}
+			}
+		} finally {
+			loader.closeConnection();
+			File[] files = tempDir.toFile().listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			tempDir.toFile().delete();
+		}
+	}
+}
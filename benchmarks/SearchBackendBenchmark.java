@@ -0,0 +1,142 @@
+package application;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * <p> SearchBackendBenchmark Class </p>
+ *
+ * <p> Description: JMH comparison of the engines that can answer the title, abstract and author searches:
+ * the LIKE table scan, the in-process inverted index, H2's native FT_* full-text functions and H2's
+ * FullTextLucene. Each trial loads a fresh temporary database with a generated corpus, and the result
+ * cache is emptied before every search so each one reaches the backend. The register benchmark shows what
+ * each backend adds to a mutation, since H2 reindexes through triggers and the in-process index in Java. </p>
+ *
+ * <p> The lucene backend needs the Lucene jars H2 was built against on the benchmark classpath. Run through
+ * the jmh source set, e.g. {@code gradle jmh -Pjmh='SearchBackendBenchmark -p datasetSize=100000'}, which puts them there. </p>
+ *
+ * @author Group Tu64
+ *
+ * @version: 1.00 2024-11-25
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchBackendBenchmark {
+
+	// Number of articles loaded into the database before each trial
+	@Param({"1000", "100000", "1000000"})
+	public int datasetSize;
+
+	// Engine answering the searches, see Article.SearchBackend
+	@Param({"LIKE", "INDEX", "H2_FULLTEXT", "LUCENE"})
+	public String searchBackend;
+
+	private Path tempDir;               // Directory holding the temporary H2 database
+	private Article articleDatabase;    // Article instance connected to the temporary database
+	private ArticleCorpusGenerator generator;
+	private List<String> titleWords = new ArrayList<>();  // Search terms sampled from the corpus
+	private List<String> authors = new ArrayList<>();
+	private Random random;
+
+	/**
+	 * Creates the temporary database with the chosen backend and loads datasetSize articles into it
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		tempDir = Files.createTempDirectory("search-bench");
+		articleDatabase = new Article();
+		articleDatabase.setSearchBackend(Article.SearchBackend.valueOf(searchBackend));
+		articleDatabase.connectToDatabase("jdbc:h2:" + tempDir.resolve("bench").toAbsolutePath());
+		generator = new ArticleCorpusGenerator(42);
+		generator.streamToDatabase(articleDatabase, datasetSize, 1000);
+		random = new Random(42);
+
+		for (int i = 0; i < 256; i++) {
+			titleWords.add(generator.sampleWord());
+			authors.add(generator.sampleAuthor());
+		}
+
+		// Build the in-process index outside the measurement
+		articleDatabase.getArticlesByTitleAsString(titleWords.get(0));
+	}
+
+	/**
+	 * Empties the result cache so every search is answered by the backend
+	 */
+	@Setup(Level.Invocation)
+	public void clearResultCache() {
+		articleDatabase.getQueryCache().invalidateAll();
+	}
+
+	/**
+	 * Closes the connection and deletes the temporary database files
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		articleDatabase.closeConnection();
+		deleteRecursively(tempDir.toFile());
+	}
+
+	private static void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				deleteRecursively(child);
+			}
+		}
+		file.delete();
+	}
+
+	private String pick(List<String> values) {
+		return values.get(random.nextInt(values.size()));
+	}
+
+	@Benchmark
+	public void searchByTitleWord(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByTitleAsString(pick(titleWords)));
+	}
+
+	@Benchmark
+	public void searchByTitlePhrase(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByTitleAsString(pick(titleWords) + " " + pick(titleWords)));
+	}
+
+	@Benchmark
+	public void searchByAbstract(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByAbstractAsString(pick(titleWords)));
+	}
+
+	@Benchmark
+	public void searchByAuthor(Blackhole bh) throws Exception {
+		bh.consume(articleDatabase.getArticlesByAuthorAsString(pick(authors)));
+	}
+
+	@Benchmark
+	public void register() throws Exception {
+		articleDatabase.register(generator.next());
+	}
+}